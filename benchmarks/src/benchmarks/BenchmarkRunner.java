@@ -0,0 +1,34 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+public class BenchmarkRunner {
+  //Runs the benchmarks with allocation profiling and JSON results, so that
+  //runs of different versions can be compared. Any JMH command line option
+  //can be given, e.g. a benchmark regex or -p size=8 to restrict parameters
+
+  private static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+  public static void main(String[] args)
+      throws RunnerException, CommandLineOptionException {
+    CommandLineOptions cmdOptions = new CommandLineOptions(args);
+    OptionsBuilder builder = new OptionsBuilder();
+    builder.addProfiler(GCProfiler.class)
+        .resultFormat(ResultFormatType.JSON);
+    if (!cmdOptions.getResult().hasValue()) {
+      new File(DEFAULT_RESULT).getParentFile().mkdirs();
+      builder.result(DEFAULT_RESULT);
+    }
+    Options options = builder.parent(cmdOptions).build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import fraction.Fraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FractionBenchmark {
+  //Scalar arithmetic on arrays of random fractions. Each invocation goes
+  //through the whole array, so the reported time is per OPERANDS operations
+
+  private static final int OPERANDS = 1024;
+
+  //Bits of numerators and denominators. 62 bits makes most products overflow
+  //a long
+  @Param({"8", "31", "62"})
+  public int bits;
+
+  private Fraction[] left;
+  private Fraction[] right;
+  private long[] nums;
+  private long[] denoms;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(RandomMatrices.SEED);
+    left = new Fraction[OPERANDS];
+    right = new Fraction[OPERANDS];
+    nums = new long[OPERANDS];
+    denoms = new long[OPERANDS];
+    //Unsimplified pairs share a common factor, as long as it doesn't overflow
+    long factor = bits < 60 ? 6 : 1;
+    for (int i = 0; i < OPERANDS; i++) {
+      left[i] = RandomMatrices.randomFraction(random, bits);
+      right[i] = RandomMatrices.randomFraction(random, bits);
+      nums[i] = left[i].getNum() * factor;
+      denoms[i] = right[i].getDenom() * factor;
+    }
+  }
+
+  @Benchmark
+  public void add(Blackhole bh) {
+    for (int i = 0; i < OPERANDS; i++) {
+      bh.consume(left[i].add(right[i]));
+    }
+  }
+
+  @Benchmark
+  public void multiply(Blackhole bh) {
+    for (int i = 0; i < OPERANDS; i++) {
+      bh.consume(left[i].multiply(right[i]));
+    }
+  }
+
+  @Benchmark
+  public void divide(Blackhole bh) {
+    for (int i = 0; i < OPERANDS; i++) {
+      if (!right[i].isZero()) {
+        bh.consume(left[i].divide(right[i]));
+      }
+    }
+  }
+
+  @Benchmark
+  public void simplify(Blackhole bh) {
+    //The constructor simplifies its numerator and denominator
+    for (int i = 0; i < OPERANDS; i++) {
+      bh.consume(new Fraction(nums[i], denoms[i]));
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import fraction.Fraction;
+import matrix.DeterminantStrategy;
+import matrix.LEQSSolution;
+import matrix.Matrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatrixBenchmark {
+  //Dense matrix operations on random square matrices
+
+  @Param({"8", "32", "64"})
+  public int size;
+
+  //Probability of an off-diagonal entry being non-zero
+  @Param({"0.1", "1.0"})
+  public double density;
+
+  //Bits of the numerators and denominators of the entries
+  @Param({"4", "16", "31"})
+  public int bits;
+
+  //Storage backend: "array" of Fractions or "flat" primitive arrays
+  @Param({"array", "flat"})
+  public String storage;
+
+  private Matrix a;
+  private Matrix b;
+  private Matrix system;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    a = create(RandomMatrices.randomMatrix(RandomMatrices.SEED, size, size,
+        density, bits));
+    b = create(RandomMatrices.randomMatrix(RandomMatrices.SEED + 1, size,
+        size, density, bits));
+    //A system with a random right hand side
+    Fraction[][] augmented = RandomMatrices.randomMatrix(RandomMatrices.SEED,
+        size, size + 1, density, bits);
+    system = create(augmented);
+  }
+
+  private Matrix create(Fraction[][] entries) {
+    return storage.equals("flat") ? Matrix.flat(entries)
+        : new Matrix(entries);
+  }
+
+  @Benchmark
+  public Matrix add() throws OperationNotSupportedException {
+    return a.add(b);
+  }
+
+  @Benchmark
+  public Matrix multiply() throws OperationNotSupportedException {
+    return a.multiply(b);
+  }
+
+  @Benchmark
+  public Fraction determinant() throws OperationNotSupportedException {
+    return a.determinant();
+  }
+
+  @Benchmark
+  public Fraction gaussDeterminant() throws OperationNotSupportedException {
+    return a.GaussDeterminant();
+  }
+
+  @Benchmark
+  public Fraction modularDeterminant() throws OperationNotSupportedException {
+    return a.determinant(DeterminantStrategy.MODULAR);
+  }
+
+  @Benchmark
+  public Matrix inverse() throws OperationNotSupportedException {
+    return a.getInverse();
+  }
+
+  @Benchmark
+  public LEQSSolution solveSystem() {
+    return system.solveSystem();
+  }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+import fraction.Fraction;
+
+import java.util.Random;
+
+public class RandomMatrices {
+  //Generators of random rational matrices for the benchmarks. They always
+  //take a seed, so that every run (and every version) sees the same inputs
+
+  public static final long SEED = 0x5eedL;
+
+  public static Fraction randomFraction(Random random, int bits) {
+    //Returns a fraction whose numerator and denominator have up to bits bits
+    long bound = 1L << bits;
+    long num = (random.nextLong() & Long.MAX_VALUE) % bound;
+    long denom = (random.nextLong() & Long.MAX_VALUE) % bound;
+    return new Fraction(random.nextBoolean() ? num : -num,
+        Math.max(denom, 1));
+  }
+
+  public static Fraction[][] randomMatrix(long seed, int nRows, int nCols,
+                                          double density, int bits) {
+    //Returns a matrix where each entry is non-zero with probability density.
+    //The diagonal is always non-zero, so that square matrices are seldom
+    //singular, even when they are very sparse
+    Random random = new Random(seed);
+    Fraction[][] res = new Fraction[nRows][nCols];
+    Fraction zero = new Fraction(0);
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < nCols; j++) {
+        if (i == j || random.nextDouble() < density) {
+          Fraction f = randomFraction(random, bits);
+          res[i][j] = f.isZero() ? new Fraction(1) : f;
+        } else {
+          res[i][j] = zero;
+        }
+      }
+    }
+    return res;
+  }
+}
@@ -1,27 +1,39 @@
 package expr;
 
-public class AddExpr extends BasicExpr {
-  private Expr sum1;
-  private Expr sum2;
+import fraction.Fraction;
 
+public class AddExpr extends BasicExpr {
   public AddExpr(Expr term1, Expr term2) {
     super(term1, term2);
   }
 
   @Override
-  public Expr simplify() {
-//    if (other instanceof ConstExpr) {
-//      return new ConstExpr(getValue() - ((ConstExpr) other).getValue());
-//    } else if (other instanceof FractionExpr) {
-//      return new FractionExpr(this).subtract(other);
-//    } else {
-//      return new SubExpr(this, other);
-//    }
-    return null;
+  Fraction apply(Fraction v1, Fraction v2) {
+    return v1.add(v2);
+  }
+
+  @Override
+  BasicExpr create(Expr t1, Expr t2) {
+    return new AddExpr(t1, t2);
+  }
+
+  @Override
+  Expr simplify(Expr t1, Expr t2) {
+    if (isConst(t1, 0)) {
+      return t2;
+    }
+    if (isConst(t2, 0)) {
+      return t1;
+    }
+    //x + x = 2x. Terms are interned, so equal terms are the same node
+    if (t1 == t2) {
+      return ConstExpr.valueOf(2).multiply(t1).simplify();
+    }
+    return create(t1, t2);
   }
 
   @Override
-  public Expr eval() {
-    return null;
+  String symbol() {
+    return "+";
   }
 }
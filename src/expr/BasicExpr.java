@@ -1,13 +1,39 @@
 package expr;
 
+import fraction.Fraction;
+
 public abstract class BasicExpr implements Expr {
-  private Expr term1;
-  private Expr term2;
+  //Binary operation. Nodes are immutable, compared structurally, and
+  //interned by the Expr operations (see ExprTable). simplify() and eval()
+  //are computed once per node and remembered, so on expressions sharing
+  //subterms they take time linear in the number of distinct nodes
+  private final Expr term1;
+  private final Expr term2;
+  private final int hash;
+
+  //Memoized results. Races only ever compute the same (interned) value
+  private Expr simplified;
+  private Expr evaluated;
 
   public BasicExpr(Expr term1, Expr term2) {
-    this.term1 = term1;
-    this.term2 = term2;
-    simplify();
+    //Terms are interned, so equal subterms are always the same node and
+    //equals() only compares references
+    this.term1 = ExprTable.intern(term1);
+    this.term2 = ExprTable.intern(term2);
+    //The hash codes are mixed rather than combined linearly, which would
+    //cancel out when both terms share subterms (as in x * x) and make deep
+    //expressions collide
+    long h = mix(getClass().getName().hashCode());
+    h = mix(h * 0x9E3779B97F4A7C15L + this.term1.hashCode());
+    h = mix(h * 0x9E3779B97F4A7C15L + this.term2.hashCode());
+    this.hash = (int) (h ^ (h >>> 32));
+  }
+
+  private static long mix(long z) {
+    //SplitMix64 finalizer: every bit of z affects every bit of the result
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
   }
 
   protected Expr getTerm1() {
@@ -20,31 +46,156 @@ public abstract class BasicExpr implements Expr {
 
   @Override
   public Expr add(Expr other) {
-    return new AddExpr(this, other);
+    return ExprTable.intern(new AddExpr(this, other));
   }
 
   @Override
   public Expr subtract(Expr other) {
-    return new SubExpr(this, other);
+    return ExprTable.intern(new SubExpr(this, other));
   }
 
   @Override
   public Expr multiply(Expr other) {
-    return new MultExpr(this, other);
+    return ExprTable.intern(new MultExpr(this, other));
   }
 
   @Override
   public Expr divide(Expr other) {
-    return new FractionExpr(this, other);
+    return ExprTable.intern(new FractionExpr(this, other));
   }
 
   @Override
   public Expr reciprocal() {
-    return new FractionExpr(ConstExpr.ONE, this);
+    return ExprTable.intern(new FractionExpr(ConstExpr.ONE, this));
   }
 
   @Override
   public Expr negate() {
-    return new MultExpr(ConstExpr.NEGONE, this);
+    return ExprTable.intern(new MultExpr(ConstExpr.NEGONE, this));
+  }
+
+  @Override
+  public Expr simplify() {
+    //Simplifies the terms, folds constants, then applies the rules of the
+    //operation
+    if (simplified == null) {
+      Expr t1 = term1.simplify();
+      Expr t2 = term2.simplify();
+      Expr res = fold(t1, t2);
+      if (res == null) {
+        res = ExprTable.intern(simplify(t1, t2));
+      }
+      if (res instanceof BasicExpr) {
+        //Results are already simplified
+        ((BasicExpr) res).simplified = res;
+      }
+      simplified = res;
+    }
+    return simplified;
+  }
+
+  @Override
+  public Expr eval() {
+    //Computes the value of every subexpression without variables, leaving
+    //the rest as it is
+    if (evaluated == null) {
+      Expr t1 = term1.eval();
+      Expr t2 = term2.eval();
+      Expr res = fold(t1, t2);
+      if (res == null) {
+        res = ExprTable.intern(t1 == term1 && t2 == term2 ? this
+            : create(t1, t2));
+      }
+      if (res instanceof BasicExpr) {
+        ((BasicExpr) res).evaluated = res;
+      }
+      evaluated = res;
+    }
+    return evaluated;
+  }
+
+  private Expr fold(Expr t1, Expr t2) {
+    //The value of this operation on t1 and t2 if both are numbers and it is
+    //defined and small enough to be written with int constants, or null
+    Fraction v1 = valueOf(t1);
+    Fraction v2 = valueOf(t2);
+    if (v1 == null || v2 == null) {
+      return null;
+    }
+    Fraction res = apply(v1, v2);
+    return res == null ? null : constant(res);
+  }
+
+  //The operation on numbers, or null if it isn't defined for them
+  abstract Fraction apply(Fraction v1, Fraction v2);
+
+  //A node of the same operation on the given terms
+  abstract BasicExpr create(Expr t1, Expr t2);
+
+  //Applies the rules of the operation to simplified terms, which aren't
+  //both numbers
+  abstract Expr simplify(Expr t1, Expr t2);
+
+  abstract String symbol();
+
+  static Fraction valueOf(Expr e) {
+    //The number e stands for, if e is a constant or a fraction of constants,
+    //or null otherwise
+    if (e instanceof ConstExpr) {
+      return Fraction.valueOf(((ConstExpr) e).getValue());
+    }
+    if (e instanceof FractionExpr) {
+      Expr num = ((FractionExpr) e).getTerm1();
+      Expr denom = ((FractionExpr) e).getTerm2();
+      if (num instanceof ConstExpr && denom instanceof ConstExpr
+          && ((ConstExpr) denom).getValue() != 0) {
+        return Fraction.valueOf(((ConstExpr) num).getValue(),
+            ((ConstExpr) denom).getValue());
+      }
+    }
+    return null;
+  }
+
+  static Expr constant(Fraction f) {
+    //f as an interned constant, or reduced fraction of constants, or null if
+    //it doesn't fit in ints
+    if (!f.isLong() || f.getNum() != (int) f.getNum()
+        || f.getDenom() != (int) f.getDenom()) {
+      return null;
+    }
+    ConstExpr num = ConstExpr.valueOf((int) f.getNum());
+    if (f.getDenom() == 1) {
+      return num;
+    }
+    return ExprTable.intern(new FractionExpr(num,
+        ConstExpr.valueOf((int) f.getDenom())));
+  }
+
+  static boolean isConst(Expr e, int value) {
+    return e instanceof ConstExpr && ((ConstExpr) e).getValue() == value;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    //Terms are always interned, so they are equal iff they are the same node
+    if (this == o) {
+      return true;
+    }
+    if (o == null || o.getClass() != getClass()) {
+      return false;
+    }
+    BasicExpr other = (BasicExpr) o;
+    return hash == other.hash && term1 == other.term1
+        && term2 == other.term2;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return "(" + term1 + " " + symbol() + " " + term2 + ")";
   }
 }
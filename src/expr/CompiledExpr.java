@@ -0,0 +1,530 @@
+package expr;
+
+import fraction.DivisionByZeroException;
+import fraction.Fraction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class CompiledExpr {
+  //An expression lowered to a flat array of register instructions, for
+  //evaluating it at many points. Points are processed in blocks: every
+  //instruction runs as a tight loop over the whole block, so the dispatch
+  //costs once per block instead of once per point, and nothing is allocated
+  //per point. Variables are given in columns, one array per variable.
+  //Registers 0..nVars-1 hold the variables, followed by the constants and
+  //then the temporaries, which are reused once their value is dead.
+  //Equal subexpressions are computed once. Evaluation is thread-safe
+  private static final int ADD = 0;
+  private static final int SUB = 1;
+  private static final int MUL = 2;
+  private static final int DIV = 3;
+  //Power with an integer exponent given in the instruction
+  private static final int POWI = 4;
+  //Power with a computed exponent
+  private static final int POW = 5;
+
+  //Points per block: large enough to amortise dispatch, small enough for
+  //the registers to stay in cache
+  private static final int BLOCK = 128;
+
+  private final int nVars;
+  private final int nRegs;
+  //Instructions of 4 ints: op, destination, operand, operand (or exponent)
+  private final int[] code;
+  private final int result;
+  private final Fraction[] constants;
+
+  private CompiledExpr(int nVars, int nRegs, int[] code, int result,
+                       Fraction[] constants) {
+    this.nVars = nVars;
+    this.nRegs = nRegs;
+    this.code = code;
+    this.result = result;
+    this.constants = constants;
+  }
+
+  public static CompiledExpr compile(Expr e, VariableExpr... vars) {
+    //vars gives the order of the columns. Constant subexpressions are folded
+    //while compiling. Throws IllegalArgumentException if e has any other
+    //variable
+    return new Compiler(vars).compile(e);
+  }
+
+  public int nVars() {
+    return nVars;
+  }
+
+  public int nInstructions() {
+    return code.length / 4;
+  }
+
+  public int nRegisters() {
+    return nRegs;
+  }
+
+  public void evaluate(double[][] columns, int n, double[] out) {
+    //out[i] = value at (columns[0][i], columns[1][i], ...) for i < n, with
+    //the usual floating point semantics (so x/0 is infinite, not an error)
+    checkColumns(columns.length);
+    double[][] regs = new double[nRegs][BLOCK];
+    for (int c = 0; c < constants.length; c++) {
+      Arrays.fill(regs[nVars + c], constants[c].getBigNum().doubleValue()
+          / constants[c].getBigDenom().doubleValue());
+    }
+    for (int start = 0; start < n; start += BLOCK) {
+      int len = Math.min(BLOCK, n - start);
+      for (int v = 0; v < nVars; v++) {
+        System.arraycopy(columns[v], start, regs[v], 0, len);
+      }
+      run(regs, len);
+      System.arraycopy(regs[result], 0, out, start, len);
+    }
+  }
+
+  private void run(double[][] regs, int len) {
+    for (int pc = 0; pc < code.length; pc += 4) {
+      double[] d = regs[code[pc + 1]];
+      double[] a = regs[code[pc + 2]];
+      switch (code[pc]) {
+        case ADD: {
+          double[] b = regs[code[pc + 3]];
+          for (int i = 0; i < len; i++) {
+            d[i] = a[i] + b[i];
+          }
+          break;
+        }
+        case SUB: {
+          double[] b = regs[code[pc + 3]];
+          for (int i = 0; i < len; i++) {
+            d[i] = a[i] - b[i];
+          }
+          break;
+        }
+        case MUL: {
+          double[] b = regs[code[pc + 3]];
+          for (int i = 0; i < len; i++) {
+            d[i] = a[i] * b[i];
+          }
+          break;
+        }
+        case DIV: {
+          double[] b = regs[code[pc + 3]];
+          for (int i = 0; i < len; i++) {
+            d[i] = a[i] / b[i];
+          }
+          break;
+        }
+        case POWI: {
+          int k = code[pc + 3];
+          for (int i = 0; i < len; i++) {
+            d[i] = Math.pow(a[i], k);
+          }
+          break;
+        }
+        default: {
+          double[] b = regs[code[pc + 3]];
+          for (int i = 0; i < len; i++) {
+            d[i] = Math.pow(a[i], b[i]);
+          }
+        }
+      }
+    }
+  }
+
+  public int evaluate(long[][] nums, long[][] denoms, int n, long[] outNums,
+                      long[] outDenoms, Fraction[] wide) {
+    //Exact evaluation. Variable i at point p is nums[i][p]/denoms[i][p].
+    //Pre: inputs are in canonical form (see Fraction.addRaw)
+    //Post: the value at p is outNums[p]/outDenoms[p], in canonical form, or,
+    //if it doesn't fit in longs, wide[p], with outDenoms[p] set to 0. Returns
+    //the number of such points. Throws DivisionByZeroException on a division
+    //by zero and ArithmeticException on a non-integer power.
+    //Points are computed on the primitive kernels; only those overflowing
+    //are computed again with Fractions
+    checkColumns(nums.length);
+    checkColumns(denoms.length);
+    long[][] regNums = new long[nRegs][BLOCK];
+    long[][] regDenoms = new long[nRegs][BLOCK];
+    for (int c = 0; c < constants.length; c++) {
+      //Constants are only folded while they fit in longs
+      Arrays.fill(regNums[nVars + c], constants[c].getNum());
+      Arrays.fill(regDenoms[nVars + c], constants[c].getDenom());
+    }
+    boolean[] overflow = new boolean[BLOCK];
+    long[] res = new long[2];
+    Fraction[] fractionRegs = null;
+    int nWide = 0;
+    for (int start = 0; start < n; start += BLOCK) {
+      int len = Math.min(BLOCK, n - start);
+      for (int v = 0; v < nVars; v++) {
+        System.arraycopy(nums[v], start, regNums[v], 0, len);
+        System.arraycopy(denoms[v], start, regDenoms[v], 0, len);
+      }
+      Arrays.fill(overflow, false);
+      run(regNums, regDenoms, len, overflow, res);
+      for (int i = 0; i < len; i++) {
+        int p = start + i;
+        if (!overflow[i]) {
+          outNums[p] = regNums[result][i];
+          outDenoms[p] = regDenoms[result][i];
+          continue;
+        }
+        if (fractionRegs == null) {
+          fractionRegs = new Fraction[nRegs];
+        }
+        Fraction value = evaluate(nums, denoms, p, fractionRegs);
+        if (value.isLong()) {
+          outNums[p] = value.getNum();
+          outDenoms[p] = value.getDenom();
+        } else {
+          outNums[p] = 0;
+          outDenoms[p] = 0;
+          wide[p] = value;
+          nWide++;
+        }
+      }
+    }
+    return nWide;
+  }
+
+  private void run(long[][] regNums, long[][] regDenoms, int len,
+                   boolean[] overflow, long[] res) {
+    //Points which overflow are flagged and skipped from then on
+    for (int pc = 0; pc < code.length; pc += 4) {
+      int op = code[pc];
+      long[] dn = regNums[code[pc + 1]];
+      long[] dd = regDenoms[code[pc + 1]];
+      long[] an = regNums[code[pc + 2]];
+      long[] ad = regDenoms[code[pc + 2]];
+      long[] bn = op == POWI ? null : regNums[code[pc + 3]];
+      long[] bd = op == POWI ? null : regDenoms[code[pc + 3]];
+      boolean ok;
+      for (int i = 0; i < len; i++) {
+        if (overflow[i]) {
+          continue;
+        }
+        switch (op) {
+          case ADD:
+            ok = Fraction.addRaw(an[i], ad[i], bn[i], bd[i], res);
+            break;
+          case SUB:
+            //Canonical numerators are never Long.MIN_VALUE
+            ok = Fraction.addRaw(an[i], ad[i], -bn[i], bd[i], res);
+            break;
+          case MUL:
+            ok = Fraction.multiplyRaw(an[i], ad[i], bn[i], bd[i], res);
+            break;
+          case DIV:
+            ok = divideRaw(an[i], ad[i], bn[i], bd[i], res);
+            break;
+          case POWI:
+            ok = powRaw(an[i], ad[i], code[pc + 3], res);
+            break;
+          default:
+            ok = powRaw(an[i], ad[i], exponent(bn[i], bd[i]), res);
+        }
+        if (ok) {
+          dn[i] = res[0];
+          dd[i] = res[1];
+        } else {
+          overflow[i] = true;
+        }
+      }
+    }
+  }
+
+  private static boolean divideRaw(long n1, long d1, long n2, long d2,
+                                   long[] res) {
+    //Multiplies by the reciprocal, keeping its denominator positive
+    if (n2 == 0) {
+      throw new DivisionByZeroException();
+    }
+    return n2 < 0 ? Fraction.multiplyRaw(n1, d1, -d2, -n2, res)
+        : Fraction.multiplyRaw(n1, d1, d2, n2, res);
+  }
+
+  private static boolean powRaw(long n, long d, int k, long[] res) {
+    //Square and multiply, 0^0 = 1 like in PowExpr
+    if (k < 0) {
+      if (n == 0) {
+        throw new DivisionByZeroException();
+      }
+      long temp = n < 0 ? -d : d;
+      d = Math.abs(n);
+      n = temp;
+      k = -k;
+    }
+    long resNum = 1;
+    long resDenom = 1;
+    while (k > 0) {
+      if ((k & 1) == 1) {
+        if (!Fraction.multiplyRaw(resNum, resDenom, n, d, res)) {
+          return false;
+        }
+        resNum = res[0];
+        resDenom = res[1];
+      }
+      k >>>= 1;
+      if (k > 0) {
+        if (!Fraction.multiplyRaw(n, d, n, d, res)) {
+          return false;
+        }
+        n = res[0];
+        d = res[1];
+      }
+    }
+    res[0] = resNum;
+    res[1] = resDenom;
+    return true;
+  }
+
+  private static int exponent(long n, long d) {
+    if (d != 1 || n != (int) n) {
+      throw new ArithmeticException("Only integer powers can be computed " +
+          "exactly, not " + n + "/" + d);
+    }
+    return (int) n;
+  }
+
+  private Fraction evaluate(long[][] nums, long[][] denoms, int p,
+                            Fraction[] regs) {
+    //Slow path for a single point, on Fractions
+    for (int v = 0; v < nVars; v++) {
+      regs[v] = Fraction.valueOf(nums[v][p], denoms[v][p]);
+    }
+    System.arraycopy(constants, 0, regs, nVars, constants.length);
+    for (int pc = 0; pc < code.length; pc += 4) {
+      Fraction a = regs[code[pc + 2]];
+      Fraction d;
+      switch (code[pc]) {
+        case ADD:
+          d = a.add(regs[code[pc + 3]]);
+          break;
+        case SUB:
+          d = a.subtract(regs[code[pc + 3]]);
+          break;
+        case MUL:
+          d = a.multiply(regs[code[pc + 3]]);
+          break;
+        case DIV:
+          d = a.divide(regs[code[pc + 3]]);
+          break;
+        case POWI:
+          d = pow(a, code[pc + 3]);
+          break;
+        default:
+          Fraction b = regs[code[pc + 3]];
+          if (!b.isLong()) {
+            throw new ArithmeticException("Exponent " + b + " is too large");
+          }
+          d = pow(a, exponent(b.getNum(), b.getDenom()));
+      }
+      regs[code[pc + 1]] = d;
+    }
+    return regs[result];
+  }
+
+  private static Fraction pow(Fraction base, int k) {
+    if (k < 0) {
+      base = base.reciprocal();
+      k = -k;
+    }
+    Fraction res = Fraction.valueOf(1);
+    while (k > 0) {
+      if ((k & 1) == 1) {
+        res = res.multiply(base);
+      }
+      k >>>= 1;
+      if (k > 0) {
+        base = base.multiply(base);
+      }
+    }
+    return res;
+  }
+
+  private void checkColumns(int nColumns) {
+    if (nColumns != nVars) {
+      throw new IllegalArgumentException("Expected " + nVars +
+          " columns, not " + nColumns);
+    }
+  }
+
+  private static class Compiler {
+    //Emits instructions in post-order, then maps the value of each one onto
+    //as few registers as possible. Operands are encoded as the index of the
+    //instruction computing them, or as -1 - register for variables and
+    //constants, whose registers are fixed
+    private final Map<String, Integer> vars = new HashMap<>();
+    private final List<Fraction> constants = new ArrayList<>();
+    private final Map<Fraction, Integer> constantIndex = new HashMap<>();
+    private final List<int[]> instructions = new ArrayList<>();
+    //Virtual register of every subexpression compiled so far. Keys are
+    //compared structurally, so equal subexpressions share a register even
+    //if they weren't interned
+    private final Map<Expr, Integer> compiled = new HashMap<>();
+    //Value of every subexpression folded into a constant
+    private final Map<Expr, Fraction> folded = new HashMap<>();
+
+    Compiler(VariableExpr[] vars) {
+      for (int i = 0; i < vars.length; i++) {
+        if (this.vars.put(vars[i].getName(), i) != null) {
+          throw new IllegalArgumentException("Variable " + vars[i] +
+              " is given twice");
+        }
+      }
+    }
+
+    CompiledExpr compile(Expr e) {
+      int virtualResult = visit(e);
+      int nVars = vars.size();
+      int firstTemp = nVars + constants.size();
+      int nInstructions = instructions.size();
+      //Last instruction reading the value of each instruction
+      int[] lastUse = new int[nInstructions];
+      Arrays.fill(lastUse, -1);
+      for (int pc = 0; pc < nInstructions; pc++) {
+        int[] instr = instructions.get(pc);
+        for (int k = 2; k <= (instr[0] == POWI ? 2 : 3); k++) {
+          if (instr[k] >= 0) {
+            lastUse[instr[k]] = pc;
+          }
+        }
+      }
+      //Linear scan: a temporary's register is free after its last use. The
+      //result register is never freed
+      int[] real = new int[nInstructions];
+      int[] free = new int[nInstructions];
+      int nFree = 0;
+      int nRegs = firstTemp;
+      int[] code = new int[4 * nInstructions];
+      for (int pc = 0; pc < nInstructions; pc++) {
+        int[] instr = instructions.get(pc);
+        code[4 * pc] = instr[0];
+        code[4 * pc + 2] = map(instr[2], real);
+        code[4 * pc + 3] = instr[0] == POWI ? instr[3] : map(instr[3], real);
+        //Operands dying here can be overwritten by the result, as every
+        //instruction reads point i before writing it
+        for (int k = 2; k <= (instr[0] == POWI ? 2 : 3); k++) {
+          int t = instr[k];
+          if (t >= 0 && lastUse[t] == pc && (k == 2 || instr[2] != t)) {
+            free[nFree++] = real[t];
+          }
+        }
+        real[pc] = nFree > 0 ? free[--nFree] : nRegs++;
+        code[4 * pc + 1] = real[pc];
+      }
+      //The result is computed last, so its register is never reused
+      return new CompiledExpr(nVars, nRegs, code, map(virtualResult, real),
+          constants.toArray(new Fraction[0]));
+    }
+
+    private static int map(int operand, int[] real) {
+      return operand < 0 ? -1 - operand : real[operand];
+    }
+
+    private int visit(Expr root) {
+      //Post-order with an explicit stack, so deep expressions (a sum folded
+      //term by term is as deep as it is long) don't overflow the call stack.
+      //Operations on constants are folded on the way, as long as the value
+      //fits in longs
+      Deque<Expr> stack = new ArrayDeque<>();
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        Expr e = stack.peek();
+        if (compiled.containsKey(e) || folded.containsKey(e)) {
+          stack.pop();
+          continue;
+        }
+        Fraction value = BasicExpr.valueOf(e);
+        if (value != null) {
+          folded.put(e, value);
+        } else if (e instanceof VariableExpr) {
+          Integer index = vars.get(((VariableExpr) e).getName());
+          if (index == null) {
+            throw new IllegalArgumentException("Unknown variable " + e);
+          }
+          compiled.put(e, -1 - index);
+        } else if (e instanceof BasicExpr) {
+          BasicExpr b = (BasicExpr) e;
+          //term1 is pushed last, so its instructions come first
+          boolean ready = true;
+          for (Expr t : new Expr[] {b.getTerm2(), b.getTerm1()}) {
+            if (!compiled.containsKey(t) && !folded.containsKey(t)) {
+              stack.push(t);
+              ready = false;
+            }
+          }
+          if (!ready) {
+            continue;
+          }
+          compileOperation(b);
+        } else {
+          throw new IllegalArgumentException("Unknown expression " + e);
+        }
+        stack.pop();
+      }
+      return operand(root);
+    }
+
+    private void compileOperation(BasicExpr b) {
+      //Pre: both terms have been visited
+      Fraction v1 = folded.get(b.getTerm1());
+      Fraction v2 = folded.get(b.getTerm2());
+      Fraction value = v1 != null && v2 != null ? b.apply(v1, v2) : null;
+      if (value != null && value.isLong()) {
+        folded.put(b, value);
+      } else if (b instanceof PowExpr && v2 != null && v2.isLong()
+          && v2.getDenom() == 1 && v2.getNum() == (int) v2.getNum()) {
+        compiled.put(b, emit(POWI, operand(b.getTerm1()), (int) v2.getNum()));
+      } else {
+        compiled.put(b, emit(op(b), operand(b.getTerm1()),
+            operand(b.getTerm2())));
+      }
+    }
+
+    private int operand(Expr e) {
+      //Pre: e has been visited. Constants only take a register once they are
+      //read, so folded subexpressions don't leave unused ones behind
+      Fraction value = folded.get(e);
+      return value != null ? constant(value) : compiled.get(e);
+    }
+
+    private int constant(Fraction value) {
+      //Constants are stored after the variables
+      Integer index = constantIndex.get(value);
+      if (index == null) {
+        index = constants.size();
+        constants.add(value);
+        constantIndex.put(value, index);
+      }
+      return -1 - (vars.size() + index);
+    }
+
+    private static int op(Expr e) {
+      if (e instanceof AddExpr) {
+        return ADD;
+      }
+      if (e instanceof SubExpr) {
+        return SUB;
+      }
+      if (e instanceof MultExpr) {
+        return MUL;
+      }
+      if (e instanceof FractionExpr) {
+        return DIV;
+      }
+      return POW;
+    }
+
+    private int emit(int op, int a, int b) {
+      instructions.add(new int[]{op, -1, a, b});
+      return instructions.size() - 1;
+    }
+  }
+}
@@ -1,9 +1,9 @@
 package expr;
 
 public class ConstExpr implements Expr {
-  public static final ConstExpr ONE = new ConstExpr(1);
-  public static final ConstExpr ZERO = new ConstExpr(0);
-  public static final ConstExpr NEGONE = new ConstExpr(-1);
+  public static final ConstExpr ONE = valueOf(1);
+  public static final ConstExpr ZERO = valueOf(0);
+  public static final ConstExpr NEGONE = valueOf(-1);
 
   private final Integer value;
 
@@ -15,43 +15,63 @@ public class ConstExpr implements Expr {
     this.value = value;
   }
 
+  public static ConstExpr valueOf(int value) {
+    //The shared constant with the given value
+    return ExprTable.intern(new ConstExpr(value));
+  }
+
   @Override
   public Expr add(Expr other) {
-    return new AddExpr(this, other);
+    return ExprTable.intern(new AddExpr(this, other));
   }
 
   @Override
   public Expr subtract(Expr other) {
-    return new SubExpr(this, other);
+    return ExprTable.intern(new SubExpr(this, other));
   }
 
   @Override
   public Expr multiply(Expr other) {
-    return new MultExpr(this, other);
+    return ExprTable.intern(new MultExpr(this, other));
   }
 
   @Override
   public Expr divide(Expr other) {
-    return new FractionExpr(this, other);
+    return ExprTable.intern(new FractionExpr(this, other));
   }
 
   @Override
   public Expr reciprocal() {
-    return new FractionExpr(new ConstExpr(1), this);
+    return ExprTable.intern(new FractionExpr(ONE, this));
   }
 
   @Override
   public Expr negate() {
-    return new MultExpr(new ConstExpr(-1), this);
+    return ExprTable.intern(new MultExpr(NEGONE, this));
   }
 
   @Override
   public Expr simplify() {
-    return this;
+    return ExprTable.intern(this);
   }
 
   @Override
   public Expr eval() {
-    return this;
+    return ExprTable.intern(this);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof ConstExpr && value.equals(((ConstExpr) o).value);
+  }
+
+  @Override
+  public int hashCode() {
+    return value.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return value.toString();
   }
 }
@@ -0,0 +1,31 @@
+package expr;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+final class ExprTable {
+  //Hash-consing table: every expression built through the Expr operations
+  //goes through intern(), so structurally equal expressions are one shared
+  //node. Equality of interned nodes is then a reference comparison, and the
+  //results memoized on a node are shared by every expression containing it.
+  //Nodes are only weakly referenced, so unused ones are garbage collected
+  private static final Map<Expr, WeakReference<Expr>> table =
+      new WeakHashMap<>();
+
+  private ExprTable() {
+  }
+
+  @SuppressWarnings("unchecked")
+  static synchronized <T extends Expr> T intern(T e) {
+    //Returns the shared node equal to e, which is e itself if there wasn't
+    //one yet. Equal nodes are always of the same class
+    WeakReference<Expr> ref = table.get(e);
+    Expr shared = ref == null ? null : ref.get();
+    if (shared != null) {
+      return (T) shared;
+    }
+    table.put(e, new WeakReference<>(e));
+    return e;
+  }
+}
@@ -0,0 +1,265 @@
+package expr;
+
+import fraction.DivisionByZeroException;
+import fraction.Fraction;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ExprTest {
+  private final Expr x = VariableExpr.valueOf("x");
+  private final Expr y = VariableExpr.valueOf("y");
+  private final Expr two = ConstExpr.valueOf(2);
+  private final Expr three = ConstExpr.valueOf(3);
+
+  @Test
+  public void hashConsingTest() throws Exception {
+    //Equal expressions built separately are the same node
+    assertSame(x.add(y).multiply(two), new VariableExpr("x")
+        .add(new VariableExpr("y")).multiply(ConstExpr.valueOf(2)));
+    assertEquals(new AddExpr(x, y), x.add(y));
+    assertEquals(new AddExpr(x, y).hashCode(), x.add(y).hashCode());
+    assertNotEquals(x.add(y), y.add(x));
+    assertNotEquals(x.add(y), x.subtract(y));
+    assertSame(x.negate(), ConstExpr.NEGONE.multiply(x));
+  }
+
+  @Test
+  public void simplifyTest() throws Exception {
+    assertSame(x.add(ConstExpr.ZERO).multiply(ConstExpr.ONE).simplify(), x);
+    assertSame(x.add(y).subtract(x.add(y)).simplify(), ConstExpr.ZERO);
+    assertSame(x.add(x).simplify(), two.multiply(x));
+    assertSame(two.multiply(three.multiply(x)).simplify(),
+        ConstExpr.valueOf(6).multiply(x));
+    assertSame(x.multiply(two).simplify(), two.multiply(x));
+    assertSame(x.divide(x).simplify(), ConstExpr.ONE);
+    assertSame(x.multiply(x).simplify(), new PowExpr(x, two).simplify());
+    assertSame(new PowExpr(new PowExpr(x, two), three).simplify(),
+        new PowExpr(x, ConstExpr.valueOf(6)).simplify());
+    assertSame(new PowExpr(x, ConstExpr.ONE).simplify(), x);
+    assertSame(ConstExpr.ZERO.subtract(y).simplify(), y.negate());
+  }
+
+  @Test(timeout = 10000)
+  public void deepSharingTest() throws Exception {
+    //Every level uses the previous one twice, so the expression is a DAG of
+    //O(d) nodes but a tree of O(2^d) ones. Hashes mustn't collide between
+    //levels, or interning and memoization stop being constant time
+    Expr e = x;
+    Set<Integer> hashes = new HashSet<>();
+    for (int i = 0; i < 400; i++) {
+      e = e.multiply(y).add(e.subtract(x));
+      hashes.add(e.hashCode());
+    }
+    assertEquals(hashes.size(), 400);
+    assertSame(e.simplify(), e.simplify());
+    assertSame(e.eval(), e);
+    Expr f = x;
+    hashes.clear();
+    for (int i = 0; i < 40; i++) {
+      f = f.multiply(f).add(ConstExpr.ONE);
+      hashes.add(f.hashCode());
+    }
+    assertEquals(hashes.size(), 40);
+  }
+
+  @Test
+  public void evalTest() throws Exception {
+    //1/2 + 1/3 = 5/6
+    Expr sum = ConstExpr.ONE.divide(two).add(ConstExpr.ONE.divide(three));
+    assertSame(sum.eval(), ConstExpr.valueOf(5).divide(
+        ConstExpr.valueOf(6)));
+    assertSame(new PowExpr(two, ConstExpr.valueOf(-2)).eval(),
+        ConstExpr.ONE.divide(ConstExpr.valueOf(4)));
+    assertSame(two.multiply(three).add(x).eval(),
+        ConstExpr.valueOf(6).add(x));
+    //Undefined values are left as they are
+    Expr byZero = ConstExpr.ONE.divide(ConstExpr.ZERO);
+    assertSame(byZero.eval(), byZero);
+    assertSame(byZero.simplify(), byZero);
+    Expr zeroByZero = ConstExpr.ZERO.divide(ConstExpr.ZERO);
+    assertSame(zeroByZero.eval(), zeroByZero);
+    assertSame(zeroByZero.simplify(), zeroByZero);
+    Expr diff = x.subtract(x);
+    assertSame(diff.divide(diff).simplify(), zeroByZero);
+  }
+
+  @Test(timeout = 5000)
+  public void sharedSubtermsTest() throws Exception {
+    //As a tree this has 2^200 leaves, but only 200 distinct nodes
+    Expr e = x.add(y);
+    Expr c = ConstExpr.ONE;
+    for (int i = 0; i < 200; i++) {
+      e = e.multiply(ConstExpr.ONE).add(e.subtract(ConstExpr.ZERO));
+      c = c.subtract(c).add(c);
+    }
+    assertNotNull(e.simplify());
+    assertSame(e.simplify(), e.simplify());
+    assertSame(c.eval(), ConstExpr.ONE);
+    assertSame(c.simplify(), ConstExpr.ONE);
+  }
+
+  @Test
+  public void polynomialTest() throws Exception {
+    Expr one = ConstExpr.ONE;
+    //(x + y)^2 = x^2 + 2xy + y^2
+    Polynomial square = Polynomial.of(new PowExpr(x.add(y), two));
+    Polynomial expanded = Polynomial.of(new PowExpr(x, two)
+        .add(two.multiply(x).multiply(y)).add(new PowExpr(y, two)));
+    assertEquals(square, expanded);
+    assertEquals(square.nTerms(), 3);
+    assertEquals(square.degree(), 2);
+    assertTrue(square.subtract(expanded).isZero());
+    assertEquals(Polynomial.of(x.add(one).multiply(x.subtract(one))),
+        Polynomial.of(new PowExpr(x, two).subtract(one)));
+    //Back and forth through Expr
+    assertEquals(Polynomial.of(square.toExpr()), square);
+    assertEquals(Polynomial.of(x.divide(two)).coefficient(
+        Monomial.of((VariableExpr) x)), Fraction.valueOf(1, 2));
+    try {
+      Polynomial.of(x.divide(y));
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      //Not a polynomial
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void deepPolynomialTest() throws Exception {
+    //Sums folded term by term in a loop are as deep as they are long
+    Expr sum = ConstExpr.ZERO;
+    Expr prod = ConstExpr.ONE;
+    for (int i = 0; i < 10000; i++) {
+      sum = sum.add(x.multiply(ConstExpr.valueOf(i % 7)));
+      prod = prod.multiply(new PowExpr(y, ConstExpr.ONE));
+    }
+    //x times the sum of i mod 7: 1428 whole cycles of 0..6, then 0..3
+    assertEquals(Polynomial.of(sum), Polynomial.variable(
+        VariableExpr.valueOf("x")).scale(Fraction.valueOf(1428 * 21 + 6)));
+    assertEquals(Polynomial.of(prod).degree(), 10000);
+  }
+
+  @Test(timeout = 5000)
+  public void polynomialPowTest() throws Exception {
+    //(x + y + z + 1)^10 has C(13, 3) terms
+    Expr z = VariableExpr.valueOf("z");
+    Polynomial p = Polynomial.of(new PowExpr(x.add(y).add(z)
+        .add(ConstExpr.ONE), ConstExpr.valueOf(10)));
+    assertEquals(p.nTerms(), 286);
+    assertEquals(p.coefficient(Monomial.ONE), Fraction.valueOf(1));
+    //Sum of the coefficients is p(1, 1, 1) = 4^10
+    Fraction sum = Fraction.valueOf(0);
+    for (Fraction c : p.terms().values()) {
+      sum = sum.add(c);
+    }
+    assertEquals(sum, Fraction.valueOf(1 << 20));
+    assertTrue(p.multiply(p).subtract(p.pow(2)).isZero());
+  }
+
+  @Test
+  public void rationalFunctionTest() throws Exception {
+    Expr one = ConstExpr.ONE;
+    //(x^2 - 1) / (x - 1) = x + 1
+    RationalFunction f = RationalFunction.of(new PowExpr(x, two)
+        .subtract(one).divide(x.subtract(one)));
+    assertTrue(f.isPolynomial());
+    assertEquals(f.numerator(), Polynomial.of(x.add(one)));
+    //1/x + 1/x = 2/x
+    RationalFunction g = RationalFunction.of(x.reciprocal()
+        .add(x.reciprocal()));
+    assertEquals(g.numerator(), Polynomial.constant(Fraction.valueOf(2)));
+    assertEquals(g.denominator(), Polynomial.of(x));
+    //x^-2 * x^3 = x
+    assertEquals(RationalFunction.of(new PowExpr(x, ConstExpr.valueOf(-2))
+        .multiply(new PowExpr(x, three))), RationalFunction.of(x));
+    assertEquals(RationalFunction.of(g.toExpr()), g);
+  }
+
+  @Test
+  public void compiledExprTest() throws Exception {
+    //(x + 1)(x - 1)/y + x^3 - 2/3, with (x + 1) written twice
+    Expr one = ConstExpr.ONE;
+    Expr e = x.add(one).multiply(x.subtract(one)).divide(y)
+        .add(new PowExpr(x, three)).subtract(two.divide(three))
+        .add(new AddExpr(x, one).multiply(ConstExpr.ZERO));
+    CompiledExpr compiled = CompiledExpr.compile(e, (VariableExpr) x,
+        (VariableExpr) y);
+    int n = 1000;
+    double[][] columns = new double[2][n];
+    long[][] nums = new long[2][n];
+    long[][] denoms = new long[2][n];
+    Random random = new Random(23);
+    for (int i = 0; i < n; i++) {
+      for (int v = 0; v < 2; v++) {
+        Fraction f = Fraction.valueOf(random.nextInt(2001) - 1000,
+            random.nextInt(50) + 1);
+        if (v == 1 && f.isZero()) {
+          f = Fraction.valueOf(1);
+        }
+        nums[v][i] = f.getNum();
+        denoms[v][i] = f.getDenom();
+        columns[v][i] = (double) f.getNum() / f.getDenom();
+      }
+    }
+    //Large enough for x^3 to overflow
+    nums[0][n - 1] = 1L << 40;
+    denoms[0][n - 1] = 1;
+    columns[0][n - 1] = 1L << 40;
+    double[] values = new double[n];
+    compiled.evaluate(columns, n, values);
+    long[] outNums = new long[n];
+    long[] outDenoms = new long[n];
+    Fraction[] wide = new Fraction[n];
+    int nWide = compiled.evaluate(nums, denoms, n, outNums, outDenoms, wide);
+    assertEquals(nWide, 1);
+    for (int i = 0; i < n; i++) {
+      Fraction xi = Fraction.valueOf(nums[0][i], denoms[0][i]);
+      Fraction yi = Fraction.valueOf(nums[1][i], denoms[1][i]);
+      Fraction expected = xi.add(Fraction.valueOf(1))
+          .multiply(xi.subtract(Fraction.valueOf(1))).divide(yi)
+          .add(xi.multiply(xi).multiply(xi)).subtract(Fraction.valueOf(2, 3));
+      Fraction actual = outDenoms[i] == 0 ? wide[i]
+          : Fraction.valueOf(outNums[i], outDenoms[i]);
+      assertEquals(actual, expected);
+      double d = expected.getBigNum().doubleValue()
+          / expected.getBigDenom().doubleValue();
+      assertEquals(values[i], d, 1e-9 * Math.max(1, Math.abs(d)));
+    }
+    try {
+      nums[1][0] = 0;
+      compiled.evaluate(nums, denoms, n, outNums, outDenoms, wide);
+      fail("Expected a DivisionByZeroException");
+    } catch (DivisionByZeroException e1) {
+      //y = 0
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void deepCompiledExprTest() throws Exception {
+    //x + 1 + 2 + ... + 10000 is as deep as it is long, and so is the sum of
+    //the constants alone, which folds to a single one
+    Expr sum = x;
+    Expr constants = ConstExpr.ZERO;
+    for (int i = 1; i <= 10000; i++) {
+      sum = sum.add(ConstExpr.valueOf(i));
+      constants = constants.add(ConstExpr.valueOf(i));
+    }
+    CompiledExpr compiled = CompiledExpr.compile(sum, (VariableExpr) x);
+    assertEquals(compiled.nInstructions(), 10000);
+    double[] values = new double[2];
+    compiled.evaluate(new double[][] {{0, 0.5}}, 2, values);
+    assertEquals(values[0], 50005000, 0);
+    assertEquals(values[1], 50005000.5, 0);
+    CompiledExpr folded = CompiledExpr.compile(constants);
+    assertEquals(folded.nInstructions(), 0);
+    long[] outNums = new long[1];
+    long[] outDenoms = new long[1];
+    folded.evaluate(new long[0][], new long[0][], 1, outNums, outDenoms,
+        new Fraction[1]);
+    assertEquals(outNums[0], 50005000);
+  }
+}
@@ -1,5 +1,7 @@
 package expr;
 
+import fraction.Fraction;
+
 public class FractionExpr extends BasicExpr {
   public static final FractionExpr ONE = new FractionExpr(ConstExpr.ONE);
   public static final FractionExpr ZERO = new FractionExpr(ConstExpr.ZERO);
@@ -10,16 +12,40 @@ public class FractionExpr extends BasicExpr {
   }
 
   public FractionExpr(Expr term1) {
-    this(term1, new ConstExpr(1));
+    this(term1, ConstExpr.ONE);
+  }
+
+  @Override
+  Fraction apply(Fraction v1, Fraction v2) {
+    return v2.isZero() ? null : v1.divide(v2);
+  }
+
+  @Override
+  BasicExpr create(Expr t1, Expr t2) {
+    return new FractionExpr(t1, t2);
   }
 
   @Override
-  public Expr simplify() {
-    return null;
+  Expr simplify(Expr t1, Expr t2) {
+    //Divisions by zero are left as they are
+    if (isConst(t2, 1)) {
+      return t1;
+    }
+    if (isConst(t2, -1)) {
+      return t1.negate().simplify();
+    }
+    //Cancelling assumes the denominator isn't zero
+    if (isConst(t1, 0) && !isConst(t2, 0)) {
+      return ConstExpr.ZERO;
+    }
+    if (t1 == t2 && !isConst(t2, 0)) {
+      return ConstExpr.ONE;
+    }
+    return create(t1, t2);
   }
 
   @Override
-  public Expr eval() {
-    return null;
+  String symbol() {
+    return "/";
   }
 }
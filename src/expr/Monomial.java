@@ -0,0 +1,190 @@
+package expr;
+
+import java.util.Arrays;
+
+public final class Monomial implements Comparable<Monomial> {
+  //Product of variables raised to positive powers, such as x^2 * y. Stored
+  //as the variable names in alphabetical order with their exponents, so
+  //equal monomials have equal arrays. Immutable
+  public static final Monomial ONE = new Monomial(new String[0], new int[0]);
+
+  private final String[] vars;
+  private final int[] exps;
+  private final int degree;
+  private final int hash;
+
+  private Monomial(String[] vars, int[] exps) {
+    //Pre: vars are sorted and distinct, exps are positive
+    this.vars = vars;
+    this.exps = exps;
+    int d = 0;
+    for (int e : exps) {
+      d += e;
+    }
+    this.degree = d;
+    this.hash = 31 * Arrays.hashCode(vars) + Arrays.hashCode(exps);
+  }
+
+  public static Monomial of(VariableExpr var) {
+    return new Monomial(new String[]{var.getName()}, new int[]{1});
+  }
+
+  public int degree() {
+    return degree;
+  }
+
+  public int nVars() {
+    return vars.length;
+  }
+
+  public String var(int i) {
+    return vars[i];
+  }
+
+  public int exponent(int i) {
+    return exps[i];
+  }
+
+  public int exponent(String var) {
+    int i = Arrays.binarySearch(vars, var);
+    return i < 0 ? 0 : exps[i];
+  }
+
+  public Monomial multiply(Monomial other) {
+    //Merges the two sorted variable lists, adding exponents
+    if (vars.length == 0) {
+      return other;
+    }
+    if (other.vars.length == 0) {
+      return this;
+    }
+    String[] resVars = new String[vars.length + other.vars.length];
+    int[] resExps = new int[resVars.length];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < vars.length || j < other.vars.length) {
+      int cmp = i == vars.length ? 1 : j == other.vars.length ? -1
+          : vars[i].compareTo(other.vars[j]);
+      if (cmp < 0) {
+        resVars[k] = vars[i];
+        resExps[k++] = exps[i++];
+      } else if (cmp > 0) {
+        resVars[k] = other.vars[j];
+        resExps[k++] = other.exps[j++];
+      } else {
+        resVars[k] = vars[i];
+        resExps[k++] = Math.addExact(exps[i++], other.exps[j++]);
+      }
+    }
+    return new Monomial(Arrays.copyOf(resVars, k), Arrays.copyOf(resExps, k));
+  }
+
+  public Monomial pow(int n) {
+    //Pre: n >= 0
+    if (n == 0) {
+      return ONE;
+    }
+    int[] resExps = new int[exps.length];
+    for (int i = 0; i < exps.length; i++) {
+      resExps[i] = Math.multiplyExact(exps[i], n);
+    }
+    return new Monomial(vars, resExps);
+  }
+
+  public boolean divides(Monomial other) {
+    //True if every variable of this appears in other with at least the
+    //same exponent
+    for (int i = 0; i < vars.length; i++) {
+      if (other.exponent(vars[i]) < exps[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public Monomial divide(Monomial other) {
+    //Pre: other.divides(this)
+    return combine(other, false);
+  }
+
+  public Monomial gcd(Monomial other) {
+    //Lowest exponent of every variable in both
+    return combine(other, true);
+  }
+
+  private Monomial combine(Monomial other, boolean gcd) {
+    String[] resVars = new String[vars.length];
+    int[] resExps = new int[vars.length];
+    int k = 0;
+    for (int i = 0; i < vars.length; i++) {
+      int e = other.exponent(vars[i]);
+      e = gcd ? Math.min(exps[i], e) : exps[i] - e;
+      if (e > 0) {
+        resVars[k] = vars[i];
+        resExps[k++] = e;
+      }
+    }
+    return k == 0 ? ONE
+        : new Monomial(Arrays.copyOf(resVars, k), Arrays.copyOf(resExps, k));
+  }
+
+  public Expr toExpr() {
+    //x^2 * y, or 1 for the empty monomial
+    Expr res = null;
+    for (int i = 0; i < vars.length; i++) {
+      Expr power = VariableExpr.valueOf(vars[i]);
+      if (exps[i] > 1) {
+        power = ExprTable.intern(new PowExpr(power,
+            ConstExpr.valueOf(exps[i])));
+      }
+      res = res == null ? power : res.multiply(power);
+    }
+    return res == null ? ConstExpr.ONE : res;
+  }
+
+  @Override
+  public int compareTo(Monomial other) {
+    //Graded lexicographic order: higher degree first, then the monomial
+    //with the higher exponent on the alphabetically first variable where
+    //they differ. Returns a negative number if this comes first
+    if (degree != other.degree) {
+      return degree > other.degree ? -1 : 1;
+    }
+    int n = Math.min(vars.length, other.vars.length);
+    for (int i = 0; i < n; i++) {
+      int cmp = vars[i].compareTo(other.vars[i]);
+      if (cmp != 0) {
+        //This one has a variable the other lacks at this point
+        return cmp;
+      }
+      if (exps[i] != other.exps[i]) {
+        return exps[i] > other.exps[i] ? -1 : 1;
+      }
+    }
+    return Integer.compare(other.vars.length, vars.length);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Monomial)) {
+      return false;
+    }
+    Monomial other = (Monomial) o;
+    return hash == other.hash && Arrays.equals(vars, other.vars)
+        && Arrays.equals(exps, other.exps);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return toExpr().toString();
+  }
+}
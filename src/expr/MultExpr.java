@@ -1,20 +1,56 @@
 package expr;
 
-public class MultExpr extends BasicExpr {
-  private Expr mult1;
-  private Expr mult2;
+import fraction.Fraction;
 
+public class MultExpr extends BasicExpr {
   public MultExpr(Expr term1, Expr term2) {
     super(term1, term2);
   }
 
   @Override
-  public Expr simplify() {
-    return null;
+  Fraction apply(Fraction v1, Fraction v2) {
+    return v1.multiply(v2);
+  }
+
+  @Override
+  BasicExpr create(Expr t1, Expr t2) {
+    return new MultExpr(t1, t2);
+  }
+
+  @Override
+  Expr simplify(Expr t1, Expr t2) {
+    if (isConst(t1, 0) || isConst(t2, 0)) {
+      return ConstExpr.ZERO;
+    }
+    if (isConst(t1, 1)) {
+      return t2;
+    }
+    if (isConst(t2, 1)) {
+      return t1;
+    }
+    //Numeric factors go first, and are merged with the one of the other
+    //term: a * (b * x) = (ab) * x
+    if (valueOf(t2) != null && valueOf(t1) == null) {
+      return t2.multiply(t1).simplify();
+    }
+    if (valueOf(t1) != null && t2 instanceof MultExpr) {
+      Expr coef = ((MultExpr) t2).getTerm1();
+      if (valueOf(coef) != null) {
+        Expr merged = t1.multiply(coef).simplify();
+        if (valueOf(merged) != null) {
+          return merged.multiply(((MultExpr) t2).getTerm2()).simplify();
+        }
+      }
+    }
+    //x * x = x^2
+    if (t1 == t2) {
+      return ExprTable.intern(new PowExpr(t1, ConstExpr.valueOf(2)));
+    }
+    return create(t1, t2);
   }
 
   @Override
-  public Expr eval() {
-    return null;
+  String symbol() {
+    return "*";
   }
 }
@@ -0,0 +1,305 @@
+package expr;
+
+import fraction.DivisionByZeroException;
+import fraction.Fraction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class Polynomial {
+  //Sparse multivariate polynomial with exact coefficients, in normal form:
+  //a map from each monomial to its non-zero coefficient. Two polynomials are
+  //equal iff they have the same value, so this is the canonical form used to
+  //expand and compare expressions. Immutable
+  public static final Polynomial ZERO = new Polynomial(new HashMap<>());
+  public static final Polynomial ONE = constant(Fraction.valueOf(1));
+
+  private final Map<Monomial, Fraction> terms;
+
+  private Polynomial(Map<Monomial, Fraction> terms) {
+    //Pre: no coefficient is zero. The map is kept, not copied
+    this.terms = terms;
+  }
+
+  public static Polynomial constant(Fraction c) {
+    return monomial(Monomial.ONE, c);
+  }
+
+  public static Polynomial variable(VariableExpr var) {
+    return monomial(Monomial.of(var), Fraction.valueOf(1));
+  }
+
+  public static Polynomial monomial(Monomial m, Fraction c) {
+    Map<Monomial, Fraction> terms = new HashMap<>();
+    if (!c.isZero()) {
+      terms.put(m, c);
+    }
+    return new Polynomial(terms);
+  }
+
+  public static Polynomial of(Expr e) {
+    //Expands e, which can't divide by anything but numbers or have powers
+    //other than non-negative integers
+    RationalFunction f = RationalFunction.of(e);
+    if (!f.isPolynomial()) {
+      throw new IllegalArgumentException(e + " isn't a polynomial");
+    }
+    return f.numerator();
+  }
+
+  public int nTerms() {
+    return terms.size();
+  }
+
+  public boolean isZero() {
+    return terms.isEmpty();
+  }
+
+  public boolean isConstant() {
+    return terms.isEmpty() || terms.size() == 1
+        && terms.containsKey(Monomial.ONE);
+  }
+
+  public Fraction coefficient(Monomial m) {
+    return terms.getOrDefault(m, Fraction.valueOf(0));
+  }
+
+  public Map<Monomial, Fraction> terms() {
+    return Collections.unmodifiableMap(terms);
+  }
+
+  public int degree() {
+    //Total degree, -1 for the zero polynomial
+    int degree = -1;
+    for (Monomial m : terms.keySet()) {
+      degree = Math.max(degree, m.degree());
+    }
+    return degree;
+  }
+
+  public Monomial leadingMonomial() {
+    //Largest monomial in graded lexicographic order, null if zero
+    Monomial lead = null;
+    for (Monomial m : terms.keySet()) {
+      if (lead == null || m.compareTo(lead) < 0) {
+        lead = m;
+      }
+    }
+    return lead;
+  }
+
+  public Polynomial add(Polynomial other) {
+    return combine(other, false);
+  }
+
+  public Polynomial subtract(Polynomial other) {
+    return combine(other, true);
+  }
+
+  private Polynomial combine(Polynomial other, boolean subtract) {
+    //Copies the larger map and adds the terms of the smaller one into it
+    boolean swap = other.terms.size() > terms.size();
+    Map<Monomial, Fraction> res = new HashMap<>(swap ? other.terms : terms);
+    Map<Monomial, Fraction> small = swap ? terms : other.terms;
+    //With swapped operands, a - b is computed as -(b - a)
+    for (Map.Entry<Monomial, Fraction> t : small.entrySet()) {
+      addTerm(res, t.getKey(), subtract ? t.getValue().negate()
+          : t.getValue());
+    }
+    Polynomial p = new Polynomial(res);
+    return swap && subtract ? p.negate() : p;
+  }
+
+  public Polynomial negate() {
+    return scale(Fraction.valueOf(-1));
+  }
+
+  public Polynomial scale(Fraction k) {
+    if (k.isZero()) {
+      return ZERO;
+    }
+    Map<Monomial, Fraction> res = new HashMap<>(terms.size() * 2);
+    for (Map.Entry<Monomial, Fraction> t : terms.entrySet()) {
+      res.put(t.getKey(), t.getValue().multiply(k));
+    }
+    return new Polynomial(res);
+  }
+
+  public Polynomial multiply(Polynomial other) {
+    //Every pair of terms, merged by monomial as they are produced
+    if (isZero() || other.isZero()) {
+      return ZERO;
+    }
+    Map<Monomial, Fraction> res =
+        new HashMap<>(2 * terms.size() * other.terms.size());
+    for (Map.Entry<Monomial, Fraction> t1 : terms.entrySet()) {
+      for (Map.Entry<Monomial, Fraction> t2 : other.terms.entrySet()) {
+        Monomial m = t1.getKey().multiply(t2.getKey());
+        Fraction prev = res.get(m);
+        Fraction c = prev == null
+            ? t1.getValue().multiply(t2.getValue())
+            : prev.addProduct(t1.getValue(), t2.getValue());
+        res.put(m, c);
+      }
+    }
+    res.values().removeIf(Fraction::isZero);
+    return new Polynomial(res);
+  }
+
+  public Polynomial pow(int n) {
+    //Square and multiply
+    if (n < 0) {
+      throw new IllegalArgumentException("Negative power of a polynomial");
+    }
+    Polynomial res = ONE;
+    Polynomial base = this;
+    while (n > 0) {
+      if ((n & 1) == 1) {
+        res = res.multiply(base);
+      }
+      n >>= 1;
+      if (n > 0) {
+        base = base.multiply(base);
+      }
+    }
+    return res;
+  }
+
+  public Polynomial[] divide(Polynomial divisor) {
+    //Multivariate division by the leading term of divisor. Returns
+    //{quotient, remainder}, with this = quotient * divisor + remainder and
+    //no term of remainder divisible by the leading monomial of divisor
+    if (divisor.isZero()) {
+      throw new DivisionByZeroException();
+    }
+    Monomial lead = divisor.leadingMonomial();
+    Fraction leadInv = divisor.terms.get(lead).reciprocal();
+    //Largest monomial first
+    TreeMap<Monomial, Fraction> rest = new TreeMap<>(terms);
+    Map<Monomial, Fraction> quotient = new HashMap<>();
+    Map<Monomial, Fraction> remainder = new HashMap<>();
+    while (!rest.isEmpty()) {
+      Map.Entry<Monomial, Fraction> t = rest.pollFirstEntry();
+      if (!lead.divides(t.getKey())) {
+        remainder.put(t.getKey(), t.getValue());
+        continue;
+      }
+      Monomial qm = t.getKey().divide(lead);
+      Fraction qc = t.getValue().multiply(leadInv);
+      quotient.put(qm, qc);
+      //Subtract qc * qm * divisor, whose leading term cancels t
+      Fraction minusQc = qc.negate();
+      for (Map.Entry<Monomial, Fraction> d : divisor.terms.entrySet()) {
+        if (!d.getKey().equals(lead)) {
+          Monomial m = qm.multiply(d.getKey());
+          Fraction prev = rest.get(m);
+          Fraction c = (prev == null ? Fraction.valueOf(0) : prev)
+              .addProduct(minusQc, d.getValue());
+          if (c.isZero()) {
+            rest.remove(m);
+          } else {
+            rest.put(m, c);
+          }
+        }
+      }
+    }
+    return new Polynomial[]{new Polynomial(quotient),
+        new Polynomial(remainder)};
+  }
+
+  Monomial monomialContent() {
+    //Greatest monomial dividing every term, ONE if zero
+    Monomial gcd = null;
+    for (Monomial m : terms.keySet()) {
+      gcd = gcd == null ? m : gcd.gcd(m);
+    }
+    return gcd == null ? Monomial.ONE : gcd;
+  }
+
+  Polynomial divideMonomial(Monomial m) {
+    //Pre: m divides every term
+    if (m.equals(Monomial.ONE)) {
+      return this;
+    }
+    Map<Monomial, Fraction> res = new HashMap<>(terms.size() * 2);
+    for (Map.Entry<Monomial, Fraction> t : terms.entrySet()) {
+      res.put(t.getKey().divide(m), t.getValue());
+    }
+    return new Polynomial(res);
+  }
+
+  private static void addTerm(Map<Monomial, Fraction> terms, Monomial m,
+                              Fraction c) {
+    Fraction prev = terms.get(m);
+    Fraction sum = prev == null ? c : prev.add(c);
+    if (sum.isZero()) {
+      terms.remove(m);
+    } else {
+      terms.put(m, sum);
+    }
+  }
+
+  public Expr toExpr() {
+    //Sum of coefficient * monomial, largest monomial first
+    if (isZero()) {
+      return ConstExpr.ZERO;
+    }
+    List<Monomial> monomials = new ArrayList<>(terms.keySet());
+    Collections.sort(monomials);
+    Expr res = null;
+    for (Monomial m : monomials) {
+      Expr term = termExpr(m, terms.get(m));
+      res = res == null ? term : res.add(term);
+    }
+    return res;
+  }
+
+  private static Expr termExpr(Monomial m, Fraction c) {
+    Expr coef = BasicExpr.constant(c);
+    if (coef == null) {
+      throw new ArithmeticException("Coefficient " + c + " doesn't fit in " +
+          "int constants");
+    }
+    if (m.equals(Monomial.ONE)) {
+      return coef;
+    }
+    return c.equals(Fraction.valueOf(1)) ? m.toExpr()
+        : coef.multiply(m.toExpr());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Polynomial && terms.equals(((Polynomial) o).terms);
+  }
+
+  @Override
+  public int hashCode() {
+    return terms.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    //Same order as toExpr(), but also for coefficients which don't fit in
+    //int constants
+    if (isZero()) {
+      return "0";
+    }
+    List<Monomial> monomials = new ArrayList<>(terms.keySet());
+    Collections.sort(monomials);
+    StringBuilder sb = new StringBuilder();
+    for (Monomial m : monomials) {
+      if (sb.length() > 0) {
+        sb.append(" + ");
+      }
+      sb.append(terms.get(m));
+      if (!m.equals(Monomial.ONE)) {
+        sb.append('*').append(m);
+      }
+    }
+    return sb.toString();
+  }
+}
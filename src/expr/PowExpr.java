@@ -1,24 +1,90 @@
 package expr;
 
+import fraction.Fraction;
+
 public class PowExpr extends BasicExpr {
+  //Only integer powers are ever computed. Larger ones couldn't be written
+  //with int constants anyway, unless the base is 0 or +-1
+  private static final int MAX_EXPONENT = 31;
+
   public PowExpr(Expr term1, Expr term2) {
     super(term1, term2);
   }
 
   @Override
-  public Expr simplify() {
-    if (getTerm2().eval() instanceof ConstExpr &&
-        ((ConstExpr) getTerm2()).getValue() == 1) {
-      return getTerm1();
-    } else if (getTerm2().eval() instanceof ConstExpr &&
-        ((ConstExpr) getTerm2().eval()).getValue() == 0) {
+  Fraction apply(Fraction base, Fraction exponent) {
+    if (!exponent.isLong() || exponent.getDenom() != 1) {
+      return null;
+    }
+    long n = exponent.getNum();
+    if (n == 0) {
+      return Fraction.valueOf(1);
+    }
+    if (base.isZero()) {
+      return n > 0 ? base : null;
+    }
+    if (n < 0) {
+      base = base.reciprocal();
+      n = -n;
+    }
+    if (base.equals(Fraction.valueOf(1))) {
+      return base;
+    }
+    if (base.equals(Fraction.valueOf(-1))) {
+      return n % 2 == 0 ? base.negate() : base;
+    }
+    if (n > MAX_EXPONENT) {
+      return null;
+    }
+    //Square and multiply
+    Fraction res = Fraction.valueOf(1);
+    while (n > 0) {
+      if ((n & 1) == 1) {
+        res = res.multiply(base);
+      }
+      n >>= 1;
+      if (n > 0) {
+        base = base.multiply(base);
+      }
+    }
+    return res;
+  }
+
+  @Override
+  BasicExpr create(Expr t1, Expr t2) {
+    return new PowExpr(t1, t2);
+  }
+
+  @Override
+  Expr simplify(Expr t1, Expr t2) {
+    if (isConst(t2, 1)) {
+      return t1;
+    }
+    if (isConst(t2, 0)) {
       return ConstExpr.ONE;
     }
-    return null;
+    if (isConst(t1, 1)) {
+      return ConstExpr.ONE;
+    }
+    //(x^a)^b = x^(ab) for integers a and b
+    if (t1 instanceof PowExpr && isInteger(t2)
+        && isInteger(((PowExpr) t1).getTerm2())) {
+      Expr exponent = ((PowExpr) t1).getTerm2().multiply(t2).simplify();
+      if (valueOf(exponent) != null) {
+        return ExprTable.intern(new PowExpr(((PowExpr) t1).getTerm1(),
+            exponent)).simplify();
+      }
+    }
+    return create(t1, t2);
+  }
+
+  private static boolean isInteger(Expr e) {
+    Fraction value = valueOf(e);
+    return value != null && value.isLong() && value.getDenom() == 1;
   }
 
   @Override
-  public Expr eval() {
-    return null;
+  String symbol() {
+    return "^";
   }
 }
@@ -0,0 +1,219 @@
+package expr;
+
+import fraction.DivisionByZeroException;
+import fraction.Fraction;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public final class RationalFunction {
+  //Quotient of two polynomials. Kept reduced as far as is cheap: the
+  //denominator's leading coefficient is 1, monomial factors common to both
+  //sides are cancelled, and so is either side when it divides the other
+  //exactly. There is no multivariate polynomial gcd, so other common factors
+  //can remain and equal functions may look different; polynomials (constant
+  //denominators) are always in normal form. Immutable
+  private final Polynomial num;
+  private final Polynomial denom;
+
+  private RationalFunction(Polynomial num, Polynomial denom) {
+    //Pre: already reduced
+    this.num = num;
+    this.denom = denom;
+  }
+
+  public static RationalFunction of(Polynomial p) {
+    return new RationalFunction(p, Polynomial.ONE);
+  }
+
+  public static RationalFunction of(Polynomial num, Polynomial denom) {
+    if (denom.isZero()) {
+      throw new DivisionByZeroException();
+    }
+    if (num.isZero()) {
+      return of(Polynomial.ZERO);
+    }
+    //Cancel common monomial factors
+    Monomial common = num.monomialContent().gcd(denom.monomialContent());
+    num = num.divideMonomial(common);
+    denom = denom.divideMonomial(common);
+    //Cancel a side dividing the other
+    if (!denom.isConstant()) {
+      Polynomial[] qr = num.divide(denom);
+      if (qr[1].isZero()) {
+        num = qr[0];
+        denom = Polynomial.ONE;
+      } else {
+        qr = denom.divide(num);
+        if (qr[1].isZero()) {
+          denom = qr[0];
+          num = Polynomial.ONE;
+        }
+      }
+    }
+    //Make the denominator's leading coefficient 1
+    Fraction lead = denom.coefficient(denom.leadingMonomial());
+    if (!lead.equals(Fraction.valueOf(1))) {
+      Fraction inv = lead.reciprocal();
+      num = num.scale(inv);
+      denom = denom.scale(inv);
+    }
+    return new RationalFunction(num, denom);
+  }
+
+  public static RationalFunction of(Expr e) {
+    //Converts e to a quotient of expanded polynomials. Shared subexpressions
+    //are converted once. Powers must be integers
+    return of(e, new IdentityHashMap<>());
+  }
+
+  private static RationalFunction of(Expr root,
+                                     Map<Expr, RationalFunction> converted) {
+    //Post-order with an explicit stack: a node is converted once its terms
+    //are, so deep expressions, such as long sums built in a loop, don't
+    //overflow the call stack
+    Deque<Expr> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      Expr e = stack.peek();
+      if (converted.containsKey(e)) {
+        stack.pop();
+        continue;
+      }
+      if (e instanceof BasicExpr) {
+        //Exponents are evaluated rather than converted
+        Expr t1 = ((BasicExpr) e).getTerm1();
+        Expr t2 = e instanceof PowExpr ? t1 : ((BasicExpr) e).getTerm2();
+        boolean ready = true;
+        if (!converted.containsKey(t2)) {
+          stack.push(t2);
+          ready = false;
+        }
+        if (t2 != t1 && !converted.containsKey(t1)) {
+          stack.push(t1);
+          ready = false;
+        }
+        if (!ready) {
+          continue;
+        }
+      }
+      stack.pop();
+      converted.put(e, convert(e, converted));
+    }
+    return converted.get(root);
+  }
+
+  private static RationalFunction convert(Expr e,
+                                          Map<Expr, RationalFunction> done) {
+    //Pre: the terms of e have been converted
+    RationalFunction res = null;
+    if (e instanceof ConstExpr) {
+      res = of(Polynomial.constant(
+          Fraction.valueOf(((ConstExpr) e).getValue())));
+    } else if (e instanceof VariableExpr) {
+      res = of(Polynomial.variable((VariableExpr) e));
+    } else if (e instanceof PowExpr) {
+      Fraction exponent = BasicExpr.valueOf(((PowExpr) e).getTerm2().eval());
+      if (exponent == null || !exponent.isLong() || exponent.getDenom() != 1
+          || exponent.getNum() != (int) exponent.getNum()) {
+        throw new IllegalArgumentException("Only integer powers can be " +
+            "expanded, not " + e);
+      }
+      res = done.get(((PowExpr) e).getTerm1())
+          .pow((int) exponent.getNum());
+    } else if (e instanceof BasicExpr) {
+      RationalFunction f1 = done.get(((BasicExpr) e).getTerm1());
+      RationalFunction f2 = done.get(((BasicExpr) e).getTerm2());
+      if (e instanceof AddExpr) {
+        res = f1.add(f2);
+      } else if (e instanceof SubExpr) {
+        res = f1.subtract(f2);
+      } else if (e instanceof MultExpr) {
+        res = f1.multiply(f2);
+      } else if (e instanceof FractionExpr) {
+        res = f1.divide(f2);
+      }
+    }
+    if (res == null) {
+      throw new IllegalArgumentException("Unknown expression " + e);
+    }
+    return res;
+  }
+
+  public Polynomial numerator() {
+    return num;
+  }
+
+  public Polynomial denominator() {
+    return denom;
+  }
+
+  public boolean isPolynomial() {
+    //Denominators are monic, so a constant one is 1
+    return denom.isConstant();
+  }
+
+  public RationalFunction add(RationalFunction other) {
+    if (denom.equals(other.denom)) {
+      return of(num.add(other.num), denom);
+    }
+    return of(num.multiply(other.denom).add(other.num.multiply(denom)),
+        denom.multiply(other.denom));
+  }
+
+  public RationalFunction subtract(RationalFunction other) {
+    return add(other.negate());
+  }
+
+  public RationalFunction negate() {
+    return new RationalFunction(num.negate(), denom);
+  }
+
+  public RationalFunction multiply(RationalFunction other) {
+    return of(num.multiply(other.num), denom.multiply(other.denom));
+  }
+
+  public RationalFunction divide(RationalFunction other) {
+    return multiply(other.reciprocal());
+  }
+
+  public RationalFunction reciprocal() {
+    return of(denom, num);
+  }
+
+  public RationalFunction pow(int n) {
+    //Negative powers are powers of the reciprocal
+    if (n < 0) {
+      return reciprocal().pow(-n);
+    }
+    //Powers of the reduced sides share no monomial factor and the
+    //denominator stays monic, so they are kept without reducing again
+    return new RationalFunction(num.pow(n), denom.pow(n));
+  }
+
+  public Expr toExpr() {
+    return isPolynomial() ? num.toExpr() : num.toExpr().divide(denom.toExpr());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof RationalFunction)) {
+      return false;
+    }
+    RationalFunction other = (RationalFunction) o;
+    return num.equals(other.num) && denom.equals(other.denom);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * num.hashCode() + denom.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return isPolynomial() ? num.toString()
+        : "(" + num + ") / (" + denom + ")";
+  }
+}
@@ -1,17 +1,38 @@
 package expr;
 
+import fraction.Fraction;
+
 public class SubExpr extends BasicExpr {
   public SubExpr(Expr term1, Expr term2) {
     super(term1, term2);
   }
 
   @Override
-  public Expr simplify() {
-    return null;
+  Fraction apply(Fraction v1, Fraction v2) {
+    return v1.subtract(v2);
+  }
+
+  @Override
+  BasicExpr create(Expr t1, Expr t2) {
+    return new SubExpr(t1, t2);
+  }
+
+  @Override
+  Expr simplify(Expr t1, Expr t2) {
+    if (isConst(t2, 0)) {
+      return t1;
+    }
+    if (t1 == t2) {
+      return ConstExpr.ZERO;
+    }
+    if (isConst(t1, 0)) {
+      return t2.negate().simplify();
+    }
+    return create(t1, t2);
   }
 
   @Override
-  public Expr eval() {
-    return null;
+  String symbol() {
+    return "-";
   }
 }
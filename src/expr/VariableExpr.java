@@ -7,43 +7,67 @@ public class VariableExpr implements Expr {
     this.var = var;
   }
 
+  public static VariableExpr valueOf(String var) {
+    //The shared variable with the given name
+    return ExprTable.intern(new VariableExpr(var));
+  }
+
+  public String getName() {
+    return var;
+  }
+
   @Override
   public Expr add(Expr other) {
-    return new AddExpr(this, other);
+    return ExprTable.intern(new AddExpr(this, other));
   }
 
   @Override
   public Expr subtract(Expr other) {
-    return new SubExpr(this, other);
+    return ExprTable.intern(new SubExpr(this, other));
   }
 
   @Override
   public Expr multiply(Expr other) {
-    return new MultExpr(this, other);
+    return ExprTable.intern(new MultExpr(this, other));
   }
 
   @Override
   public Expr divide(Expr other) {
-    return new FractionExpr(this, other);
+    return ExprTable.intern(new FractionExpr(this, other));
   }
 
   @Override
   public Expr reciprocal() {
-    return new FractionExpr(new ConstExpr(1), this);
+    return ExprTable.intern(new FractionExpr(ConstExpr.ONE, this));
   }
 
   @Override
   public Expr negate() {
-    return new MultExpr(new ConstExpr(-1), this);
+    return ExprTable.intern(new MultExpr(ConstExpr.NEGONE, this));
   }
 
   @Override
   public Expr simplify() {
-    return this;
+    return ExprTable.intern(this);
   }
 
   @Override
   public Expr eval() {
-    return this;
+    return ExprTable.intern(this);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof VariableExpr && var.equals(((VariableExpr) o).var);
+  }
+
+  @Override
+  public int hashCode() {
+    return var.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return var;
   }
 }
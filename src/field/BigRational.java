@@ -0,0 +1,117 @@
+package field;
+
+import fraction.DivisionByZeroException;
+import fraction.Fraction;
+
+import java.math.BigInteger;
+
+public final class BigRational {
+  //Rational of arbitrary precision, always reduced with a positive
+  //denominator. Unlike Fraction it has no long fast path, so its cost grows
+  //smoothly with the size of the numbers. Immutable
+  public static final BigRational ZERO =
+      new BigRational(BigInteger.ZERO, BigInteger.ONE);
+  public static final BigRational ONE =
+      new BigRational(BigInteger.ONE, BigInteger.ONE);
+
+  private final BigInteger num;
+  private final BigInteger denom;
+
+  private BigRational(BigInteger num, BigInteger denom) {
+    //Pre: reduced, denom > 0
+    this.num = num;
+    this.denom = denom;
+  }
+
+  public static BigRational valueOf(BigInteger num, BigInteger denom) {
+    if (denom.signum() == 0) {
+      throw new DivisionByZeroException();
+    }
+    if (num.signum() == 0) {
+      return ZERO;
+    }
+    if (denom.signum() < 0) {
+      num = num.negate();
+      denom = denom.negate();
+    }
+    BigInteger gcd = num.gcd(denom);
+    if (!gcd.equals(BigInteger.ONE)) {
+      num = num.divide(gcd);
+      denom = denom.divide(gcd);
+    }
+    return new BigRational(num, denom);
+  }
+
+  public static BigRational valueOf(long n) {
+    return n == 0 ? ZERO : new BigRational(BigInteger.valueOf(n),
+        BigInteger.ONE);
+  }
+
+  public static BigRational valueOf(Fraction f) {
+    //Fractions are already reduced
+    return f.isZero() ? ZERO : new BigRational(f.getBigNum(), f.getBigDenom());
+  }
+
+  public BigInteger getNum() {
+    return num;
+  }
+
+  public BigInteger getDenom() {
+    return denom;
+  }
+
+  public int signum() {
+    return num.signum();
+  }
+
+  public boolean isZero() {
+    return num.signum() == 0;
+  }
+
+  public BigRational add(BigRational other) {
+    if (denom.equals(other.denom)) {
+      return valueOf(num.add(other.num), denom);
+    }
+    return valueOf(num.multiply(other.denom).add(other.num.multiply(denom)),
+        denom.multiply(other.denom));
+  }
+
+  public BigRational subtract(BigRational other) {
+    return add(other.negate());
+  }
+
+  public BigRational multiply(BigRational other) {
+    return valueOf(num.multiply(other.num), denom.multiply(other.denom));
+  }
+
+  public BigRational divide(BigRational other) {
+    return valueOf(num.multiply(other.denom), denom.multiply(other.num));
+  }
+
+  public BigRational negate() {
+    return new BigRational(num.negate(), denom);
+  }
+
+  public Fraction toFraction() {
+    return Fraction.valueOf(num, denom);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof BigRational)) {
+      return false;
+    }
+    BigRational other = (BigRational) o;
+    return num.equals(other.num) && denom.equals(other.denom);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * num.hashCode() + denom.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return denom.equals(BigInteger.ONE) ? num.toString() : num + "/" + denom;
+  }
+}
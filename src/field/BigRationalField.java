@@ -0,0 +1,67 @@
+package field;
+
+import fraction.Fraction;
+
+final class BigRationalField implements Field<BigRational> {
+  //Exact rationals of arbitrary precision
+
+  @Override
+  public BigRational zero() {
+    return BigRational.ZERO;
+  }
+
+  @Override
+  public BigRational one() {
+    return BigRational.ONE;
+  }
+
+  @Override
+  public BigRational add(BigRational a, BigRational b) {
+    return a.add(b);
+  }
+
+  @Override
+  public BigRational subtract(BigRational a, BigRational b) {
+    return a.subtract(b);
+  }
+
+  @Override
+  public BigRational multiply(BigRational a, BigRational b) {
+    return a.multiply(b);
+  }
+
+  @Override
+  public BigRational divide(BigRational a, BigRational b) {
+    return a.divide(b);
+  }
+
+  @Override
+  public BigRational negate(BigRational a) {
+    return a.negate();
+  }
+
+  @Override
+  public boolean isZero(BigRational a) {
+    return a.isZero();
+  }
+
+  @Override
+  public BigRational valueOf(Fraction f) {
+    return BigRational.valueOf(f);
+  }
+
+  @Override
+  public FieldMatrix<BigRational> matrix(int nRows, int nCols) {
+    return new BigRationalMatrix(this, nRows, nCols);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof BigRationalField;
+  }
+
+  @Override
+  public int hashCode() {
+    return BigRationalField.class.hashCode();
+  }
+}
@@ -0,0 +1,183 @@
+package field;
+
+import javax.naming.OperationNotSupportedException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+final class BigRationalMatrix extends FieldMatrix<BigRational> {
+  //Row-major numerators and denominators as BigIntegers, so row operations
+  //work on the integers directly and reduce each entry once, instead of
+  //creating a BigRational for every intermediate product
+  private final BigRationalField field;
+  private final BigInteger[] nums;
+  private final BigInteger[] denoms;
+
+  BigRationalMatrix(BigRationalField field, int nRows, int nCols) {
+    super(nRows, nCols);
+    this.field = field;
+    this.nums = new BigInteger[nRows * nCols];
+    this.denoms = new BigInteger[nRows * nCols];
+    Arrays.fill(nums, BigInteger.ZERO);
+    Arrays.fill(denoms, BigInteger.ONE);
+  }
+
+  private void setReduced(int idx, BigInteger num, BigInteger denom) {
+    //Pre: denom > 0
+    if (num.signum() == 0) {
+      nums[idx] = BigInteger.ZERO;
+      denoms[idx] = BigInteger.ONE;
+      return;
+    }
+    BigInteger gcd = num.gcd(denom);
+    if (!gcd.equals(BigInteger.ONE)) {
+      num = num.divide(gcd);
+      denom = denom.divide(gcd);
+    }
+    nums[idx] = num;
+    denoms[idx] = denom;
+  }
+
+  @Override
+  public Field<BigRational> field() {
+    return field;
+  }
+
+  @Override
+  public BigRational get(int r, int c) {
+    int idx = r * nCols + c;
+    return BigRational.valueOf(nums[idx], denoms[idx]);
+  }
+
+  @Override
+  public void set(int r, int c, BigRational value) {
+    int idx = r * nCols + c;
+    nums[idx] = value.getNum();
+    denoms[idx] = value.getDenom();
+  }
+
+  @Override
+  public FieldMatrix<BigRational> copy() {
+    BigRationalMatrix res = new BigRationalMatrix(field, nRows, nCols);
+    System.arraycopy(nums, 0, res.nums, 0, nums.length);
+    System.arraycopy(denoms, 0, res.denoms, 0, denoms.length);
+    return res;
+  }
+
+  @Override
+  public FieldMatrix<BigRational> multiply(FieldMatrix<BigRational> other)
+      throws OperationNotSupportedException {
+    if (other.nRows != nCols) {
+      throw new OperationNotSupportedException("Adjacent matrix" +
+          " dimensions don't match");
+    }
+    checkSameField(other);
+    BigRationalMatrix b = (BigRationalMatrix) other;
+    BigRationalMatrix res = new BigRationalMatrix(field, nRows, other.nCols);
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < other.nCols; j++) {
+        //Unreduced running sum sumNum / sumDenom, reduced once at the end
+        BigInteger sumNum = BigInteger.ZERO;
+        BigInteger sumDenom = BigInteger.ONE;
+        for (int k = 0; k < nCols; k++) {
+          int x = i * nCols + k;
+          int y = k * other.nCols + j;
+          if (nums[x].signum() == 0 || b.nums[y].signum() == 0) {
+            continue;
+          }
+          BigInteger pNum = nums[x].multiply(b.nums[y]);
+          BigInteger pDenom = denoms[x].multiply(b.denoms[y]);
+          if (pDenom.equals(sumDenom)) {
+            sumNum = sumNum.add(pNum);
+          } else {
+            sumNum = sumNum.multiply(pDenom).add(pNum.multiply(sumDenom));
+            sumDenom = sumDenom.multiply(pDenom);
+          }
+        }
+        res.setReduced(i * other.nCols + j, sumNum, sumDenom);
+      }
+    }
+    return res;
+  }
+
+  @Override
+  protected int pivotRow(int fromRow, int col) {
+    for (int r = fromRow; r < nRows; r++) {
+      if (nums[r * nCols + col].signum() != 0) {
+        return r;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  protected void swapRows(int r1, int r2) {
+    BigInteger temp;
+    for (int j = 0; j < nCols; j++) {
+      int i1 = r1 * nCols + j;
+      int i2 = r2 * nCols + j;
+      temp = nums[i1];
+      nums[i1] = nums[i2];
+      nums[i2] = temp;
+      temp = denoms[i1];
+      denoms[i1] = denoms[i2];
+      denoms[i2] = temp;
+    }
+  }
+
+  @Override
+  protected BigRational normalizeRow(int r, int col) {
+    int row = r * nCols;
+    BigRational pivot = BigRational.valueOf(nums[row + col],
+        denoms[row + col]);
+    //Multiply by denom / num, keeping the denominator positive
+    BigInteger invNum = pivot.signum() < 0 ? pivot.getDenom().negate()
+        : pivot.getDenom();
+    BigInteger invDenom = pivot.getNum().abs();
+    for (int j = col + 1; j < nCols; j++) {
+      int idx = row + j;
+      if (nums[idx].signum() != 0) {
+        setReduced(idx, nums[idx].multiply(invNum),
+            denoms[idx].multiply(invDenom));
+      }
+    }
+    nums[row + col] = BigInteger.ONE;
+    denoms[row + col] = BigInteger.ONE;
+    return pivot;
+  }
+
+  @Override
+  protected void eliminate(int target, int pivot, int col) {
+    int t = target * nCols;
+    int p = pivot * nCols;
+    BigInteger fNum = nums[t + col];
+    if (fNum.signum() == 0) {
+      return;
+    }
+    BigInteger fDenom = denoms[t + col];
+    for (int j = col + 1; j < nCols; j++) {
+      if (nums[p + j].signum() == 0) {
+        continue;
+      }
+      //t - f * p = (tNum * fDenom * pDenom - fNum * pNum * tDenom) /
+      //(tDenom * fDenom * pDenom)
+      BigInteger pDenom = fDenom.multiply(denoms[p + j]);
+      BigInteger num = nums[t + j].multiply(pDenom)
+          .subtract(fNum.multiply(nums[p + j]).multiply(denoms[t + j]));
+      setReduced(t + j, num, denoms[t + j].multiply(pDenom));
+    }
+    nums[t + col] = BigInteger.ZERO;
+    denoms[t + col] = BigInteger.ONE;
+  }
+
+  @Override
+  protected void copyColumns(FieldMatrix<BigRational> src, int srcCol,
+                             int destCol, int count) {
+    BigRationalMatrix s = (BigRationalMatrix) src;
+    for (int r = 0; r < nRows; r++) {
+      System.arraycopy(s.nums, r * s.nCols + srcCol, nums, r * nCols + destCol,
+          count);
+      System.arraycopy(s.denoms, r * s.nCols + srcCol, denoms,
+          r * nCols + destCol, count);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package field;
+
+import fraction.DivisionByZeroException;
+import fraction.Fraction;
+
+final class DoubleField implements Field<Double> {
+  //Floating point approximation of the rationals. Values within tolerance
+  //of zero count as zero, both here and when choosing pivots
+  private final double tolerance;
+
+  DoubleField(double tolerance) {
+    if (!(tolerance >= 0)) {
+      throw new IllegalArgumentException("Tolerance must be non-negative");
+    }
+    this.tolerance = tolerance;
+  }
+
+  double tolerance() {
+    return tolerance;
+  }
+
+  @Override
+  public Double zero() {
+    return 0.0;
+  }
+
+  @Override
+  public Double one() {
+    return 1.0;
+  }
+
+  @Override
+  public Double add(Double a, Double b) {
+    return a + b;
+  }
+
+  @Override
+  public Double subtract(Double a, Double b) {
+    return a - b;
+  }
+
+  @Override
+  public Double multiply(Double a, Double b) {
+    return a * b;
+  }
+
+  @Override
+  public Double divide(Double a, Double b) {
+    if (isZero(b)) {
+      throw new DivisionByZeroException();
+    }
+    return a / b;
+  }
+
+  @Override
+  public Double negate(Double a) {
+    return -a;
+  }
+
+  @Override
+  public boolean isZero(Double a) {
+    return Math.abs(a) <= tolerance;
+  }
+
+  @Override
+  public Double valueOf(Fraction f) {
+    return f.isLong() ? (double) f.getNum() / f.getDenom()
+        : f.getBigNum().doubleValue() / f.getBigDenom().doubleValue();
+  }
+
+  @Override
+  public FieldMatrix<Double> matrix(int nRows, int nCols) {
+    return new DoubleMatrix(this, nRows, nCols);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof DoubleField
+        && ((DoubleField) o).tolerance == tolerance;
+  }
+
+  @Override
+  public int hashCode() {
+    return Double.hashCode(tolerance);
+  }
+}
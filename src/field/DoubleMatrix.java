@@ -0,0 +1,125 @@
+package field;
+
+import javax.naming.OperationNotSupportedException;
+
+final class DoubleMatrix extends FieldMatrix<Double> {
+  //Row-major double[]. Pivots are chosen by partial pivoting, the largest
+  //entry in absolute value, to keep rounding errors small
+  private final DoubleField field;
+  private final double[] a;
+
+  DoubleMatrix(DoubleField field, int nRows, int nCols) {
+    super(nRows, nCols);
+    this.field = field;
+    this.a = new double[nRows * nCols];
+  }
+
+  @Override
+  public Field<Double> field() {
+    return field;
+  }
+
+  @Override
+  public Double get(int r, int c) {
+    return a[r * nCols + c];
+  }
+
+  @Override
+  public void set(int r, int c, Double value) {
+    a[r * nCols + c] = value;
+  }
+
+  @Override
+  public FieldMatrix<Double> copy() {
+    DoubleMatrix res = new DoubleMatrix(field, nRows, nCols);
+    System.arraycopy(a, 0, res.a, 0, a.length);
+    return res;
+  }
+
+  @Override
+  public FieldMatrix<Double> multiply(FieldMatrix<Double> other)
+      throws OperationNotSupportedException {
+    if (other.nRows != nCols) {
+      throw new OperationNotSupportedException("Adjacent matrix" +
+          " dimensions don't match");
+    }
+    checkSameField(other);
+    double[] b = ((DoubleMatrix) other).a;
+    DoubleMatrix res = new DoubleMatrix(field, nRows, other.nCols);
+    //i-k-j order, so the inner loop runs along rows of b and res
+    for (int i = 0; i < nRows; i++) {
+      for (int k = 0; k < nCols; k++) {
+        double aik = a[i * nCols + k];
+        if (aik == 0) {
+          continue;
+        }
+        int bRow = k * other.nCols;
+        int resRow = i * other.nCols;
+        for (int j = 0; j < other.nCols; j++) {
+          res.a[resRow + j] += aik * b[bRow + j];
+        }
+      }
+    }
+    return res;
+  }
+
+  @Override
+  protected int pivotRow(int fromRow, int col) {
+    int best = -1;
+    double max = field.tolerance();
+    for (int r = fromRow; r < nRows; r++) {
+      double abs = Math.abs(a[r * nCols + col]);
+      if (abs > max) {
+        max = abs;
+        best = r;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  protected void swapRows(int r1, int r2) {
+    double temp;
+    for (int j = 0; j < nCols; j++) {
+      temp = a[r1 * nCols + j];
+      a[r1 * nCols + j] = a[r2 * nCols + j];
+      a[r2 * nCols + j] = temp;
+    }
+  }
+
+  @Override
+  protected Double normalizeRow(int r, int col) {
+    int row = r * nCols;
+    double pivot = a[row + col];
+    double inv = 1 / pivot;
+    for (int j = col + 1; j < nCols; j++) {
+      a[row + j] *= inv;
+    }
+    a[row + col] = 1;
+    return pivot;
+  }
+
+  @Override
+  protected void eliminate(int target, int pivot, int col) {
+    int t = target * nCols;
+    int p = pivot * nCols;
+    double f = a[t + col];
+    if (f == 0) {
+      return;
+    }
+    for (int j = col + 1; j < nCols; j++) {
+      a[t + j] -= f * a[p + j];
+    }
+    a[t + col] = 0;
+  }
+
+  @Override
+  protected void copyColumns(FieldMatrix<Double> src, int srcCol,
+                             int destCol, int count) {
+    double[] b = ((DoubleMatrix) src).a;
+    for (int r = 0; r < nRows; r++) {
+      System.arraycopy(b, r * src.nCols + srcCol, a, r * nCols + destCol,
+          count);
+    }
+  }
+}
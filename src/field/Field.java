@@ -0,0 +1,60 @@
+package field;
+
+import fraction.Fraction;
+import matrix.Matrix;
+
+public interface Field<T> {
+  //Scalar arithmetic of a field, and the factory of its matrices. Scalars
+  //are boxed only at the API boundary: every FieldMatrix keeps its entries
+  //in the cheapest representation for its field, and the row operations of
+  //the algorithms run on that representation directly
+  Field<Double> DOUBLE = new DoubleField(1e-10);
+  Field<Fraction> RATIONAL = new FractionField();
+  Field<BigRational> BIG_RATIONAL = new BigRationalField();
+
+  static Field<Double> doubles(double tolerance) {
+    //Doubles whose absolute value is at most tolerance are taken as zero
+    return new DoubleField(tolerance);
+  }
+
+  static Field<Integer> modular(int p) {
+    //Integers modulo the prime p
+    return new ModularField(p);
+  }
+
+  T zero();
+
+  T one();
+
+  T add(T a, T b);
+
+  T subtract(T a, T b);
+
+  T multiply(T a, T b);
+
+  T divide(T a, T b);
+
+  T negate(T a);
+
+  boolean isZero(T a);
+
+  default T addProduct(T acc, T a, T b) {
+    //acc + a * b
+    return add(acc, multiply(a, b));
+  }
+
+  T valueOf(Fraction f);
+
+  FieldMatrix<T> matrix(int nRows, int nCols);
+
+  default FieldMatrix<T> matrix(Matrix m) {
+    //m with every entry converted to this field
+    FieldMatrix<T> res = matrix(m.nRows(), m.nCols());
+    for (int i = 0; i < m.nRows(); i++) {
+      for (int j = 0; j < m.nCols(); j++) {
+        res.set(i, j, valueOf(m.get(i, j)));
+      }
+    }
+    return res;
+  }
+}
@@ -0,0 +1,175 @@
+package field;
+
+import javax.naming.OperationNotSupportedException;
+
+public abstract class FieldMatrix<T> {
+  //Matrix over a Field. The algorithms (rank, determinant, inverse, solve)
+  //are written once here, in terms of a few row operations which every
+  //representation implements as loops over its own primitive entries.
+  //Matrices are mutable through set(); the algorithms work on copies
+  protected final int nRows;
+  protected final int nCols;
+
+  protected FieldMatrix(int nRows, int nCols) {
+    if (nRows < 0 || nCols < 0) {
+      throw new IllegalArgumentException("Negative matrix dimensions");
+    }
+    this.nRows = nRows;
+    this.nCols = nCols;
+  }
+
+  public int nRows() {
+    return nRows;
+  }
+
+  public int nCols() {
+    return nCols;
+  }
+
+  public abstract Field<T> field();
+
+  public abstract T get(int r, int c);
+
+  public abstract void set(int r, int c, T value);
+
+  public abstract FieldMatrix<T> copy();
+
+  public abstract FieldMatrix<T> multiply(FieldMatrix<T> other)
+      throws OperationNotSupportedException;
+
+  //Row operations. Columns before col are zero in the rows involved, so
+  //they are skipped
+
+  //A row at or below fromRow to take as pivot in column col, -1 if there
+  //is none
+  protected abstract int pivotRow(int fromRow, int col);
+
+  protected abstract void swapRows(int r1, int r2);
+
+  //Divides row r by its entry in column col, which becomes one. Returns the
+  //entry it had
+  protected abstract T normalizeRow(int r, int col);
+
+  //Subtracts row pivot, whose entry in column col is one, times the entry
+  //of row target in column col from row target
+  protected abstract void eliminate(int target, int pivot, int col);
+
+  //Copies count columns of src, starting at srcCol, into this matrix
+  //starting at destCol. src has the same representation and number of rows
+  protected abstract void copyColumns(FieldMatrix<T> src, int srcCol,
+                                      int destCol, int count);
+
+  public static <T> FieldMatrix<T> identity(Field<T> field, int order) {
+    FieldMatrix<T> res = field.matrix(order, order);
+    for (int i = 0; i < order; i++) {
+      res.set(i, i, field.one());
+    }
+    return res;
+  }
+
+  protected void checkSameField(FieldMatrix<T> other) {
+    if (!other.field().equals(field())) {
+      throw new IllegalArgumentException("Matrices are over different " +
+          "fields");
+    }
+  }
+
+  public int rank() {
+    return copy().echelon(nCols, false).rank;
+  }
+
+  public T determinant() throws OperationNotSupportedException {
+    if (nRows != nCols) {
+      throw new OperationNotSupportedException("Non-square matrices don't " +
+          "have a determinant");
+    }
+    Echelon<T> e = copy().echelon(nCols, false);
+    return e.rank < nRows ? field().zero() : e.determinant;
+  }
+
+  public FieldMatrix<T> inverse() throws OperationNotSupportedException {
+    //Gauss-Jordan on [A | I]. Returns null if the matrix is singular
+    if (nRows != nCols) {
+      throw new OperationNotSupportedException("Non-square matrices don't " +
+          "have an inverse");
+    }
+    return solve(identity(field(), nRows));
+  }
+
+  public FieldMatrix<T> solve(FieldMatrix<T> rhs)
+      throws OperationNotSupportedException {
+    //Returns X such that AX = rhs, where A is this matrix, which must be
+    //square. Returns null if A is singular
+    if (nRows != nCols || rhs.nRows != nRows) {
+      throw new OperationNotSupportedException("Matrix dimensions don't " +
+          "match");
+    }
+    checkSameField(rhs);
+    FieldMatrix<T> augmented = field().matrix(nRows, nCols + rhs.nCols);
+    augmented.copyColumns(this, 0, 0, nCols);
+    augmented.copyColumns(rhs, 0, nCols, rhs.nCols);
+    if (augmented.echelon(nCols, true).rank < nRows) {
+      return null;
+    }
+    FieldMatrix<T> res = field().matrix(nRows, rhs.nCols);
+    res.copyColumns(augmented, nCols, 0, rhs.nCols);
+    return res;
+  }
+
+  private Echelon<T> echelon(int nPivotCols, boolean reduced) {
+    //Brings this matrix to row echelon form over its first nPivotCols
+    //columns, with ones as pivots, and zeros above them too if reduced.
+    //The product of the pivots, negated once per row swap, is the
+    //determinant of a square matrix of full rank
+    Field<T> field = field();
+    T determinant = field.one();
+    int row = 0;
+    for (int col = 0; col < nPivotCols && row < nRows; col++) {
+      int pivot = pivotRow(row, col);
+      if (pivot < 0) {
+        continue;
+      }
+      if (pivot != row) {
+        swapRows(pivot, row);
+        determinant = field.negate(determinant);
+      }
+      determinant = field.multiply(determinant, normalizeRow(row, col));
+      for (int r = reduced ? 0 : row + 1; r < nRows; r++) {
+        if (r != row) {
+          eliminate(r, row, col);
+        }
+      }
+      row++;
+    }
+    return new Echelon<>(row, determinant);
+  }
+
+  private static class Echelon<T> {
+    private final int rank;
+    private final T determinant;
+
+    Echelon(int rank, T determinant) {
+      this.rank = rank;
+      this.determinant = determinant;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int r = 0; r < nRows; r++) {
+      sb.append('[');
+      for (int c = 0; c < nCols; c++) {
+        sb.append(get(r, c));
+        if (c < nCols - 1) {
+          sb.append(", ");
+        }
+      }
+      sb.append(']');
+      if (r < nRows - 1) {
+        sb.append('\n');
+      }
+    }
+    return sb.append(']').toString();
+  }
+}
@@ -0,0 +1,118 @@
+package field;
+
+import fraction.Fraction;
+import matrix.Matrix;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FieldTest {
+  private final Fraction f1 = new Fraction(1);
+  private final Fraction f2 = new Fraction(2);
+  private final Fraction f3 = new Fraction(3);
+  private final Fraction f4 = new Fraction(4);
+  //Determinant 900
+  private final Matrix m1 = new Matrix(new Fraction[][]{{f1, f2, f3, f4},
+      {f2.negate(), f1, f4.negate(), f3},
+      {f3, f4.negate(), f1.negate(), f2},
+      {f4, f3, f2.negate(), f1.negate()}});
+
+  @Test
+  public void determinantTest() throws Exception {
+    assertEquals(m1.over(Field.RATIONAL).determinant(), new Fraction(900));
+    assertEquals(m1.over(Field.BIG_RATIONAL).determinant(),
+        BigRational.valueOf(900));
+    assertEquals(m1.over(Field.DOUBLE).determinant(), 900, 1e-9);
+    //900 mod 7 = 4
+    assertEquals((int) m1.over(Field.modular(7)).determinant(), 4);
+    //900 = 0 mod 5
+    assertEquals((int) m1.over(Field.modular(5)).determinant(), 0);
+    assertEquals(m1.over(Field.modular(5)).rank(), 2);
+    assertEquals(m1.over(Field.RATIONAL).rank(), 4);
+  }
+
+  @Test
+  public void rankTest() throws Exception {
+    //Determinant -5, singular only modulo 5
+    Matrix m = new Matrix(new Fraction[][]{{f1, f2}, {f3, f1}});
+    assertEquals(m.over(Field.RATIONAL).rank(), 2);
+    assertEquals(m.over(Field.modular(3)).rank(), 2);
+    assertEquals(m.over(Field.modular(5)).rank(), 1);
+    assertNull(m.over(Field.modular(5)).inverse());
+    //1/2 = 4 mod 7
+    Matrix half = new Matrix(new Fraction[][]{{new Fraction(1, 2)}});
+    assertEquals((int) half.over(Field.modular(7)).get(0, 0), 4);
+  }
+
+  @Test
+  public void inverseTest() throws Exception {
+    Field<?>[] fields = {Field.RATIONAL, Field.BIG_RATIONAL, Field.DOUBLE,
+        Field.modular(1_000_000_007)};
+    for (Field<?> field : fields) {
+      checkInverse(m1.over(field));
+    }
+    //The inverse agrees with Matrix.getInverse()
+    assertEquals(m1.over(Field.RATIONAL).inverse().toString(),
+        m1.getInverse().over(Field.RATIONAL).toString());
+  }
+
+  private static <T> void checkInverse(FieldMatrix<T> m) throws Exception {
+    FieldMatrix<T> product = m.multiply(m.inverse());
+    Field<T> field = m.field();
+    for (int i = 0; i < m.nRows(); i++) {
+      for (int j = 0; j < m.nCols(); j++) {
+        T expected = i == j ? field.one() : field.zero();
+        assertTrue(field.isZero(field.subtract(product.get(i, j),
+            expected)));
+      }
+    }
+  }
+
+  @Test
+  public void solveTest() throws Exception {
+    //x + 2y = 5, 3x + y = 5 has x = 1, y = 2
+    Matrix a = new Matrix(new Fraction[][]{{f1, f2}, {f3, f1}});
+    Matrix b = new Matrix(new Fraction[][]{{new Fraction(5)},
+        {new Fraction(5)}});
+    FieldMatrix<Fraction> x = a.over(Field.RATIONAL)
+        .solve(b.over(Field.RATIONAL));
+    assertEquals(x.get(0, 0), f1);
+    assertEquals(x.get(1, 0), f2);
+    FieldMatrix<Double> xd = a.over(Field.DOUBLE).solve(b.over(Field.DOUBLE));
+    assertEquals(xd.get(0, 0), 1, 1e-12);
+    assertEquals(xd.get(1, 0), 2, 1e-12);
+  }
+
+  @Test
+  public void overflowTest() throws Exception {
+    //Entries near Long.MAX_VALUE make the raw kernels overflow, so the
+    //Fraction matrix falls back to wide entries. It must agree with the
+    //arbitrary precision one
+    Random rand = new Random(7);
+    int n = 6;
+    FieldMatrix<Fraction> m = Field.RATIONAL.matrix(n, n);
+    FieldMatrix<BigRational> big = Field.BIG_RATIONAL.matrix(n, n);
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        Fraction f = Fraction.valueOf(rand.nextLong() >> rand.nextInt(64),
+            1 + rand.nextInt(1000));
+        m.set(i, j, f);
+        big.set(i, j, BigRational.valueOf(f));
+      }
+    }
+    assertEquals(BigRational.valueOf(m.determinant()), big.determinant());
+    FieldMatrix<Fraction> inv = m.inverse();
+    FieldMatrix<BigRational> bigInv = big.inverse();
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        assertEquals(BigRational.valueOf(inv.get(i, j)), bigInv.get(i, j));
+      }
+    }
+    checkInverse(m);
+    assertEquals(BigRational.valueOf(BigInteger.valueOf(6),
+        BigInteger.valueOf(-4)), BigRational.valueOf(new Fraction(-3, 2)));
+  }
+}
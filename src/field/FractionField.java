@@ -0,0 +1,73 @@
+package field;
+
+import fraction.Fraction;
+
+final class FractionField implements Field<Fraction> {
+  //Exact rationals as Fractions, whose matrices keep entries as raw long
+  //pairs while they fit
+
+  @Override
+  public Fraction zero() {
+    return Fraction.valueOf(0);
+  }
+
+  @Override
+  public Fraction one() {
+    return Fraction.valueOf(1);
+  }
+
+  @Override
+  public Fraction add(Fraction a, Fraction b) {
+    return a.add(b);
+  }
+
+  @Override
+  public Fraction subtract(Fraction a, Fraction b) {
+    return a.subtract(b);
+  }
+
+  @Override
+  public Fraction multiply(Fraction a, Fraction b) {
+    return a.multiply(b);
+  }
+
+  @Override
+  public Fraction divide(Fraction a, Fraction b) {
+    return a.divide(b);
+  }
+
+  @Override
+  public Fraction negate(Fraction a) {
+    return a.negate();
+  }
+
+  @Override
+  public boolean isZero(Fraction a) {
+    return a.isZero();
+  }
+
+  @Override
+  public Fraction addProduct(Fraction acc, Fraction a, Fraction b) {
+    return acc.addProduct(a, b);
+  }
+
+  @Override
+  public Fraction valueOf(Fraction f) {
+    return f;
+  }
+
+  @Override
+  public FieldMatrix<Fraction> matrix(int nRows, int nCols) {
+    return new FractionMatrix(this, nRows, nCols);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof FractionField;
+  }
+
+  @Override
+  public int hashCode() {
+    return FractionField.class.hashCode();
+  }
+}
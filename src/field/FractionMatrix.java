@@ -0,0 +1,254 @@
+package field;
+
+import fraction.Fraction;
+import fraction.FractionAccumulator;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+final class FractionMatrix extends FieldMatrix<Fraction> {
+  //Same layout as FlatStorage: row-major numerators and denominators, with
+  //the entries which don't fit in a long kept in wide and marked with a 0
+  //denominator. Row operations use the raw Fraction kernels, and only
+  //entries which overflow are computed with Fractions
+  private final FractionField field;
+  private final long[] nums;
+  private final long[] denoms;
+  private Map<Integer, Fraction> wide;
+
+  FractionMatrix(FractionField field, int nRows, int nCols) {
+    super(nRows, nCols);
+    this.field = field;
+    this.nums = new long[nRows * nCols];
+    this.denoms = new long[nRows * nCols];
+    Arrays.fill(denoms, 1);
+  }
+
+  private boolean isWide(int idx) {
+    return denoms[idx] == 0;
+  }
+
+  private Fraction get(int idx) {
+    if (denoms[idx] == 0) {
+      return wide.get(idx);
+    }
+    return Fraction.valueOf(nums[idx], denoms[idx]);
+  }
+
+  private void set(int idx, Fraction f) {
+    if (f.isLong()) {
+      nums[idx] = f.getNum();
+      denoms[idx] = f.getDenom();
+      if (wide != null) {
+        wide.remove(idx);
+      }
+    } else {
+      if (wide == null) {
+        wide = new HashMap<>();
+      }
+      wide.put(idx, f);
+      nums[idx] = 0;
+      denoms[idx] = 0;
+    }
+  }
+
+  private void setRaw(int idx, long num, long denom) {
+    if (denoms[idx] == 0) {
+      wide.remove(idx);
+    }
+    nums[idx] = num;
+    denoms[idx] = denom;
+  }
+
+  @Override
+  public Field<Fraction> field() {
+    return field;
+  }
+
+  @Override
+  public Fraction get(int r, int c) {
+    return get(r * nCols + c);
+  }
+
+  @Override
+  public void set(int r, int c, Fraction value) {
+    set(r * nCols + c, value);
+  }
+
+  @Override
+  public FieldMatrix<Fraction> copy() {
+    FractionMatrix res = new FractionMatrix(field, nRows, nCols);
+    System.arraycopy(nums, 0, res.nums, 0, nums.length);
+    System.arraycopy(denoms, 0, res.denoms, 0, denoms.length);
+    if (wide != null) {
+      res.wide = new HashMap<>(wide);
+    }
+    return res;
+  }
+
+  @Override
+  public FieldMatrix<Fraction> multiply(FieldMatrix<Fraction> other)
+      throws OperationNotSupportedException {
+    if (other.nRows != nCols) {
+      throw new OperationNotSupportedException("Adjacent matrix" +
+          " dimensions don't match");
+    }
+    checkSameField(other);
+    FractionMatrix b = (FractionMatrix) other;
+    FractionMatrix res = new FractionMatrix(field, nRows, other.nCols);
+    //As in FlatStorage.multiply, dot products run on raw pairs until they
+    //overflow, and finish in a FractionAccumulator
+    long[] acc = new long[2];
+    FractionAccumulator sum = new FractionAccumulator();
+    int k;
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < other.nCols; j++) {
+        acc[0] = 0;
+        acc[1] = 1;
+        for (k = 0; k < nCols; k++) {
+          int x = i * nCols + k;
+          int y = k * other.nCols + j;
+          if (isWide(x) || b.isWide(y) || !Fraction.addProductRaw(acc[0],
+              acc[1], nums[x], denoms[x], b.nums[y], b.denoms[y], acc)) {
+            break;
+          }
+        }
+        int idx = i * other.nCols + j;
+        if (k == nCols) {
+          res.nums[idx] = acc[0];
+          res.denoms[idx] = acc[1];
+          continue;
+        }
+        sum.reset().add(Fraction.valueOf(acc[0], acc[1]));
+        for (; k < nCols; k++) {
+          sum.addProduct(get(i * nCols + k), b.get(k * other.nCols + j));
+        }
+        res.set(idx, sum.toFraction());
+      }
+    }
+    return res;
+  }
+
+  @Override
+  protected int pivotRow(int fromRow, int col) {
+    //Wide entries are never zero, as zero always fits in a long
+    for (int r = fromRow; r < nRows; r++) {
+      if (nums[r * nCols + col] != 0 || isWide(r * nCols + col)) {
+        return r;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  protected void swapRows(int r1, int r2) {
+    long temp;
+    for (int j = 0; j < nCols; j++) {
+      int i1 = r1 * nCols + j;
+      int i2 = r2 * nCols + j;
+      temp = nums[i1];
+      nums[i1] = nums[i2];
+      nums[i2] = temp;
+      temp = denoms[i1];
+      denoms[i1] = denoms[i2];
+      denoms[i2] = temp;
+    }
+    if (wide != null) {
+      //Wide entries move with their rows
+      Map<Integer, Fraction> moved = new HashMap<>();
+      for (int j = 0; j < nCols; j++) {
+        Fraction f1 = wide.remove(r1 * nCols + j);
+        Fraction f2 = wide.remove(r2 * nCols + j);
+        if (f1 != null) {
+          moved.put(r2 * nCols + j, f1);
+        }
+        if (f2 != null) {
+          moved.put(r1 * nCols + j, f2);
+        }
+      }
+      wide.putAll(moved);
+    }
+  }
+
+  @Override
+  protected Fraction normalizeRow(int r, int col) {
+    int row = r * nCols;
+    Fraction pivot = get(row + col);
+    long[] res = new long[2];
+    boolean raw = pivot.isLong();
+    //Reciprocal of the pivot, keeping the denominator positive
+    long invNum = 0;
+    long invDenom = 0;
+    if (raw) {
+      invNum = pivot.getNum() < 0 ? -pivot.getDenom() : pivot.getDenom();
+      invDenom = Math.abs(pivot.getNum());
+    }
+    Fraction inv = null;
+    for (int j = col + 1; j < nCols; j++) {
+      int idx = row + j;
+      if (nums[idx] == 0 && !isWide(idx)) {
+        continue;
+      }
+      if (raw && !isWide(idx) && Fraction.multiplyRaw(nums[idx],
+          denoms[idx], invNum, invDenom, res)) {
+        nums[idx] = res[0];
+        denoms[idx] = res[1];
+      } else {
+        if (inv == null) {
+          inv = pivot.reciprocal();
+        }
+        set(idx, get(idx).multiply(inv));
+      }
+    }
+    set(row + col, Fraction.valueOf(1));
+    return pivot;
+  }
+
+  @Override
+  protected void eliminate(int target, int pivot, int col) {
+    int t = target * nCols;
+    int p = pivot * nCols;
+    if (nums[t + col] == 0 && !isWide(t + col)) {
+      return;
+    }
+    long[] res = new long[2];
+    Fraction f = get(t + col).negate();
+    long fNum = f.isLong() ? f.getNum() : 0;
+    long fDenom = f.isLong() ? f.getDenom() : 0;
+    for (int j = col + 1; j < nCols; j++) {
+      if (nums[p + j] == 0 && !isWide(p + j)) {
+        continue;
+      }
+      if (f.isLong() && !isWide(t + j) && !isWide(p + j)
+          && Fraction.addProductRaw(nums[t + j], denoms[t + j], fNum, fDenom,
+          nums[p + j], denoms[p + j], res)) {
+        setRaw(t + j, res[0], res[1]);
+      } else {
+        set(t + j, get(t + j).addProduct(f, get(p + j)));
+      }
+    }
+    setRaw(t + col, 0, 1);
+  }
+
+  @Override
+  protected void copyColumns(FieldMatrix<Fraction> src, int srcCol,
+                             int destCol, int count) {
+    FractionMatrix s = (FractionMatrix) src;
+    for (int r = 0; r < nRows; r++) {
+      System.arraycopy(s.nums, r * s.nCols + srcCol, nums, r * nCols + destCol,
+          count);
+      System.arraycopy(s.denoms, r * s.nCols + srcCol, denoms,
+          r * nCols + destCol, count);
+      if (s.wide != null) {
+        for (int j = 0; j < count; j++) {
+          Fraction f = s.wide.get(r * s.nCols + srcCol + j);
+          if (f != null) {
+            set(r * nCols + destCol + j, f);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package field;
+
+import fraction.DivisionByZeroException;
+import fraction.Fraction;
+
+import java.math.BigInteger;
+
+final class ModularField implements Field<Integer> {
+  //Integers modulo a prime p < 2^31, kept in [0, p). Products fit in a
+  //long, so no operation overflows
+  private final int p;
+
+  ModularField(int p) {
+    if (p < 2 || !BigInteger.valueOf(p).isProbablePrime(30)) {
+      throw new IllegalArgumentException(p + " isn't a prime");
+    }
+    this.p = p;
+  }
+
+  int modulus() {
+    return p;
+  }
+
+  int inverse(int a) {
+    //a^(p-2) = a^-1 by Fermat's little theorem
+    if (a == 0) {
+      throw new DivisionByZeroException();
+    }
+    long res = 1;
+    long base = a;
+    for (int e = p - 2; e > 0; e >>= 1) {
+      if ((e & 1) == 1) {
+        res = res * base % p;
+      }
+      base = base * base % p;
+    }
+    return (int) res;
+  }
+
+  @Override
+  public Integer zero() {
+    return 0;
+  }
+
+  @Override
+  public Integer one() {
+    return 1;
+  }
+
+  @Override
+  public Integer add(Integer a, Integer b) {
+    return (int) (((long) a + b) % p);
+  }
+
+  @Override
+  public Integer subtract(Integer a, Integer b) {
+    return (int) (((long) a - b + p) % p);
+  }
+
+  @Override
+  public Integer multiply(Integer a, Integer b) {
+    return (int) ((long) a * b % p);
+  }
+
+  @Override
+  public Integer divide(Integer a, Integer b) {
+    return multiply(a, inverse(b));
+  }
+
+  @Override
+  public Integer negate(Integer a) {
+    return a == 0 ? 0 : p - a;
+  }
+
+  @Override
+  public boolean isZero(Integer a) {
+    return a == 0;
+  }
+
+  @Override
+  public Integer valueOf(Fraction f) {
+    //Throws ArithmeticException if p divides the denominator
+    BigInteger modulus = BigInteger.valueOf(p);
+    int num = f.getBigNum().mod(modulus).intValue();
+    int denom = f.getBigDenom().mod(modulus).intValue();
+    if (denom == 0) {
+      throw new ArithmeticException(f + " has no value modulo " + p);
+    }
+    return multiply(num, inverse(denom));
+  }
+
+  @Override
+  public FieldMatrix<Integer> matrix(int nRows, int nCols) {
+    return new ModularMatrix(this, nRows, nCols);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof ModularField && ((ModularField) o).p == p;
+  }
+
+  @Override
+  public int hashCode() {
+    return p;
+  }
+}
@@ -0,0 +1,131 @@
+package field;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Arrays;
+
+final class ModularMatrix extends FieldMatrix<Integer> {
+  //Row-major int[] of residues in [0, p)
+  private final ModularField field;
+  private final int p;
+  private final int[] a;
+
+  ModularMatrix(ModularField field, int nRows, int nCols) {
+    super(nRows, nCols);
+    this.field = field;
+    this.p = field.modulus();
+    this.a = new int[nRows * nCols];
+  }
+
+  @Override
+  public Field<Integer> field() {
+    return field;
+  }
+
+  @Override
+  public Integer get(int r, int c) {
+    return a[r * nCols + c];
+  }
+
+  @Override
+  public void set(int r, int c, Integer value) {
+    a[r * nCols + c] = Math.floorMod(value, p);
+  }
+
+  @Override
+  public FieldMatrix<Integer> copy() {
+    ModularMatrix res = new ModularMatrix(field, nRows, nCols);
+    System.arraycopy(a, 0, res.a, 0, a.length);
+    return res;
+  }
+
+  @Override
+  public FieldMatrix<Integer> multiply(FieldMatrix<Integer> other)
+      throws OperationNotSupportedException {
+    if (other.nRows != nCols) {
+      throw new OperationNotSupportedException("Adjacent matrix" +
+          " dimensions don't match");
+    }
+    checkSameField(other);
+    int[] b = ((ModularMatrix) other).a;
+    ModularMatrix res = new ModularMatrix(field, nRows, other.nCols);
+    //Rows of the result are accumulated in longs. Residues are below 2^31,
+    //so acc + aik * b stays below 2^63 when reduced after every term
+    long[] acc = new long[other.nCols];
+    for (int i = 0; i < nRows; i++) {
+      Arrays.fill(acc, 0);
+      for (int k = 0; k < nCols; k++) {
+        long aik = a[i * nCols + k];
+        if (aik == 0) {
+          continue;
+        }
+        int bRow = k * other.nCols;
+        for (int j = 0; j < other.nCols; j++) {
+          acc[j] = (acc[j] + aik * b[bRow + j]) % p;
+        }
+      }
+      for (int j = 0; j < other.nCols; j++) {
+        res.a[i * other.nCols + j] = (int) acc[j];
+      }
+    }
+    return res;
+  }
+
+  @Override
+  protected int pivotRow(int fromRow, int col) {
+    for (int r = fromRow; r < nRows; r++) {
+      if (a[r * nCols + col] != 0) {
+        return r;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  protected void swapRows(int r1, int r2) {
+    int temp;
+    for (int j = 0; j < nCols; j++) {
+      temp = a[r1 * nCols + j];
+      a[r1 * nCols + j] = a[r2 * nCols + j];
+      a[r2 * nCols + j] = temp;
+    }
+  }
+
+  @Override
+  protected Integer normalizeRow(int r, int col) {
+    int row = r * nCols;
+    int pivot = a[row + col];
+    long inv = field.inverse(pivot);
+    for (int j = col + 1; j < nCols; j++) {
+      a[row + j] = (int) (a[row + j] * inv % p);
+    }
+    a[row + col] = 1;
+    return pivot;
+  }
+
+  @Override
+  protected void eliminate(int target, int pivot, int col) {
+    int t = target * nCols;
+    int q = pivot * nCols;
+    //Subtracting f * x is adding (p - f) * x, which keeps everything
+    //non-negative
+    long f = a[t + col];
+    if (f == 0) {
+      return;
+    }
+    long negF = p - f;
+    for (int j = col + 1; j < nCols; j++) {
+      a[t + j] = (int) ((a[t + j] + negF * a[q + j]) % p);
+    }
+    a[t + col] = 0;
+  }
+
+  @Override
+  protected void copyColumns(FieldMatrix<Integer> src, int srcCol,
+                             int destCol, int count) {
+    int[] b = ((ModularMatrix) src).a;
+    for (int r = 0; r < nRows; r++) {
+      System.arraycopy(b, r * src.nCols + srcCol, a, r * nCols + destCol,
+          count);
+    }
+  }
+}
@@ -1,18 +1,37 @@
 package fraction;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.math.BigInteger;
 
 public class Fraction implements Cloneable {
-  private int num;
-  private int denom;
+  private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
 
-  public Fraction(int num) {
+  //Shared instances of the fractions n/d with |n| <= MAX_CACHED_NUM and
+  //1 <= d <= MAX_CACHED_DENOM, in canonical form. Identity matrices, sparse
+  //inputs and elimination results are mostly made of these, so the factory
+  //methods and the arithmetic hand them out instead of allocating. Cached
+  //fractions are never modified, as no method changes a canonical fraction
+  private static final int MAX_CACHED_NUM = 128;
+  private static final int MAX_CACHED_DENOM = 16;
+  private static final Fraction[][] CACHE = createCache();
+
+  //Values are kept in num/denom whenever both fit in a long (Long.MIN_VALUE
+  //excluded, so that negating never overflows). Otherwise bigNum/bigDenom hold
+  //the value and num/denom are unused. The representation is canonical, so a
+  //value which fits in a long is never stored in the BigInteger fields
+  private long num;
+  private long denom;
+  private BigInteger bigNum;
+  private BigInteger bigDenom;
+
+  public Fraction(long num) {
     this.num = num;
     this.denom = 1;
+    if (num == Long.MIN_VALUE) {
+      simplify();
+    }
   }
 
-  public Fraction(int num, int denom) {
+  public Fraction(long num, long denom) {
     if (denom == 0) {
       throw new DivisionByZeroException();
     }
@@ -21,36 +40,140 @@ public class Fraction implements Cloneable {
     simplify();
   }
 
-  public int getNum() {
+  public Fraction(BigInteger num, BigInteger denom) {
+    if (denom.signum() == 0) {
+      throw new DivisionByZeroException();
+    }
+    this.bigNum = num;
+    this.bigDenom = denom;
+    simplify();
+  }
+
+  private Fraction(long num, long denom, BigInteger bigNum,
+                   BigInteger bigDenom) {
+    //Pre: values are already in canonical form
+    this.num = num;
+    this.denom = denom;
+    this.bigNum = bigNum;
+    this.bigDenom = bigDenom;
+  }
+
+  private static Fraction[][] createCache() {
+    //cache[d - 1][n + MAX_CACHED_NUM] holds n/d. Slots of non-reduced
+    //fractions are left empty, as they are never looked up
+    Fraction[][] cache = new Fraction[MAX_CACHED_DENOM][2 * MAX_CACHED_NUM + 1];
+    for (int d = 1; d <= MAX_CACHED_DENOM; d++) {
+      for (int n = -MAX_CACHED_NUM; n <= MAX_CACHED_NUM; n++) {
+        if (gcd(Math.abs(n), d) == 1) {
+          cache[d - 1][n + MAX_CACHED_NUM] = new Fraction(n, d, null, null);
+        }
+      }
+    }
+    return cache;
+  }
+
+  public static Fraction valueOf(long num) {
+    //Same value as new Fraction(num), shared if it is small
+    if (num >= -MAX_CACHED_NUM && num <= MAX_CACHED_NUM) {
+      return CACHE[0][(int) num + MAX_CACHED_NUM];
+    }
+    return new Fraction(num);
+  }
+
+  public static Fraction valueOf(long num, long denom) {
+    //Same value as new Fraction(num, denom), shared if it is small. Reduces
+    //on the primitives, so cached values don't allocate at all
+    if (denom == 0) {
+      throw new DivisionByZeroException();
+    }
+    if (num == Long.MIN_VALUE || denom == Long.MIN_VALUE) {
+      return new Fraction(num, denom);
+    }
+    if (num == 0) {
+      return CACHE[0][MAX_CACHED_NUM];
+    }
+    long greatestComDiv = gcd(Math.abs(num), Math.abs(denom));
+    num /= greatestComDiv;
+    denom /= greatestComDiv;
+    return denom < 0 ? of(-num, -denom) : of(num, denom);
+  }
+
+  public static Fraction valueOf(BigInteger num, BigInteger denom) {
+    //Same value as new Fraction(num, denom), shared if it is small
+    return new Fraction(num, denom).interned();
+  }
+
+  private static Fraction of(long num, long denom) {
+    //Pre: num/denom is in canonical form
+    if (denom <= MAX_CACHED_DENOM && num >= -MAX_CACHED_NUM
+        && num <= MAX_CACHED_NUM) {
+      return CACHE[(int) denom - 1][(int) num + MAX_CACHED_NUM];
+    }
+    return new Fraction(num, denom, null, null);
+  }
+
+  private Fraction interned() {
+    //The shared instance with this value if there is one, this otherwise
+    return bigNum == null ? of(num, denom) : this;
+  }
+
+  public boolean isLong() {
+    //True if both numerator and denominator fit in a long
+    return bigNum == null;
+  }
+
+  public long getNum() {
+    if (bigNum != null) {
+      throw new ArithmeticException("Numerator doesn't fit in a long");
+    }
     return num;
   }
 
-  public int getDenom() {
+  public long getDenom() {
+    if (bigNum != null) {
+      throw new ArithmeticException("Denominator doesn't fit in a long");
+    }
     return denom;
   }
 
+  public BigInteger getBigNum() {
+    return bigNum != null ? bigNum : BigInteger.valueOf(num);
+  }
+
+  public BigInteger getBigDenom() {
+    return bigNum != null ? bigDenom : BigInteger.valueOf(denom);
+  }
+
+  public int signum() {
+    return bigNum != null ? bigNum.signum() : Long.signum(num);
+  }
+
+  public boolean isZero() {
+    return bigNum == null && num == 0;
+  }
+
   //All operations with fractions don't modify their current values, but return
   //a new fraction instead. There is no way to modify the fields from outside
   //the class, and they aren't modified by any method, so they are effectively
   //final, but they aren't final to begin with because after the initial
   //assignment the fraction can be simplified, meaning the values could be
   //overwritten
+
+  //Every operation first tries the long fast path, which reports overflow
+  //instead of wrapping around, and only falls back to BigInteger arithmetic
+  //when the result doesn't fit
   public Fraction add(Fraction other) {
     //Add given fraction to the current one
-    int newNum = num;
-    int newDenom = denom;
-    //If denominators aren't equal find the least common multiple
-    if (denom != other.getDenom()) {
-      int leatsComMult = lcm(denom, other.getDenom());
-      //Carry out addition with equivalent fractions of denominator = lcm
-      newNum *= leatsComMult / denom;
-      newDenom = leatsComMult;
-      newNum += other.getNum() * (leatsComMult / other.getDenom());
-    } else {
-      //No need to modifu anything, just add numerators
-      newNum += other.getNum();
+    if (bigNum == null && other.bigNum == null) {
+      long[] res = new long[2];
+      if (addRaw(num, denom, other.num, other.denom, res)) {
+        return of(res[0], res[1]);
+      }
     }
-    return new Fraction(newNum, newDenom);
+    BigInteger otherDenom = other.getBigDenom();
+    return valueOf(getBigNum().multiply(otherDenom)
+        .add(other.getBigNum().multiply(getBigDenom())),
+        getBigDenom().multiply(otherDenom));
   }
 
   public Fraction subtract(Fraction other) {
@@ -58,11 +181,31 @@ public class Fraction implements Cloneable {
     return add(other.negate());
   }
 
-
   public Fraction multiply(Fraction other) {
     //Multiply current fraction by the given one
-    return new Fraction(num * other.getNum(),
-        denom * other.getDenom());
+    if (bigNum == null && other.bigNum == null) {
+      long[] res = new long[2];
+      if (multiplyRaw(num, denom, other.num, other.denom, res)) {
+        return of(res[0], res[1]);
+      }
+    }
+    return valueOf(getBigNum().multiply(other.getBigNum()),
+        getBigDenom().multiply(other.getBigDenom()));
+  }
+
+  public Fraction addProduct(Fraction f1, Fraction f2) {
+    //Returns this + f1 * f2 in one step, which is the update applied by the
+    //row operations of Gaussian elimination. Only the result is allocated
+    if (f1.isZero() || f2.isZero()) {
+      return this;
+    }
+    if (bigNum == null && f1.bigNum == null && f2.bigNum == null) {
+      long[] res = new long[2];
+      if (addProductRaw(num, denom, f1.num, f1.denom, f2.num, f2.denom, res)) {
+        return of(res[0], res[1]);
+      }
+    }
+    return add(f1.multiply(f2));
   }
 
   public Fraction divide(Fraction other) {
@@ -73,93 +216,225 @@ public class Fraction implements Cloneable {
 
   public Fraction reciprocal() {
     //Return d/n where fraction = n/d if n != 0
-    if (num == 0) {
+    if (isZero()) {
       throw new DivisionByZeroException();
     }
-    return new Fraction(denom, num);
+    if (bigNum != null) {
+      return valueOf(bigDenom, bigNum);
+    }
+    //Keep denominator positive, |num| can't be Long.MIN_VALUE
+    return num < 0 ? of(-denom, -num) : of(denom, num);
   }
 
   public Fraction negate() {
-    return new Fraction(-num, denom);
+    if (bigNum != null) {
+      return valueOf(bigNum.negate(), bigDenom);
+    }
+    return of(-num, denom);
   }
 
   public void simplify() {
+    if (bigNum == null && (num == Long.MIN_VALUE || denom == Long.MIN_VALUE)) {
+      //Can't take the absolute value of these, so work with BigIntegers
+      bigNum = BigInteger.valueOf(num);
+      bigDenom = BigInteger.valueOf(denom);
+    }
+    if (bigNum != null) {
+      simplifyBig();
+      return;
+    }
     //If numerator is one simplify denominator directly
     if (num == 0) {
       denom = 1;
       return;
     }
-    //Type casting may not be needed
-    boolean changeSign = ((int) Math.signum(num) != (int) Math.signum(denom));
-    //Work with absolute values for simplicity
-    num = Math.abs(num);
-    denom = Math.abs(denom);
+    boolean changeSign = (Long.signum(num) != Long.signum(denom));
+    //Work with absolute values for simplicity. They are kept in locals, so
+    //simplifying a canonical (possibly shared) fraction only ever writes back
+    //the values it already had
+    long absNum = Math.abs(num);
+    long absDenom = Math.abs(denom);
 
     //To simplify just multiply by the greatest common divisor of numerator
     //and denominator (if it is greater than one)
-    int greatestComDiv = gcd(num, denom);
+    long greatestComDiv = gcd(absNum, absDenom);
     if (greatestComDiv > 1) {
-      num /= greatestComDiv;
-      denom /= greatestComDiv;
+      absNum /= greatestComDiv;
+      absDenom /= greatestComDiv;
     }
     //Restore sign
-    if (changeSign) {
-      num = -num;
-    }
-  }
-
-  private static Deque<Integer> getPrimeFactors(int n) {
-    //Pre: n > 0
-    //Post: returns a queue containing n's prime factors in ascending order
-    //excluding 1
-    Deque<Integer> factors = new ArrayDeque<>();
-    int div = 2;
-    int sqrt = (int) Math.sqrt(n);
-    //Look for prime factors in the range 2-sqrt(n), and divide by each of them
-    //as many times as possible
-    while (div <= sqrt) {
-      if (n % div == 0) {
-        n /= div;
-        factors.add(div);
-      } else {
-        div++;
+    num = changeSign ? -absNum : absNum;
+    denom = absDenom;
+  }
+
+  private void simplifyBig() {
+    if (bigDenom.signum() < 0) {
+      bigNum = bigNum.negate();
+      bigDenom = bigDenom.negate();
+    }
+    BigInteger greatestComDiv = bigNum.gcd(bigDenom);
+    if (greatestComDiv.compareTo(BigInteger.ONE) > 0) {
+      bigNum = bigNum.divide(greatestComDiv);
+      bigDenom = bigDenom.divide(greatestComDiv);
+    }
+    //Go back to the long representation if the value fits in it again
+    if (bigNum.bitLength() < Long.SIZE && !bigNum.equals(LONG_MIN)
+        && bigDenom.bitLength() < Long.SIZE) {
+      num = bigNum.longValue();
+      denom = bigDenom.longValue();
+      bigNum = null;
+      bigDenom = null;
+    }
+  }
+
+  //Raw kernels over num/denom pairs. They let matrix loops do arithmetic
+  //without creating intermediate fractions.
+  //Pre: every pair is in canonical form (reduced, denominator > 0 and
+  //numerator != Long.MIN_VALUE), as returned by getNum()/getDenom()
+  //Post: if the exact result fits, it is written to res[0]/res[1] in
+  //canonical form and true is returned. Otherwise false is returned and res
+  //is left untouched
+
+  public static boolean addRaw(long n1, long d1, long n2, long d2,
+                               long[] res) {
+    long newNum;
+    long newDenom;
+    if (d1 == d2) {
+      //No need to modify anything, just add numerators
+      newNum = n1 + n2;
+      if (addOverflows(n1, n2, newNum) || newNum == Long.MIN_VALUE) {
+        return false;
+      }
+      newDenom = d1;
+      if (d1 != 1) {
+        long greatestComDiv = gcd(Math.abs(newNum), d1);
+        newNum /= greatestComDiv;
+        newDenom /= greatestComDiv;
+      }
+    } else {
+      //Carry out addition with equivalent fractions of denominator = lcm. Only
+      //the gcd of the denominators can divide the new numerator
+      long denomGcd = gcd(d1, d2);
+      long d1Part = d1 / denomGcd;
+      long d2Part = d2 / denomGcd;
+      long term1 = n1 * d2Part;
+      long term2 = n2 * d1Part;
+      if (mulOverflows(n1, d2Part, term1) || mulOverflows(n2, d1Part, term2)) {
+        return false;
+      }
+      newNum = term1 + term2;
+      if (addOverflows(term1, term2, newNum) || newNum == Long.MIN_VALUE) {
+        return false;
+      }
+      long greatestComDiv = denomGcd == 1 ? 1 : gcd(Math.abs(newNum), denomGcd);
+      newNum /= greatestComDiv;
+      long denomRest = d2 / greatestComDiv;
+      newDenom = d1Part * denomRest;
+      if (mulOverflows(d1Part, denomRest, newDenom)) {
+        return false;
       }
     }
-    //If a factor > 1 still remains, add it. It must be a prime > sqrt(n)
-    if (n > 1) {
-      factors.add(n);
+    res[0] = newNum;
+    res[1] = newNum == 0 ? 1 : newDenom;
+    return true;
+  }
+
+  public static boolean multiplyRaw(long n1, long d1, long n2, long d2,
+                                    long[] res) {
+    if (n1 == 0 || n2 == 0) {
+      res[0] = 0;
+      res[1] = 1;
+      return true;
     }
-    return factors;
+    //Cross-cancel first so the product is already reduced
+    long gcd1 = gcd(Math.abs(n1), d2);
+    long gcd2 = gcd(Math.abs(n2), d1);
+    long a = n1 / gcd1;
+    long b = n2 / gcd2;
+    long c = d1 / gcd2;
+    long d = d2 / gcd1;
+    long newNum = a * b;
+    long newDenom = c * d;
+    if (mulOverflows(a, b, newNum) || mulOverflows(c, d, newDenom)
+        || newNum == Long.MIN_VALUE) {
+      return false;
+    }
+    res[0] = newNum;
+    res[1] = newDenom;
+    return true;
+  }
+
+  public static boolean addProductRaw(long n, long d, long n1, long d1,
+                                      long n2, long d2, long[] res) {
+    //res = n/d + (n1/d1) * (n2/d2)
+    long prodNum = res[0];
+    long prodDenom = res[1];
+    if (!multiplyRaw(n1, d1, n2, d2, res)) {
+      return false;
+    }
+    if (!addRaw(n, d, res[0], res[1], res)) {
+      //Restore res, as it has already been overwritten with the product
+      res[0] = prodNum;
+      res[1] = prodDenom;
+      return false;
+    }
+    return true;
+  }
+
+  static boolean mulOverflows(long a, long b, long product) {
+    //Same check as Math.multiplyExact, without throwing
+    long hi = Math.multiplyHigh(a, b);
+    return hi != (product >> 63);
   }
 
-  public static int gcd(int n1, int n2) {
+  static boolean addOverflows(long a, long b, long sum) {
+    //Same check as Math.addExact, without throwing
+    return ((a ^ sum) & (b ^ sum)) < 0;
+  }
+
+  public static long gcd(long n1, long n2) {
     //Pre: n1 >= 0 && n2 >= 0
     //Post: returns the greatest common divisor
-    int min = Math.min(n1, n2);
-    int max = Math.max(n1, n2);
-    Deque<Integer> factors = getPrimeFactors(min);
-    int minComDiv = 1;
-    int factor;
-    //Look for all the prime factors of the smaller number which are present in
-    //the bigger one
-    while (!factors.isEmpty()) {
-      factor = factors.poll();
-      if (max % factor == 0) {
-        max /= factor;
-        minComDiv *= factor;
-      }
+    //Binary (Stein's) algorithm: only shifts and subtractions, no divisions
+    if (n1 == 0) {
+      return n2;
     }
-    return minComDiv;
+    if (n2 == 0) {
+      return n1;
+    }
+    //Powers of two shared by both numbers are part of the gcd
+    int shift = Long.numberOfTrailingZeros(n1 | n2);
+    n1 >>= Long.numberOfTrailingZeros(n1);
+    long temp;
+    //n1 is odd from here on, so any factors of two left in n2 can be dropped
+    do {
+      n2 >>= Long.numberOfTrailingZeros(n2);
+      if (n1 > n2) {
+        temp = n1;
+        n1 = n2;
+        n2 = temp;
+      }
+      n2 -= n1;
+    } while (n2 != 0);
+    return n1 << shift;
   }
 
-  public static int lcm(int n1, int n2) {
+  public static long lcm(long n1, long n2) {
     //Pre: n1 >= 0 && n2 >= 0
-    //Post: returns the least common multiple
-    return n1 * n2 / gcd(n1, n2);
+    //Post: returns the least common multiple, throws ArithmeticException if
+    //it doesn't fit in a long
+    if (n1 == 0 || n2 == 0) {
+      return 0;
+    }
+    return Math.multiplyExact(n1 / gcd(n1, n2), n2);
   }
 
   @Override
   public String toString() {
+    if (bigNum != null) {
+      return bigDenom.equals(BigInteger.ONE) ? bigNum.toString()
+          : bigNum + "/" + bigDenom;
+    }
     //If denominator is one, simply output numerator
     if (denom == 1) {
       return num + "";
@@ -169,7 +444,7 @@ public class Fraction implements Cloneable {
 
   @Override
   public Fraction clone() {
-    return new Fraction(num, denom);
+    return new Fraction(num, denom, bigNum, bigDenom);
   }
 
   @Override
@@ -178,15 +453,27 @@ public class Fraction implements Cloneable {
       return false;
     }
     Fraction fraction = (Fraction) o;
-    return  num == fraction.getNum() && denom == fraction.getDenom();
+    if (bigNum == null && fraction.bigNum == null) {
+      return num == fraction.num && denom == fraction.denom;
+    }
+    return getBigNum().equals(fraction.getBigNum())
+        && getBigDenom().equals(fraction.getBigDenom());
   }
 
   @Override
   public int hashCode() {
+    if (bigNum != null) {
+      return 31 * bigNum.hashCode() + bigDenom.hashCode();
+    }
+    return hashCode(num, denom);
+  }
+
+  public static int hashCode(long num, long denom) {
+    //Hash code of the fraction num/denom, given in canonical form, without
+    //creating it
     //Intellij's default hashing function
-    int result = num;
-    result = 31 * result + denom;
+    int result = Long.hashCode(num);
+    result = 31 * result + Long.hashCode(denom);
     return result;
   }
 }
-
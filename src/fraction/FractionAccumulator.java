@@ -0,0 +1,125 @@
+package fraction;
+
+import java.math.BigInteger;
+
+public class FractionAccumulator {
+  //Running sum for dot products and row updates. Terms are brought over a
+  //common denominator (the lcm of the denominators seen so far), but the sum
+  //itself is only reduced once, when toFraction() is called. As in Fraction,
+  //the sum is kept in longs until it overflows, and in BigIntegers after that.
+  //An accumulator is meant to be reused (see reset()) and isn't thread safe
+  private long num;
+  private long denom;
+  private BigInteger bigNum;
+  private BigInteger bigDenom;
+  //Scratch pair for products
+  private final long[] product = new long[2];
+
+  public FractionAccumulator() {
+    reset();
+  }
+
+  public FractionAccumulator reset() {
+    //Sets the sum back to zero
+    num = 0;
+    denom = 1;
+    bigNum = null;
+    bigDenom = null;
+    return this;
+  }
+
+  public FractionAccumulator add(Fraction f) {
+    if (f.isZero()) {
+      return this;
+    }
+    if (bigNum == null && f.isLong() && addLong(f.getNum(), f.getDenom())) {
+      return this;
+    }
+    addBig(f.getBigNum(), f.getBigDenom());
+    return this;
+  }
+
+  public FractionAccumulator addProduct(Fraction f1, Fraction f2) {
+    //Adds f1 * f2 to the sum. The product is cross-cancelled as in
+    //Fraction.multiplyRaw, so the sum only moves to BigIntegers if the
+    //reduced product or the sum itself doesn't fit in a long
+    if (f1.isZero() || f2.isZero()) {
+      return this;
+    }
+    if (bigNum == null && f1.isLong() && f2.isLong()
+        && Fraction.multiplyRaw(f1.getNum(), f1.getDenom(), f2.getNum(),
+        f2.getDenom(), product)
+        && addLong(product[0], product[1])) {
+      return this;
+    }
+    addBig(f1.getBigNum().multiply(f2.getBigNum()),
+        f1.getBigDenom().multiply(f2.getBigDenom()));
+    return this;
+  }
+
+  boolean isBig() {
+    //True once the sum has moved to BigIntegers
+    return bigNum != null;
+  }
+
+  public Fraction toFraction() {
+    //Reduces the sum, leaving the accumulator unchanged
+    if (bigNum != null) {
+      return Fraction.valueOf(bigNum, bigDenom);
+    }
+    return Fraction.valueOf(num, denom);
+  }
+
+  private boolean addLong(long n, long d) {
+    //Pre: d > 0
+    //Post: adds n/d and returns true, or returns false and leaves the sum
+    //untouched if that overflows
+    long newNum;
+    long newDenom;
+    if (denom % d == 0) {
+      //Common case, d already divides the running denominator (always true
+      //for integers)
+      long term = n * (denom / d);
+      if (Fraction.mulOverflows(n, denom / d, term)) {
+        return false;
+      }
+      newNum = num + term;
+      if (Fraction.addOverflows(num, term, newNum)) {
+        return false;
+      }
+      newDenom = denom;
+    } else {
+      long greatestComDiv = Fraction.gcd(denom, d);
+      long scale = d / greatestComDiv;
+      long termScale = denom / greatestComDiv;
+      newDenom = denom * scale;
+      long term1 = num * scale;
+      long term2 = n * termScale;
+      if (Fraction.mulOverflows(denom, scale, newDenom)
+          || Fraction.mulOverflows(num, scale, term1)
+          || Fraction.mulOverflows(n, termScale, term2)) {
+        return false;
+      }
+      newNum = term1 + term2;
+      if (Fraction.addOverflows(term1, term2, newNum)) {
+        return false;
+      }
+    }
+    num = newNum;
+    denom = newDenom;
+    return true;
+  }
+
+  private void addBig(BigInteger n, BigInteger d) {
+    //Pre: d > 0
+    if (bigNum == null) {
+      bigNum = BigInteger.valueOf(num);
+      bigDenom = BigInteger.valueOf(denom);
+    }
+    BigInteger greatestComDiv = bigDenom.gcd(d);
+    BigInteger scale = d.divide(greatestComDiv);
+    bigNum = bigNum.multiply(scale)
+        .add(n.multiply(bigDenom.divide(greatestComDiv)));
+    bigDenom = bigDenom.multiply(scale);
+  }
+}
@@ -2,6 +2,8 @@ package fraction;
 
 import org.junit.Test;
 
+import java.math.BigInteger;
+
 import static fraction.Fraction.gcd;
 import static fraction.Fraction.lcm;
 import static org.junit.Assert.*;
@@ -30,6 +32,9 @@ public class FractionTest {
     assertTrue(gcd(1, 1000) == 1);
     assertTrue(gcd(12, 36) == 12);
     assertTrue(gcd(342, 66) == 6);
+    assertTrue(gcd(0, 7) == 7);
+    assertTrue(gcd(1L << 40, 3L << 20) == 1L << 20);
+    assertTrue(gcd(Long.MAX_VALUE, 49) == 49);
   }
 
   @Test
@@ -39,6 +44,7 @@ public class FractionTest {
     assertTrue(lcm(7, 13) == 91);
     assertTrue(lcm(128, 336) == 2688);
     assertTrue(lcm(12, 16) == 48);
+    assertTrue(lcm(0, 16) == 0);
   }
 
   @Test
@@ -77,4 +83,77 @@ public class FractionTest {
     }
   }
 
-}
\ No newline at end of file
+  @Test
+  public void overflowTest() throws Exception {
+    Fraction big = new Fraction(Long.MAX_VALUE, 3);
+    Fraction square = big.multiply(big);
+    BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+    assertFalse(square.isLong());
+    assertEquals(square.getBigNum(), max.multiply(max));
+    assertEquals(square.getBigDenom(), BigInteger.valueOf(9));
+    //Going back into range returns to the long representation
+    assertEquals(square.divide(big), big);
+    assertTrue(square.divide(big).isLong());
+    assertEquals(big.add(big).subtract(big), big);
+    assertEquals(new Fraction(Long.MIN_VALUE).negate().add(new Fraction(-1)),
+        new Fraction(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void rawKernelTest() throws Exception {
+    long[] res = new long[2];
+    assertTrue(Fraction.addRaw(1, 6, 1, 10, res));
+    assertTrue(res[0] == 4 && res[1] == 15);
+    assertTrue(Fraction.multiplyRaw(-4, 15, 5, 8, res));
+    assertTrue(res[0] == -1 && res[1] == 6);
+    assertTrue(Fraction.addProductRaw(1, 2, 1, 3, 3, 4, res));
+    assertTrue(res[0] == 3 && res[1] == 4);
+    //Overflow is reported and the result is left untouched
+    assertFalse(Fraction.multiplyRaw(Long.MAX_VALUE, 1, 2, 1, res));
+    assertFalse(Fraction.addRaw(Long.MAX_VALUE, 1, 1, 1, res));
+    assertTrue(res[0] == 3 && res[1] == 4);
+  }
+
+  @Test
+  public void accumulatorTest() throws Exception {
+    FractionAccumulator acc = new FractionAccumulator();
+    acc.add(frac1).addProduct(frac3, frac4).add(frac5);
+    assertEquals(acc.toFraction(),
+        frac1.add(frac3.multiply(frac4)).add(frac5));
+    assertEquals(acc.reset().toFraction(), new Fraction(0));
+    //Sums which overflow a long carry on exactly
+    Fraction big = new Fraction(Long.MAX_VALUE, 7);
+    acc.addProduct(big, big).add(big).addProduct(big, big.negate());
+    assertEquals(acc.toFraction(), big);
+    //Products which cancel down to small values stay in longs
+    Fraction a = new Fraction(Long.MAX_VALUE, Long.MAX_VALUE - 1);
+    Fraction b = new Fraction(Long.MAX_VALUE - 1, Long.MAX_VALUE);
+    acc.reset().addProduct(a, b).addProduct(b, a).add(frac1);
+    assertFalse(acc.isBig());
+    assertEquals(acc.toFraction(), new Fraction(2).add(frac1));
+  }
+
+
+  @Test
+  public void valueOfTest() throws Exception {
+    //Small values are shared, whichever way they are produced
+    assertSame(Fraction.valueOf(-1), Fraction.valueOf(2, -2));
+    assertSame(Fraction.valueOf(3, 7), Fraction.valueOf(-6, -14));
+    assertSame(Fraction.valueOf(0), Fraction.valueOf(0, -5));
+    assertSame(frac3.add(frac5), Fraction.valueOf(1));
+    assertSame(frac4.negate(), Fraction.valueOf(3, 7));
+    assertSame(frac4.reciprocal(), Fraction.valueOf(-7, 3));
+    assertSame(Fraction.valueOf(BigInteger.valueOf(-10), BigInteger.TEN),
+        Fraction.valueOf(-1));
+    //Others are just equal
+    assertEquals(Fraction.valueOf(1000, 3), new Fraction(1000, 3));
+    assertEquals(Fraction.valueOf(Long.MIN_VALUE, 2),
+        new Fraction(Long.MIN_VALUE / 2));
+    assertEquals(Fraction.valueOf(Long.MIN_VALUE),
+        new Fraction(BigInteger.valueOf(Long.MIN_VALUE), BigInteger.ONE));
+    //Simplifying a shared fraction doesn't change it
+    Fraction half = Fraction.valueOf(-1, 2);
+    half.simplify();
+    assertEquals(half, new Fraction(-1, 2));
+  }
+}
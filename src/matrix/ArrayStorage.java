@@ -0,0 +1,43 @@
+package matrix;
+
+import fraction.Fraction;
+
+class ArrayStorage extends MatrixStorage {
+  //Every entry is a Fraction object in an array of rows
+  private final Fraction[][] matrix;
+
+  ArrayStorage(Fraction[][] matrix) {
+    this.matrix = matrix;
+  }
+
+  @Override
+  int nRows() {
+    return matrix.length;
+  }
+
+  @Override
+  int nCols() {
+    return matrix[0].length;
+  }
+
+  @Override
+  Fraction get(int r, int c) {
+    return matrix[r][c];
+  }
+
+  @Override
+  Fraction[][] toArray() {
+    //Copy the matrix into a new array to prevent changes in the matrix to be
+    //reflected on the stored matrix
+    Fraction[][] matrixCopy = new Fraction[matrix.length][matrix[0].length];
+    for (int i = 0; i < matrix.length; i++) {
+      System.arraycopy(matrix[i], 0, matrixCopy[i], 0, matrix[0].length);
+    }
+    return matrixCopy;
+  }
+
+  @Override
+  Fraction[][] asArray() {
+    return matrix;
+  }
+}
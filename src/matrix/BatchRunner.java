@@ -0,0 +1,238 @@
+package matrix;
+
+import javax.naming.OperationNotSupportedException;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchRunner {
+  //Runs a stream of jobs, one per line:
+  //  det A | inv A | rank A | mul A | B | solve A | solve A | B
+  //Operands are separated by '|'. An operand is either a file, as @path
+  //(relative to the base directory), read with a MatrixReader, or an inline
+  //matrix whose rows are separated by ';' (e.g. "1 2; 3 4"). "solve A"
+  //takes A as an augmented system, "solve A | B" solves A x = b for every
+  //column b of B. Blank lines and lines starting with '#' are skipped.
+  //Jobs run on a fixed pool of worker threads. At most maxPending jobs are
+  //in flight: once that many are waiting, reading stops until the oldest
+  //one is written out, so memory stays bounded whatever the input size.
+  //Results are written in input order, each one under a header with its
+  //line number, operation and running time, followed by a blank line:
+  //  line 3: det (0.215 ms)
+  //  900
+  private static final String OPERAND_SEPARATOR = "\\|";
+
+  private final int nThreads;
+  private final int maxPending;
+  private final Path baseDir;
+
+  //Readers and writers reuse their buffers, so each worker has its own
+  private final ThreadLocal<MatrixReader> readers =
+      ThreadLocal.withInitial(MatrixReader::new);
+  private final ThreadLocal<MatrixWriter> writers =
+      ThreadLocal.withInitial(MatrixWriter::new);
+
+  public BatchRunner(int nThreads, int maxPending, Path baseDir) {
+    if (nThreads < 1 || maxPending < 1) {
+      throw new IllegalArgumentException("There must be at least one " +
+          "thread and one pending job");
+    }
+    this.nThreads = nThreads;
+    this.maxPending = maxPending;
+    this.baseDir = baseDir;
+  }
+
+  public int run(BufferedReader jobs, Writer out)
+      throws IOException, InterruptedException {
+    //Runs every job in jobs, writing the results to out, and returns how
+    //many of them failed. out is flushed but not closed
+    ExecutorService workers = Executors.newFixedThreadPool(nThreads);
+    Deque<Future<Result>> pending = new ArrayDeque<>();
+    int failed = 0;
+    try {
+      String line;
+      int lineNumber = 0;
+      while ((line = jobs.readLine()) != null) {
+        lineNumber++;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        if (pending.size() == maxPending) {
+          //Backpressure: wait for the oldest job before reading more
+          failed += write(pending.poll(), out);
+        }
+        pending.add(workers.submit(new Job(lineNumber, line)));
+        //Write whatever is already done, without waiting
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+          failed += write(pending.poll(), out);
+        }
+      }
+      while (!pending.isEmpty()) {
+        failed += write(pending.poll(), out);
+      }
+    } finally {
+      workers.shutdownNow();
+    }
+    out.flush();
+    return failed;
+  }
+
+  private static int write(Future<Result> job, Writer out)
+      throws IOException, InterruptedException {
+    //Writes the result of job, waiting for it if needed. Returns 1 if the
+    //job failed, 0 otherwise
+    if (!job.isDone()) {
+      //Let earlier results out while this one is computed
+      out.flush();
+    }
+    Result result;
+    try {
+      result = job.get();
+    } catch (ExecutionException e) {
+      //Jobs catch their own exceptions, so this is a bug
+      throw new IllegalStateException(e.getCause());
+    }
+    out.write(result.text);
+    return result.failed ? 1 : 0;
+  }
+
+  private static class Result {
+    private final String text;
+    private final boolean failed;
+
+    Result(String text, boolean failed) {
+      this.text = text;
+      this.failed = failed;
+    }
+  }
+
+  private class Job implements Callable<Result> {
+    private final int lineNumber;
+    private final String line;
+
+    Job(int lineNumber, String line) {
+      this.lineNumber = lineNumber;
+      this.line = line;
+    }
+
+    @Override
+    public Result call() {
+      //Parsing the operands is part of the job, so that it runs in parallel
+      //as well, and is included in the time
+      long start = System.nanoTime();
+      String op = line.split("\\s+", 2)[0];
+      StringWriter body = new StringWriter();
+      boolean failed = false;
+      try {
+        Matrix[] operands = operands(line.substring(op.length()));
+        run(op.toLowerCase(), operands, body);
+      } catch (Exception e) {
+        //Reported with the job, so that one bad job doesn't stop the batch
+        body.getBuffer().setLength(0);
+        body.write("error: " + e.getMessage());
+        failed = true;
+      }
+      double millis = (System.nanoTime() - start) / 1e6;
+      String header = String.format(Locale.ROOT, "line %d: %s (%.3f ms)%n",
+          lineNumber, op, millis);
+      return new Result(header + body + System.lineSeparator()
+          + System.lineSeparator(), failed);
+    }
+
+    private void run(String op, Matrix[] operands, Writer out)
+        throws IOException, OperationNotSupportedException {
+      MatrixWriter writer = writers.get();
+      switch (op) {
+        case "det":
+          checkOperands(op, operands, 1);
+          writer.appendFraction(operands[0].determinant(), out);
+          break;
+        case "inv":
+          checkOperands(op, operands, 1);
+          Matrix inverse = operands[0].getInverse();
+          if (inverse == null) {
+            out.write("Singular matrix, no inverse");
+          } else {
+            writer.write(inverse, out);
+          }
+          break;
+        case "rank":
+          checkOperands(op, operands, 1);
+          writer.appendLong(operands[0].rank(), out);
+          break;
+        case "mul":
+          checkOperands(op, operands, 2);
+          writer.write(operands[0].multiply(operands[1]), out);
+          break;
+        case "solve":
+          LEQSSolution[] solutions;
+          if (operands.length == 1) {
+            //Augmented system, whose last column is the right hand side
+            Matrix m = operands[0];
+            if (m.nCols() < 2) {
+              throw new OperationNotSupportedException("An augmented " +
+                  "system needs at least two columns");
+            }
+            solutions = m.subMatrix(0, m.nRows(), 0, m.nCols() - 1)
+                .solveSystems(m.column(m.nCols() - 1), null);
+          } else {
+            checkOperands(op, operands, 2);
+            solutions = operands[0].solveSystems(operands[1], null);
+          }
+          for (int i = 0; i < solutions.length; i++) {
+            if (i > 0) {
+              out.write(System.lineSeparator());
+            }
+            writer.write(solutions[i], out);
+          }
+          break;
+        default:
+          throw new OperationNotSupportedException("Unknown operation " +
+              op);
+      }
+    }
+
+    private Matrix[] operands(String text) throws IOException {
+      String[] parts = text.split(OPERAND_SEPARATOR, -1);
+      Matrix[] operands = new Matrix[parts.length];
+      MatrixReader reader = readers.get();
+      for (int i = 0; i < parts.length; i++) {
+        String part = parts[i].trim();
+        if (part.startsWith("@")) {
+          Path path = Path.of(part.substring(1).trim());
+          operands[i] = reader.read(baseDir == null ? path
+              : baseDir.resolve(path));
+        } else {
+          operands[i] = reader.read(new ByteArrayInputStream(
+              part.replace(';', '\n').getBytes(StandardCharsets.UTF_8)));
+        }
+        if (operands[i] == null) {
+          throw new MatrixFormatException("Operand " + (i + 1) + " is " +
+              "empty", lineNumber, 1);
+        }
+      }
+      return operands;
+    }
+  }
+
+  private static void checkOperands(String op, Matrix[] operands, int count)
+      throws OperationNotSupportedException {
+    if (operands.length != count) {
+      throw new OperationNotSupportedException(op + " takes " + count +
+          " operand" + (count == 1 ? "" : "s") + ", not " + operands.length);
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package matrix;
+
+import fraction.Fraction;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BinaryMatrixFormat {
+  //Compact binary files for matrices, much faster to write and load than
+  //text. All values are little-endian:
+  //  - Header (24 bytes): the magic "MTRX", version, rows, columns, width and
+  //    a reserved 0, as int32
+  //  - Numerators of the entries in row-major order, then their
+  //    denominators, as int32 or int64 depending on width (4 or 8). Entries
+  //    are reduced, with positive denominators
+  //  - Entries which don't fit in an int64 have a 0 numerator and
+  //    denominator above, and come last as: int32 count, and for each one
+  //    its int32 index, then numerator and denominator as an int32 length
+  //    followed by BigInteger.toByteArray() bytes
+  public static final int VERSION = 1;
+  private static final byte[] MAGIC = {'M', 'T', 'R', 'X'};
+  private static final int HEADER_SIZE = 24;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private BinaryMatrixFormat() {
+  }
+
+  public static void write(Matrix m, Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      write(m, channel);
+    }
+  }
+
+  public static void write(Matrix m, WritableByteChannel channel)
+      throws IOException {
+    MatrixStorage storage = m.storage();
+    int nRows = storage.nRows();
+    int nCols = storage.nCols();
+    //Find the narrowest width, and the entries which need BigIntegers
+    long[] raw = new long[2];
+    List<Integer> wideIdx = new ArrayList<>();
+    int width = Integer.BYTES;
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < nCols; j++) {
+        if (!storage.getRaw(i, j, raw)) {
+          wideIdx.add(i * nCols + j);
+        } else if (raw[0] != (int) raw[0] || raw[1] != (int) raw[1]) {
+          width = Long.BYTES;
+        }
+      }
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(MAGIC).putInt(VERSION).putInt(nRows).putInt(nCols)
+        .putInt(width).putInt(0);
+    for (int column = 0; column < 2; column++) {
+      for (int i = 0; i < nRows; i++) {
+        for (int j = 0; j < nCols; j++) {
+          if (buffer.remaining() < Long.BYTES) {
+            flush(buffer, channel);
+          }
+          long value = storage.getRaw(i, j, raw) ? raw[column] : 0;
+          if (width == Long.BYTES) {
+            buffer.putLong(value);
+          } else {
+            buffer.putInt((int) value);
+          }
+        }
+      }
+    }
+    if (!wideIdx.isEmpty()) {
+      flush(buffer, channel);
+      buffer.putInt(wideIdx.size());
+      for (int idx : wideIdx) {
+        Fraction f = storage.get(idx / nCols, idx % nCols);
+        byte[] num = f.getBigNum().toByteArray();
+        byte[] denom = f.getBigDenom().toByteArray();
+        buffer = ensureRemaining(buffer, channel,
+            3 * Integer.BYTES + num.length + denom.length);
+        buffer.putInt(idx).putInt(num.length).put(num)
+            .putInt(denom.length).put(denom);
+      }
+    }
+    flush(buffer, channel);
+  }
+
+  private static void flush(ByteBuffer buffer, WritableByteChannel channel)
+      throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static ByteBuffer ensureRemaining(ByteBuffer buffer,
+                                            WritableByteChannel channel,
+                                            int bytes) throws IOException {
+    //Returns a buffer with room for the given number of bytes, which may be
+    //a bigger one for huge BigIntegers
+    if (buffer.remaining() >= bytes) {
+      return buffer;
+    }
+    flush(buffer, channel);
+    if (buffer.capacity() >= bytes) {
+      return buffer;
+    }
+    return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  public static Matrix map(Path path) throws IOException {
+    //Returns a read-only matrix backed by the memory-mapped file, without
+    //copying its entries onto the heap. The file must not be modified while
+    //the matrix is in use
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new IOException("Not a matrix file: " + path);
+      }
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+          HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      for (byte b : MAGIC) {
+        if (header.get() != b) {
+          throw new IOException("Not a matrix file: " + path);
+        }
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported matrix file version " + version);
+      }
+      int nRows = header.getInt();
+      int nCols = header.getInt();
+      int width = header.getInt();
+      if (nRows <= 0 || nCols <= 0
+          || (width != Integer.BYTES && width != Long.BYTES)) {
+        throw new IOException("Corrupt matrix file header: " + path);
+      }
+      long columnSize = (long) nRows * nCols * width;
+      //Each column is mapped on its own, and a mapping is at most 2GB
+      if (columnSize > Integer.MAX_VALUE) {
+        throw new IOException("Matrix is too large to be mapped");
+      }
+      if (size < HEADER_SIZE + 2 * columnSize) {
+        throw new IOException("Truncated matrix file: " + path);
+      }
+      ByteBuffer nums = channel.map(FileChannel.MapMode.READ_ONLY,
+          HEADER_SIZE, columnSize).order(ByteOrder.LITTLE_ENDIAN);
+      ByteBuffer denoms = channel.map(FileChannel.MapMode.READ_ONLY,
+          HEADER_SIZE + columnSize, columnSize).order(ByteOrder.LITTLE_ENDIAN);
+      Map<Integer, Fraction> wide = new HashMap<>();
+      long wideStart = HEADER_SIZE + 2 * columnSize;
+      if (size > wideStart) {
+        ByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY,
+            wideStart, size - wideStart).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+          int count = tail.getInt();
+          for (int k = 0; k < count; k++) {
+            int idx = tail.getInt();
+            BigInteger num = readBigInteger(tail);
+            wide.put(idx, Fraction.valueOf(num, readBigInteger(tail)));
+          }
+        } catch (RuntimeException e) {
+          //Truncated or negative lengths, or a zero denominator
+          throw new IOException("Corrupt wide entries: " + path, e);
+        }
+      }
+      checkCanonical(nRows * nCols, width, nums, denoms, wide, path);
+      return new Matrix(new MappedStorage(nRows, nCols, width, nums, denoms,
+          wide));
+    }
+  }
+
+  private static void checkCanonical(int size, int width, ByteBuffer nums,
+                                     ByteBuffer denoms,
+                                     Map<Integer, Fraction> wide, Path path)
+      throws IOException {
+    //The mapped values are handed to the raw Fraction kernels as they are,
+    //so they must be in canonical form (see Fraction.addRaw), and every 0
+    //denominator must have its wide entry. Files which aren't are rejected
+    //here rather than giving wrong results later
+    for (int idx = 0; idx < size; idx++) {
+      long num = width == Long.BYTES ? nums.getLong(idx * Long.BYTES)
+          : nums.getInt(idx * Integer.BYTES);
+      long denom = width == Long.BYTES ? denoms.getLong(idx * Long.BYTES)
+          : denoms.getInt(idx * Integer.BYTES);
+      if (denom == 0 ? !wide.containsKey(idx) : denom < 0
+          || num == Long.MIN_VALUE || Fraction.gcd(Math.abs(num), denom) != 1) {
+        throw new IOException("Corrupt matrix entry " + idx + ": " + path);
+      }
+    }
+    for (int idx : wide.keySet()) {
+      if (idx < 0 || idx >= size) {
+        throw new IOException("Corrupt wide entry " + idx + ": " + path);
+      }
+    }
+  }
+
+  public static Matrix load(Path path) throws IOException {
+    //Reads the file into a flat matrix on the heap
+    return map(path).toFlat();
+  }
+
+  private static BigInteger readBigInteger(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new BigInteger(bytes);
+  }
+}
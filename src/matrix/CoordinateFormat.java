@@ -0,0 +1,14 @@
+package matrix;
+
+public enum CoordinateFormat {
+  //Text formats listing only the non-zero entries, one per line
+
+  //MatrixMarket coordinate files: a "%%MatrixMarket matrix coordinate" banner
+  //with an integer or rational field and general, symmetric or
+  //skew-symmetric symmetry, '%' comments, a "rows columns entries" line and
+  //then 1-based "row column value" lines
+  MATRIX_MARKET,
+  //Bare 0-based "row column value" lines. The dimensions are those of the
+  //largest indices, unless they are given
+  TRIPLETS
+}
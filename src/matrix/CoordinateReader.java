@@ -0,0 +1,296 @@
+package matrix;
+
+import fraction.Fraction;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CoordinateReader {
+  //Reads matrices in a CoordinateFormat, either into a SparseMatrix or into
+  //a dense flat Matrix. The text is streamed through a FractionTokenizer,
+  //and entries are buffered as primitives until the matrix is built.
+  //Malformed input throws a MatrixFormatException with its line and column.
+  //A reader reuses its buffers between reads, so it isn't thread-safe
+  private static final String BANNER = "%%MatrixMarket";
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private final FractionTokenizer tokenizer = new FractionTokenizer(null);
+
+  //Entries read so far. Values which don't fit in a long are kept in wide,
+  //by entry index, and have a 0 denominator
+  private int[] rows;
+  private int[] cols;
+  private long[] nums;
+  private long[] denoms;
+  private Map<Integer, Fraction> wide;
+  private int size;
+  private int nRows;
+  private int nCols;
+
+  public SparseMatrix readSparse(Path path, CoordinateFormat format)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.READ)) {
+      return readSparse(channel, format);
+    }
+  }
+
+  public SparseMatrix readSparse(ReadableByteChannel channel,
+                                 CoordinateFormat format) throws IOException {
+    read(channel, format, 0, 0);
+    return toSparse();
+  }
+
+  public SparseMatrix readSparse(ReadableByteChannel channel, int nRows,
+                                 int nCols) throws IOException {
+    //Reads triplets into a matrix of the given dimensions
+    read(channel, CoordinateFormat.TRIPLETS, nRows, nCols);
+    return toSparse();
+  }
+
+  private SparseMatrix toSparse() {
+    Fraction[] values = new Fraction[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = value(i);
+    }
+    SparseMatrix res = SparseMatrix.fromTriplets(nRows, nCols,
+        Arrays.copyOf(rows, size), Arrays.copyOf(cols, size), values);
+    clear();
+    return res;
+  }
+
+  public Matrix readDense(Path path, CoordinateFormat format)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.READ)) {
+      return readDense(channel, format);
+    }
+  }
+
+  public Matrix readDense(ReadableByteChannel channel,
+                          CoordinateFormat format) throws IOException {
+    //Entries at the same position are added up, like in
+    //SparseMatrix.fromTriplets
+    read(channel, format, 0, 0);
+    if ((long) nRows * nCols > Integer.MAX_VALUE) {
+      clear();
+      throw new MatrixFormatException("Matrix is too large to be dense", 1,
+          1);
+    }
+    long[] resNums = new long[nRows * nCols];
+    long[] resDenoms = new long[nRows * nCols];
+    Arrays.fill(resDenoms, 1);
+    Map<Integer, Fraction> resWide = new HashMap<>();
+    long[] sum = new long[2];
+    int idx;
+    for (int i = 0; i < size; i++) {
+      idx = rows[i] * nCols + cols[i];
+      if (resDenoms[idx] != 0 && denoms[i] != 0 && Fraction.addRaw(
+          resNums[idx], resDenoms[idx], nums[i], denoms[i], sum)) {
+        resNums[idx] = sum[0];
+        resDenoms[idx] = sum[1];
+      } else {
+        Fraction prev = resDenoms[idx] == 0 ? resWide.get(idx)
+            : Fraction.valueOf(resNums[idx], resDenoms[idx]);
+        resWide.put(idx, prev.add(value(i)));
+        resDenoms[idx] = 0;
+      }
+    }
+    FlatStorage storage = new FlatStorage(nRows, nCols, resNums, resDenoms);
+    for (Map.Entry<Integer, Fraction> e : resWide.entrySet()) {
+      storage.set(e.getKey(), e.getValue());
+    }
+    clear();
+    return new Matrix(storage);
+  }
+
+  private Fraction value(int i) {
+    return denoms[i] == 0 ? wide.get(i) : Fraction.valueOf(nums[i], denoms[i]);
+  }
+
+  private void clear() {
+    //Drops the buffered entries, so that they can be garbage collected
+    rows = null;
+    cols = null;
+    nums = null;
+    denoms = null;
+    wide = null;
+  }
+
+  private void read(ReadableByteChannel channel, CoordinateFormat format,
+                    int givenRows, int givenCols) throws IOException {
+    tokenizer.reset(channel);
+    rows = new int[INITIAL_CAPACITY];
+    cols = new int[INITIAL_CAPACITY];
+    nums = new long[INITIAL_CAPACITY];
+    denoms = new long[INITIAL_CAPACITY];
+    wide = new HashMap<>();
+    size = 0;
+    if (format == CoordinateFormat.MATRIX_MARKET) {
+      readMatrixMarket();
+    } else {
+      readTriplets(givenRows, givenCols);
+    }
+  }
+
+  private void readMatrixMarket() throws IOException {
+    //Banner: %%MatrixMarket matrix coordinate <field> <symmetry>
+    tokenizer.setCommentChar(-1);
+    String banner = tokenizer.readLine();
+    String[] words = banner == null ? new String[0]
+        : banner.trim().toLowerCase().split("\\s+");
+    if (words.length != 5 || !words[0].equals(BANNER.toLowerCase())
+        || !words[1].equals("matrix")) {
+      throw new MatrixFormatException("Expected a \"" + BANNER +
+          " matrix\" banner", 1, 1);
+    }
+    if (!words[2].equals("coordinate")) {
+      throw new MatrixFormatException("Only coordinate matrices are " +
+          "supported, not " + words[2], 1, 1);
+    }
+    boolean integer = words[3].equals("integer");
+    if (!integer && !words[3].equals("rational")) {
+      throw new MatrixFormatException("Only integer and rational entries " +
+          "are supported, not " + words[3], 1, 1);
+    }
+    boolean symmetric = words[4].equals("symmetric");
+    boolean skew = words[4].equals("skew-symmetric");
+    if (!symmetric && !skew && !words[4].equals("general")) {
+      throw new MatrixFormatException("Unknown symmetry " + words[4], 1, 1);
+    }
+
+    tokenizer.setCommentChar('%');
+    nRows = nextIndex("number of rows", 1, Integer.MAX_VALUE);
+    int sizeLine = tokenizer.line();
+    nCols = nextIndex("number of columns", 1, Integer.MAX_VALUE);
+    int nEntries = nextIndex("number of entries", 0, Integer.MAX_VALUE);
+    if (tokenizer.line() != sizeLine) {
+      throw new MatrixFormatException("Expected rows, columns and entries " +
+          "on one line", tokenizer.line(), tokenizer.column());
+    }
+    if ((symmetric || skew) && nRows != nCols) {
+      throw new MatrixFormatException("Symmetric matrices must be square",
+          sizeLine, 1);
+    }
+    for (int k = 0; k < nEntries; k++) {
+      //Indices are 1-based
+      int r = nextIndex("row", 1, nRows) - 1;
+      int line = tokenizer.line();
+      int c = nextIndex("column", 1, nCols) - 1;
+      if ((symmetric || skew) && c > r) {
+        throw new MatrixFormatException("Symmetric matrices only list " +
+            "entries on and below the diagonal", tokenizer.line(),
+            tokenizer.column());
+      }
+      nextValue(line, integer);
+      add(r, c);
+      if (r != c && (symmetric || skew)) {
+        addMirror(skew);
+      }
+    }
+    if (tokenizer.next()) {
+      throw new MatrixFormatException("More than " + nEntries + " entries",
+          tokenizer.line(), tokenizer.column());
+    }
+  }
+
+  private void readTriplets(int givenRows, int givenCols) throws IOException {
+    tokenizer.setCommentChar('#');
+    int maxRow = -1;
+    int maxCol = -1;
+    int rowLimit = givenRows > 0 ? givenRows - 1 : Integer.MAX_VALUE - 1;
+    int colLimit = givenCols > 0 ? givenCols - 1 : Integer.MAX_VALUE - 1;
+    while (tokenizer.next()) {
+      int r = index("row", 0, rowLimit);
+      int line = tokenizer.line();
+      int c = nextIndex("column", 0, colLimit);
+      nextValue(line, false);
+      add(r, c);
+      maxRow = Math.max(maxRow, r);
+      maxCol = Math.max(maxCol, c);
+    }
+    nRows = givenRows > 0 ? givenRows : maxRow + 1;
+    nCols = givenCols > 0 ? givenCols : maxCol + 1;
+    if (nRows < 1 || nCols < 1) {
+      throw new MatrixFormatException("No entries, so the dimensions are " +
+          "unknown", tokenizer.line(), tokenizer.column());
+    }
+  }
+
+  private int nextIndex(String what, int min, int max) throws IOException {
+    if (!tokenizer.next()) {
+      throw new MatrixFormatException("Expected the " + what + " but the " +
+          "input ended", tokenizer.line(), tokenizer.column());
+    }
+    return index(what, min, max);
+  }
+
+  private int index(String what, int min, int max) {
+    //Current token as an integer between min and max
+    if (!tokenizer.isLong() || tokenizer.denom() != 1
+        || tokenizer.num() < min || tokenizer.num() > max) {
+      throw new MatrixFormatException("Invalid " + what, tokenizer.line(),
+          tokenizer.column());
+    }
+    return (int) tokenizer.num();
+  }
+
+  private void nextValue(int line, boolean integer) throws IOException {
+    //Reads the value of the entry started on line into the next free slot
+    //of the buffers, which add() then completes
+    if (!tokenizer.next() || tokenizer.line() != line) {
+      throw new MatrixFormatException("Expected row, column and value on " +
+          "one line", line, 1);
+    }
+    Fraction f = tokenizer.isLong() ? null : tokenizer.toFraction();
+    if (integer && (f == null ? tokenizer.denom() != 1
+        : !f.getBigDenom().equals(BigInteger.ONE))) {
+      throw new MatrixFormatException("Expected an integer",
+          tokenizer.line(), tokenizer.column());
+    }
+    //Leave room for a mirrored entry too
+    if (size + 2 > rows.length) {
+      int capacity = 2 * rows.length;
+      rows = Arrays.copyOf(rows, capacity);
+      cols = Arrays.copyOf(cols, capacity);
+      nums = Arrays.copyOf(nums, capacity);
+      denoms = Arrays.copyOf(denoms, capacity);
+    }
+    if (f == null) {
+      nums[size] = tokenizer.num();
+      denoms[size] = tokenizer.denom();
+    } else {
+      nums[size] = 0;
+      denoms[size] = 0;
+      wide.put(size, f);
+    }
+  }
+
+  private void add(int r, int c) {
+    rows[size] = r;
+    cols[size] = c;
+    size++;
+  }
+
+  private void addMirror(boolean negate) {
+    //Adds the transposed copy of the last entry, negated for skew-symmetric
+    //matrices
+    int last = size - 1;
+    if (denoms[last] != 0 && !(negate && nums[last] == Long.MIN_VALUE)) {
+      nums[size] = negate ? -nums[last] : nums[last];
+      denoms[size] = denoms[last];
+    } else {
+      nums[size] = 0;
+      denoms[size] = 0;
+      wide.put(size, negate ? value(last).negate() : value(last));
+    }
+    add(cols[last], rows[last]);
+  }
+}
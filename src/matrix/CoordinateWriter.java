@@ -0,0 +1,109 @@
+package matrix;
+
+import fraction.Fraction;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CoordinateWriter {
+  //Writes matrices in a CoordinateFormat, one row at a time, so that they
+  //can be read back by CoordinateReader. Only non-zero entries are written.
+  //MatrixMarket files are always general, and their field is integer if
+  //every entry is an integer and rational otherwise. Numbers are formatted
+  //by a MatrixWriter
+
+  private CoordinateWriter() {
+  }
+
+  public static void write(SparseMatrix m, CoordinateFormat format, Path path)
+      throws IOException {
+    try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      write(m, format, out);
+    }
+  }
+
+  public static void write(SparseMatrix m, CoordinateFormat format,
+                           Writer out) throws IOException {
+    if (format == CoordinateFormat.MATRIX_MARKET) {
+      boolean integer = true;
+      for (int i = 0; i < m.nonZeros() && integer; i++) {
+        integer = isInteger(m.entryValue(i));
+      }
+      writeHeader(out, m.nRows(), m.nCols(), m.nonZeros(), integer);
+    }
+    int base = format == CoordinateFormat.MATRIX_MARKET ? 1 : 0;
+    MatrixWriter numbers = new MatrixWriter();
+    for (int r = 0; r < m.nRows(); r++) {
+      for (int i = m.rowStart(r); i < m.rowStart(r + 1); i++) {
+        writeEntry(numbers, out, r + base, m.entryCol(i) + base,
+            m.entryValue(i));
+      }
+    }
+    out.flush();
+  }
+
+  public static void write(Matrix m, CoordinateFormat format, Path path)
+      throws IOException {
+    try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      write(m, format, out);
+    }
+  }
+
+  public static void write(Matrix m, CoordinateFormat format, Writer out)
+      throws IOException {
+    if (format == CoordinateFormat.MATRIX_MARKET) {
+      //The header needs the number of non-zeros before any entry
+      int nonZeros = 0;
+      boolean integer = true;
+      for (int r = 0; r < m.nRows(); r++) {
+        for (int c = 0; c < m.nCols(); c++) {
+          Fraction f = m.get(r, c);
+          if (!f.isZero()) {
+            nonZeros++;
+            integer &= isInteger(f);
+          }
+        }
+      }
+      writeHeader(out, m.nRows(), m.nCols(), nonZeros, integer);
+    }
+    int base = format == CoordinateFormat.MATRIX_MARKET ? 1 : 0;
+    MatrixWriter numbers = new MatrixWriter();
+    for (int r = 0; r < m.nRows(); r++) {
+      for (int c = 0; c < m.nCols(); c++) {
+        Fraction f = m.get(r, c);
+        if (!f.isZero()) {
+          writeEntry(numbers, out, r + base, c + base, f);
+        }
+      }
+    }
+    out.flush();
+  }
+
+  private static boolean isInteger(Fraction f) {
+    return f.isLong() ? f.getDenom() == 1
+        : f.getBigDenom().equals(BigInteger.ONE);
+  }
+
+  private static void writeHeader(Writer out, int nRows, int nCols,
+                                  int nonZeros, boolean integer)
+      throws IOException {
+    out.write("%%MatrixMarket matrix coordinate ");
+    out.write(integer ? "integer" : "rational");
+    out.write(" general\n");
+    out.write(nRows + " " + nCols + " " + nonZeros + "\n");
+  }
+
+  private static void writeEntry(MatrixWriter numbers, Writer out, int r,
+                                 int c, Fraction value) throws IOException {
+    numbers.appendLong(r, out);
+    out.write(' ');
+    numbers.appendLong(c, out);
+    out.write(' ');
+    numbers.appendFraction(value, out);
+    out.write('\n');
+  }
+}
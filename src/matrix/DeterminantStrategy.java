@@ -0,0 +1,12 @@
+package matrix;
+
+public enum DeterminantStrategy {
+  //Fraction-free elimination on integer-scaled rows, O(n^3). Default
+  BAREISS,
+  //Gaussian elimination over fractions, O(n^3)
+  GAUSS,
+  //Recursive Laplace expansion, O(n!). Only practical for small matrices
+  LAPLACE,
+  //Elimination modulo many primes in parallel, rebuilt with the CRT
+  MODULAR
+}
@@ -0,0 +1,124 @@
+package matrix;
+
+import fraction.Fraction;
+import fraction.FractionAccumulator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class EchelonSolver extends RecursiveAction {
+  //Reads the solutions of several systems sharing their coefficients off the
+  //row echelon form of [A|B]. Every column of B is back-substituted on its
+  //own, so the columns are split in halves between tasks
+
+  private static final Fraction zero = Fraction.valueOf(0);
+  private static final Fraction negOne = Fraction.valueOf(-1);
+
+  private final Fraction[][] echelon;
+  private final int[] pivotCols;
+  private final int nVars;
+  private final Fraction[][] general;
+  private final LEQSSolution[] solutions;
+  private final int from;
+  private final int to;
+
+  private EchelonSolver(Fraction[][] echelon, int[] pivotCols, int nVars,
+                        Fraction[][] general, LEQSSolution[] solutions,
+                        int from, int to) {
+    this.echelon = echelon;
+    this.pivotCols = pivotCols;
+    this.nVars = nVars;
+    this.general = general;
+    this.solutions = solutions;
+    this.from = from;
+    this.to = to;
+  }
+
+  static LEQSSolution[] solve(Fraction[][] echelon, int[] pivotCols,
+                              int nVars, ForkJoinPool pool) {
+    //Pre: echelon is in row echelon form over its first nVars columns, with
+    //the pivots of its rows in pivotCols, and every other column is the b of
+    //a system. If pool is null the columns are solved sequentially
+    int nSystems = echelon[0].length - nVars;
+    LEQSSolution[] solutions = new LEQSSolution[nSystems];
+    //Ax = 0 is the same for every system, so it is only solved once
+    Fraction[][] general = new Fraction[nVars - pivotCols.length][];
+    int solIdx = 0;
+    int row = 0;
+    for (int c = 0; c < nVars; c++) {
+      if (row < pivotCols.length && pivotCols[row] == c) {
+        row++;
+      } else {
+        general[solIdx++] = backSubstitute(echelon, pivotCols, nVars, -1, c);
+      }
+    }
+    EchelonSolver task = new EchelonSolver(echelon, pivotCols, nVars,
+        general, solutions, 0, nSystems);
+    if (pool == null || nSystems <= 1) {
+      task.compute();
+    } else {
+      pool.invoke(task);
+    }
+    return solutions;
+  }
+
+  @Override
+  protected void compute() {
+    if (to - from <= 1) {
+      for (int i = from; i < to; i++) {
+        solutions[i] = solveColumn(nVars + i);
+      }
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    invokeAll(new EchelonSolver(echelon, pivotCols, nVars, general, solutions,
+            from, mid),
+        new EchelonSolver(echelon, pivotCols, nVars, general, solutions,
+            mid, to));
+  }
+
+  private LEQSSolution solveColumn(int rhsCol) {
+    //Incompatible system when 0 times all variables gives something other
+    //than zero. Rows under the last pivot are all zeros on the left
+    for (int r = pivotCols.length; r < echelon.length; r++) {
+      if (!echelon[r][rhsCol].isZero()) {
+        return LEQSSolution.incompatible();
+      }
+    }
+    //Every solution gets its own copy, so they can't affect each other
+    Fraction[][] generalCopy = new Fraction[general.length][];
+    for (int i = 0; i < general.length; i++) {
+      generalCopy[i] = general[i].clone();
+    }
+    return new LEQSSolution(
+        backSubstitute(echelon, pivotCols, nVars, rhsCol, -1), generalCopy);
+  }
+
+  private static Fraction[] backSubstitute(Fraction[][] echelon,
+                                           int[] pivotCols, int nVars,
+                                           int rhsCol, int freeCol) {
+    //Solves the system whose b is the column rhsCol, or 0 if rhsCol is -1.
+    //Variables without a pivot are 0, except freeCol, which is set to -1
+    //(the -1 trick) to get a non trivial solution of Ax = 0
+    Fraction[] x = new Fraction[nVars];
+    Arrays.fill(x, zero);
+    if (freeCol >= 0) {
+      x[freeCol] = negOne;
+    }
+    FractionAccumulator sum = new FractionAccumulator();
+    int pivot;
+    for (int r = pivotCols.length - 1; r >= 0; r--) {
+      pivot = pivotCols[r];
+      sum.reset();
+      for (int j = pivot + 1; j < nVars; j++) {
+        if (!x[j].isZero()) {
+          sum.addProduct(echelon[r][j], x[j]);
+        }
+      }
+      Fraction b = rhsCol >= 0 ? echelon[r][rhsCol] : zero;
+      x[pivot] = b.subtract(sum.toFraction()).divide(echelon[r][pivot]);
+    }
+    return x;
+  }
+}
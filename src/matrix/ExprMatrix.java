@@ -0,0 +1,248 @@
+package matrix;
+
+import expr.ConstExpr;
+import expr.Expr;
+import expr.PowExpr;
+import expr.VariableExpr;
+import fraction.Fraction;
+
+import javax.naming.OperationNotSupportedException;
+import java.security.InvalidParameterException;
+
+public class ExprMatrix {
+  //Matrix of symbolic expressions, for parametric systems. Entries are
+  //combined with the Expr operations, which intern their results, so
+  //subexpressions shared between entries are shared nodes instead of
+  //copies, and simplifying them is done once. Immutable
+  private final Expr[][] entries;
+
+  public ExprMatrix(Expr[][] entries) {
+    //The array is kept, so it mustn't be modified afterwards
+    if (entries == null) {
+      throw new InvalidParameterException("Matrix can't be null");
+    }
+    this.entries = entries;
+  }
+
+  public static ExprMatrix of(Matrix m) {
+    //Entries must be fractions of ints, as those are the constants of expr
+    Expr[][] entries = new Expr[m.nRows()][m.nCols()];
+    for (int i = 0; i < m.nRows(); i++) {
+      for (int j = 0; j < m.nCols(); j++) {
+        entries[i][j] = constant(m.get(i, j));
+      }
+    }
+    return new ExprMatrix(entries);
+  }
+
+  private static Expr constant(Fraction f) {
+    if (!f.isLong() || f.getNum() != (int) f.getNum()
+        || f.getDenom() != (int) f.getDenom()) {
+      throw new ArithmeticException(f + " doesn't fit in int constants");
+    }
+    Expr num = ConstExpr.valueOf((int) f.getNum());
+    return f.getDenom() == 1 ? num
+        : num.divide(ConstExpr.valueOf((int) f.getDenom()));
+  }
+
+  public int nRows() {
+    return entries.length;
+  }
+
+  public int nCols() {
+    return entries.length == 0 ? 0 : entries[0].length;
+  }
+
+  public Expr get(int r, int c) {
+    return entries[r][c];
+  }
+
+  public ExprMatrix add(ExprMatrix other)
+      throws OperationNotSupportedException {
+    checkSameDimensions(other);
+    Expr[][] res = new Expr[nRows()][nCols()];
+    for (int i = 0; i < nRows(); i++) {
+      for (int j = 0; j < nCols(); j++) {
+        res[i][j] = entries[i][j].add(other.entries[i][j]).simplify();
+      }
+    }
+    return new ExprMatrix(res);
+  }
+
+  public ExprMatrix subtract(ExprMatrix other)
+      throws OperationNotSupportedException {
+    checkSameDimensions(other);
+    Expr[][] res = new Expr[nRows()][nCols()];
+    for (int i = 0; i < nRows(); i++) {
+      for (int j = 0; j < nCols(); j++) {
+        res[i][j] = entries[i][j].subtract(other.entries[i][j]).simplify();
+      }
+    }
+    return new ExprMatrix(res);
+  }
+
+  public ExprMatrix scalarMult(Expr k) {
+    Expr[][] res = new Expr[nRows()][nCols()];
+    for (int i = 0; i < nRows(); i++) {
+      for (int j = 0; j < nCols(); j++) {
+        res[i][j] = k.multiply(entries[i][j]).simplify();
+      }
+    }
+    return new ExprMatrix(res);
+  }
+
+  public ExprMatrix multiply(ExprMatrix other)
+      throws OperationNotSupportedException {
+    if (other.nRows() != nCols()) {
+      throw new OperationNotSupportedException("Adjacent matrix" +
+          " dimensions don't match");
+    }
+    Expr[][] res = new Expr[nRows()][other.nCols()];
+    Expr[] column = new Expr[nCols()];
+    for (int j = 0; j < other.nCols(); j++) {
+      for (int k = 0; k < nCols(); k++) {
+        column[k] = other.entries[k][j];
+      }
+      for (int i = 0; i < nRows(); i++) {
+        res[i][j] = dot(entries[i], column, nCols());
+      }
+    }
+    return new ExprMatrix(res);
+  }
+
+  public ExprMatrix simplify() {
+    Expr[][] res = new Expr[nRows()][nCols()];
+    for (int i = 0; i < nRows(); i++) {
+      for (int j = 0; j < nCols(); j++) {
+        res[i][j] = entries[i][j].simplify();
+      }
+    }
+    return new ExprMatrix(res);
+  }
+
+  private void checkSameDimensions(ExprMatrix other)
+      throws OperationNotSupportedException {
+    if (other.nRows() != nRows() || other.nCols() != nCols()) {
+      throw new OperationNotSupportedException("Matrix dimensions don't match");
+    }
+  }
+
+  public Expr determinant() throws OperationNotSupportedException {
+    //det(A) = (-1)^n * p(0), where p is the characteristic polynomial
+    Expr[] p = characteristicPolynomial();
+    Expr constantTerm = p[p.length - 1];
+    return nRows() % 2 == 0 ? constantTerm
+        : constantTerm.negate().simplify();
+  }
+
+  public Expr characteristicPolynomial(VariableExpr lambda)
+      throws OperationNotSupportedException {
+    //det(lambda I - A) as an expression in lambda, highest power first
+    Expr[] p = characteristicPolynomial();
+    Expr res = ConstExpr.ZERO;
+    for (int i = 0; i < p.length; i++) {
+      int power = p.length - 1 - i;
+      Expr monomial = power == 0 ? ConstExpr.ONE : power == 1 ? lambda
+          : new PowExpr(lambda, ConstExpr.valueOf(power));
+      res = res.add(p[i].multiply(monomial));
+    }
+    return res.simplify();
+  }
+
+  public Expr[] characteristicPolynomial()
+      throws OperationNotSupportedException {
+    //Coefficients {1, c1, ..., cn} of det(lambda I - A) = lambda^n +
+    //c1 lambda^(n-1) + ... + cn, with Berkowitz's algorithm, which only
+    //adds and multiplies entries, so no symbolic divisions are introduced.
+    //With A split as [[a, R], [C, B]], the polynomial of A is T times that
+    //of B, where T is the lower triangular Toeplitz matrix with first column
+    //(1, -a, -RC, -RBC, ..., -RB^(n-2)C). Starting from the bottom right
+    //corner, this takes O(n^4) operations instead of the O(n!) of Laplace
+    //expansion
+    if (nRows() != nCols()) {
+      throw new OperationNotSupportedException("Non-square matrices don't " +
+          "have a characteristic polynomial");
+    }
+    int n = nRows();
+    Expr[] poly = {ConstExpr.ONE};
+    for (int k = n - 1; k >= 0; k--) {
+      //Trailing submatrix entries[k..n-1][k..n-1], of order s
+      int s = n - k;
+      Expr[] column = new Expr[s + 1];
+      column[0] = ConstExpr.ONE;
+      column[1] = entries[k][k].negate().simplify();
+      //v = R B^j, for j = 0..s-2
+      Expr[] v = new Expr[s - 1];
+      System.arraycopy(entries[k], k + 1, v, 0, s - 1);
+      Expr[] next = new Expr[s - 1];
+      Expr[] c = new Expr[s - 1];
+      for (int i = 0; i < s - 1; i++) {
+        c[i] = entries[k + 1 + i][k];
+      }
+      for (int j = 0; j < s - 1; j++) {
+        column[j + 2] = dot(v, c, s - 1).negate().simplify();
+        if (j < s - 2) {
+          //v = v B, with B = entries[k+1..n-1][k+1..n-1]
+          for (int col = 0; col < s - 1; col++) {
+            Expr sum = ConstExpr.ZERO;
+            for (int i = 0; i < s - 1; i++) {
+              sum = addProduct(sum, v[i], entries[k + 1 + i][k + 1 + col]);
+            }
+            next[col] = sum.simplify();
+          }
+          Expr[] temp = v;
+          v = next;
+          next = temp;
+        }
+      }
+      //poly = T * poly, T being (s + 1) x s
+      Expr[] res = new Expr[s + 1];
+      for (int i = 0; i <= s; i++) {
+        Expr sum = ConstExpr.ZERO;
+        for (int j = 0; j <= Math.min(i, s - 1); j++) {
+          sum = addProduct(sum, column[i - j], poly[j]);
+        }
+        res[i] = sum.simplify();
+      }
+      poly = res;
+    }
+    return poly;
+  }
+
+  private static Expr dot(Expr[] a, Expr[] b, int length) {
+    Expr sum = ConstExpr.ZERO;
+    for (int i = 0; i < length; i++) {
+      sum = addProduct(sum, a[i], b[i]);
+    }
+    return sum.simplify();
+  }
+
+  private static Expr addProduct(Expr sum, Expr a, Expr b) {
+    //sum + a * b, skipping zero products so that sparse matrices give small
+    //expressions
+    Expr product = a.multiply(b).simplify();
+    if (product.equals(ConstExpr.ZERO)) {
+      return sum;
+    }
+    return sum.equals(ConstExpr.ZERO) ? product : sum.add(product);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int r = 0; r < nRows(); r++) {
+      sb.append('[');
+      for (int c = 0; c < nCols(); c++) {
+        sb.append(entries[r][c]);
+        if (c < nCols() - 1) {
+          sb.append(", ");
+        }
+      }
+      sb.append(']');
+      if (r < nRows() - 1) {
+        sb.append('\n');
+      }
+    }
+    return sb.append(']').toString();
+  }
+}
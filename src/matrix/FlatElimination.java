@@ -0,0 +1,170 @@
+package matrix;
+
+import fraction.Fraction;
+
+import java.util.Arrays;
+
+class FlatElimination {
+  //Gaussian elimination on flat row-major num/denom arrays, using the raw
+  //Fraction kernels. No objects are created during the elimination. If an
+  //entry overflows a long, eliminate() gives up and returns false, and the
+  //caller falls back to eliminating over Fractions
+  private final int nRows;
+  private final int nCols;
+  private final long[] num;
+  private final long[] denom;
+  private final int[] pivotCols;
+  private int rank;
+  //True if an odd number of row swaps was made
+  private boolean negate;
+
+  FlatElimination(int nRows, int nCols) {
+    this.nRows = nRows;
+    this.nCols = nCols;
+    this.num = new long[nRows * nCols];
+    this.denom = new long[nRows * nCols];
+    this.pivotCols = new int[Math.min(nRows, nCols)];
+  }
+
+  static FlatElimination of(MatrixStorage storage, int nCols) {
+    //Returns the entries of storage, padded with zero columns up to nCols,
+    //or null if some entry doesn't fit in a long
+    FlatElimination res = new FlatElimination(storage.nRows(), nCols);
+    Arrays.fill(res.denom, 1);
+    if (!storage.copyTo(res.num, res.denom, 0, nCols)) {
+      return null;
+    }
+    return res;
+  }
+
+  static FlatElimination of(MatrixStorage left, MatrixStorage right) {
+    //Returns the augmented matrix [left|right], or null if some entry
+    //doesn't fit in a long
+    int nCols = left.nCols() + right.nCols();
+    FlatElimination res = new FlatElimination(left.nRows(), nCols);
+    if (!left.copyTo(res.num, res.denom, 0, nCols)
+        || !right.copyTo(res.num, res.denom, left.nCols(), nCols)) {
+      return null;
+    }
+    return res;
+  }
+
+  void setOne(int r, int c) {
+    num[r * nCols + c] = 1;
+    denom[r * nCols + c] = 1;
+  }
+
+  boolean eliminate(int elimCols, boolean reduce) {
+    //Eliminates over the first elimCols columns. If reduce is true, it leaves
+    //the matrix in RREF (Gauss-Jordan), otherwise it only makes the entries
+    //under the pivots 0, without scaling the pivot rows.
+    //Returns false if some entry overflowed, leaving the arrays inconsistent
+    long[] res = new long[2];
+    long[] factor = new long[2];
+    int row = 0;
+    int p;
+    for (int col = 0; col < elimCols && row < nRows; col++) {
+      //Look for a row which doesn't have a zero in this column
+      p = row;
+      while (p < nRows && num[p * nCols + col] == 0) {
+        p++;
+      }
+      if (p == nRows) {
+        continue;
+      }
+      if (p != row) {
+        swapRows(p, row);
+        negate = !negate;
+      }
+      int pivot = row * nCols + col;
+      //Reciprocal of the pivot, keeping the denominator positive
+      long invNum = num[pivot] < 0 ? -denom[pivot] : denom[pivot];
+      long invDenom = Math.abs(num[pivot]);
+      if (reduce && !(num[pivot] == 1 && denom[pivot] == 1)) {
+        //Make pivot 1 and update row accordingly
+        for (int j = pivot; j < (row + 1) * nCols; j++) {
+          if (!Fraction.multiplyRaw(num[j], denom[j], invNum, invDenom, res)) {
+            return false;
+          }
+          num[j] = res[0];
+          denom[j] = res[1];
+        }
+        invNum = 1;
+        invDenom = 1;
+      }
+      for (int r = reduce ? 0 : row + 1; r < nRows; r++) {
+        int target = r * nCols + col;
+        if (r == row || num[target] == 0) {
+          continue;
+        }
+        //factor = -target / pivot
+        if (!Fraction.multiplyRaw(-num[target], denom[target], invNum,
+            invDenom, factor)) {
+          return false;
+        }
+        for (int j = 0; j < nCols - col; j++) {
+          if (!Fraction.addProductRaw(num[target + j], denom[target + j],
+              num[pivot + j], denom[pivot + j], factor[0], factor[1], res)) {
+            return false;
+          }
+          num[target + j] = res[0];
+          denom[target + j] = res[1];
+        }
+      }
+      pivotCols[row] = col;
+      row++;
+    }
+    rank = row;
+    return true;
+  }
+
+  private void swapRows(int r1, int r2) {
+    long temp;
+    for (int i = r1 * nCols, j = r2 * nCols; i < (r1 + 1) * nCols; i++, j++) {
+      temp = num[i];
+      num[i] = num[j];
+      num[j] = temp;
+      temp = denom[i];
+      denom[i] = denom[j];
+      denom[j] = temp;
+    }
+  }
+
+  int rank() {
+    return rank;
+  }
+
+  int[] pivotCols() {
+    return Arrays.copyOf(pivotCols, rank);
+  }
+
+  boolean isNegated() {
+    return negate;
+  }
+
+  Fraction get(int r, int c) {
+    return Fraction.valueOf(num[r * nCols + c], denom[r * nCols + c]);
+  }
+
+  Fraction[][] toArray() {
+    Fraction[][] res = new Fraction[nRows][nCols];
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < nCols; j++) {
+        res[i][j] = get(i, j);
+      }
+    }
+    return res;
+  }
+
+  FlatStorage toStorage(int fromCol, int toCol) {
+    //Returns the columns [fromCol, toCol) as a new storage
+    int width = toCol - fromCol;
+    long[] resNum = new long[nRows * width];
+    long[] resDenom = new long[nRows * width];
+    for (int i = 0; i < nRows; i++) {
+      System.arraycopy(num, i * nCols + fromCol, resNum, i * width, width);
+      System.arraycopy(denom, i * nCols + fromCol, resDenom, i * width, width);
+    }
+    return new FlatStorage(nRows, width, resNum, resDenom);
+  }
+}
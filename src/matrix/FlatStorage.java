@@ -0,0 +1,221 @@
+package matrix;
+
+import fraction.Fraction;
+import fraction.FractionAccumulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class FlatStorage extends MatrixStorage {
+  //Entries in row-major order, as two flat arrays holding numerators and
+  //denominators. That takes 16 bytes per entry and no pointer chasing,
+  //against a reference plus a whole Fraction object in ArrayStorage.
+  //The rare entries which don't fit in a long are kept in wide instead, and
+  //marked with a 0 denominator
+  private final int nRows;
+  private final int nCols;
+  private final long[] nums;
+  private final long[] denoms;
+  private Map<Integer, Fraction> wide;
+
+  FlatStorage(int nRows, int nCols) {
+    //Pre: the caller sets every entry before the storage is used
+    this.nRows = nRows;
+    this.nCols = nCols;
+    this.nums = new long[nRows * nCols];
+    this.denoms = new long[nRows * nCols];
+  }
+
+  FlatStorage(int nRows, int nCols, long[] nums, long[] denoms) {
+    //Pre: entries are in canonical form (see Fraction.addRaw). The arrays
+    //are owned by the storage from now on
+    this.nRows = nRows;
+    this.nCols = nCols;
+    this.nums = nums;
+    this.denoms = denoms;
+  }
+
+  FlatStorage(Fraction[][] matrix) {
+    this(matrix.length, matrix[0].length);
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < nCols; j++) {
+        set(i * nCols + j, matrix[i][j]);
+      }
+    }
+  }
+
+  void set(int idx, Fraction f) {
+    //Only used while the storage is being filled. Different entries can be
+    //set concurrently
+    if (f.isLong()) {
+      nums[idx] = f.getNum();
+      denoms[idx] = f.getDenom();
+    } else {
+      setWide(idx, f);
+    }
+  }
+
+  private synchronized void setWide(int idx, Fraction f) {
+    if (wide == null) {
+      wide = new HashMap<>();
+    }
+    wide.put(idx, f);
+    nums[idx] = 0;
+    denoms[idx] = 0;
+  }
+
+  boolean isWide(int idx) {
+    return denoms[idx] == 0;
+  }
+
+  Fraction get(int idx) {
+    if (denoms[idx] == 0) {
+      return wide.get(idx);
+    }
+    return Fraction.valueOf(nums[idx], denoms[idx]);
+  }
+
+  @Override
+  int nRows() {
+    return nRows;
+  }
+
+  @Override
+  int nCols() {
+    return nCols;
+  }
+
+  @Override
+  Fraction get(int r, int c) {
+    return get(r * nCols + c);
+  }
+
+  @Override
+  boolean isPrimitive() {
+    return true;
+  }
+
+  @Override
+  boolean getRaw(int r, int c, long[] res) {
+    int idx = r * nCols + c;
+    if (denoms[idx] == 0) {
+      return false;
+    }
+    res[0] = nums[idx];
+    res[1] = denoms[idx];
+    return true;
+  }
+
+  @Override
+  boolean copyTo(long[] num, long[] denom, int offset, int stride) {
+    //Copies the entries into the given row-major arrays, whose rows are
+    //stride long, starting at column offset. Returns false, copying nothing,
+    //if some entry doesn't fit in a long
+    if (wide != null) {
+      return false;
+    }
+    for (int i = 0; i < nRows; i++) {
+      System.arraycopy(nums, i * nCols, num, i * stride + offset, nCols);
+      System.arraycopy(denoms, i * nCols, denom, i * stride + offset, nCols);
+    }
+    return true;
+  }
+
+  FlatStorage transpose() {
+    FlatStorage res = new FlatStorage(nCols, nRows);
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < nCols; j++) {
+        res.nums[j * nRows + i] = nums[i * nCols + j];
+        res.denoms[j * nRows + i] = denoms[i * nCols + j];
+      }
+    }
+    if (wide != null) {
+      for (Map.Entry<Integer, Fraction> e : wide.entrySet()) {
+        res.set(e.getKey() % nCols * nRows + e.getKey() / nCols, e.getValue());
+      }
+    }
+    return res;
+  }
+
+  FlatStorage add(FlatStorage other, boolean subtract) {
+    //Pre: dimensions match
+    //Entrywise this + other, or this - other. Entries whose result doesn't
+    //fit in a long are computed with Fractions
+    FlatStorage res = new FlatStorage(nRows, nCols);
+    long[] sum = new long[2];
+    long otherNum;
+    for (int idx = 0; idx < nums.length; idx++) {
+      otherNum = subtract ? -other.nums[idx] : other.nums[idx];
+      if (!isWide(idx) && !other.isWide(idx) && Fraction.addRaw(nums[idx],
+          denoms[idx], otherNum, other.denoms[idx], sum)) {
+        res.nums[idx] = sum[0];
+        res.denoms[idx] = sum[1];
+      } else {
+        res.set(idx, subtract ? get(idx).subtract(other.get(idx))
+            : get(idx).add(other.get(idx)));
+      }
+    }
+    return res;
+  }
+
+  FlatStorage scale(Fraction k) {
+    FlatStorage res = new FlatStorage(nRows, nCols);
+    long[] prod = new long[2];
+    for (int idx = 0; idx < nums.length; idx++) {
+      if (!isWide(idx) && k.isLong() && Fraction.multiplyRaw(nums[idx],
+          denoms[idx], k.getNum(), k.getDenom(), prod)) {
+        res.nums[idx] = prod[0];
+        res.denoms[idx] = prod[1];
+      } else {
+        res.set(idx, get(idx).multiply(k));
+      }
+    }
+    return res;
+  }
+
+  FlatStorage multiply(FlatStorage other) {
+    //Pre: this.nCols == other.nRows
+    FlatStorage res = new FlatStorage(nRows, other.nCols);
+    multiplyTile(other.transpose(), res, 0, nRows, 0, other.nCols);
+    return res;
+  }
+
+  void multiplyTile(FlatStorage otherT, FlatStorage res, int rowFrom,
+                    int rowTo, int colFrom, int colTo) {
+    //Computes rows [rowFrom, rowTo) and columns [colFrom, colTo) of this *
+    //other into res, given other transposed. Dot products are accumulated
+    //on raw pairs, switching to a FractionAccumulator for the rest of an
+    //entry if they overflow. Tiles of the same result can be computed
+    //concurrently
+    long[] acc = new long[2];
+    FractionAccumulator sum = new FractionAccumulator();
+    int a;
+    int b;
+    int k;
+    for (int i = rowFrom; i < rowTo; i++) {
+      for (int j = colFrom; j < colTo; j++) {
+        acc[0] = 0;
+        acc[1] = 1;
+        a = i * nCols;
+        b = j * nCols;
+        for (k = 0; k < nCols; k++, a++, b++) {
+          if (isWide(a) || otherT.isWide(b)
+              || !Fraction.addProductRaw(acc[0], acc[1], nums[a], denoms[a],
+              otherT.nums[b], otherT.denoms[b], acc)) {
+            break;
+          }
+        }
+        if (k == nCols) {
+          res.nums[i * res.nCols + j] = acc[0];
+          res.denoms[i * res.nCols + j] = acc[1];
+          continue;
+        }
+        sum.reset().add(Fraction.valueOf(acc[0], acc[1]));
+        for (; k < nCols; k++, a++, b++) {
+          sum.addProduct(get(a), otherT.get(b));
+        }
+        res.set(i * res.nCols + j, sum.toFraction());
+      }
+    }
+  }
+}
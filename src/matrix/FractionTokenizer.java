@@ -0,0 +1,290 @@
+package matrix;
+
+import fraction.Fraction;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+public class FractionTokenizer {
+  //Splits a stream of bytes into integers and a/b fractions, separated by
+  //commas and/or whitespace. Tokens are parsed in place from a fixed size
+  //buffer, so memory use doesn't depend on the input, and no objects are
+  //created per token unless a value doesn't fit in a long.
+  //A tokenizer can be reset() onto another channel to reuse its buffer. It
+  //isn't thread-safe
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  //Bytes are read straight from the backing array, between pos and limit
+  private final byte[] bytes = buffer.array();
+  private int pos;
+  private int limit;
+  private ReadableByteChannel channel;
+  private boolean eof;
+  //Position of the next byte
+  private int line;
+  private int column;
+  //A comma was read after the last token, so another token must follow
+  private boolean commaPending;
+  private boolean lineHasToken;
+  //Starts a comment that runs to the end of the line, -1 if there are none
+  private int commentChar = -1;
+
+  //Current token, in canonical form (see Fraction.addRaw). wide is only set
+  //if it doesn't fit in a long
+  private int tokenLine;
+  private int tokenColumn;
+  private long num;
+  private long denom;
+  private Fraction wide;
+
+  //Result of parseInteger()
+  private long parsed;
+  private BigInteger parsedBig;
+
+  public FractionTokenizer(ReadableByteChannel channel) {
+    reset(channel);
+  }
+
+  public void reset(ReadableByteChannel channel) {
+    this.channel = channel;
+    pos = 0;
+    limit = 0;
+    eof = false;
+    line = 1;
+    column = 1;
+    commaPending = false;
+    lineHasToken = false;
+    tokenLine = 0;
+    tokenColumn = 0;
+  }
+
+  public void setCommentChar(int commentChar) {
+    //Everything from commentChar to the end of the line is skipped. -1
+    //disables comments
+    this.commentChar = commentChar;
+  }
+
+  public String readLine() throws IOException {
+    //Returns the rest of the current line as text, without the line break,
+    //or null at the end of the input. Meant for headers, not for entries
+    if (peek() == -1) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder();
+    int c;
+    while ((c = peek()) != -1 && c != '\n') {
+      if (c != '\r') {
+        sb.append((char) c);
+      }
+      consume();
+    }
+    if (c == '\n') {
+      consume();
+    }
+    lineHasToken = false;
+    commaPending = false;
+    return sb.toString();
+  }
+
+  public boolean next() throws IOException {
+    //Moves to the next token, returning false at the end of the input.
+    //Throws a MatrixFormatException if the input is malformed
+    int c;
+    while (true) {
+      c = peek();
+      if (c == ',') {
+        if (!lineHasToken || commaPending) {
+          throw new MatrixFormatException("Empty element", line, column);
+        }
+        commaPending = true;
+      } else if (c == '\n' || c == -1) {
+        if (commaPending) {
+          throw new MatrixFormatException("Missing element after ','", line,
+              column);
+        }
+        if (c == -1) {
+          tokenLine = line;
+          tokenColumn = column;
+          return false;
+        }
+        lineHasToken = false;
+      } else if (c == commentChar) {
+        while (c != '\n' && c != -1) {
+          consume();
+          c = peek();
+        }
+        continue;
+      } else if (c != ' ' && c != '\t' && c != '\r') {
+        break;
+      }
+      consume();
+    }
+    commaPending = false;
+    lineHasToken = true;
+    tokenLine = line;
+    tokenColumn = column;
+
+    parseInteger();
+    long n = parsed;
+    BigInteger bigN = parsedBig;
+    long d = 1;
+    BigInteger bigD = null;
+    if (peek() == '/') {
+      consume();
+      parseInteger();
+      d = parsed;
+      bigD = parsedBig;
+    }
+    c = peek();
+    if (c != -1 && c != ',' && c != ' ' && c != '\t' && c != '\r'
+        && c != '\n' && c != commentChar) {
+      throw new MatrixFormatException("Unexpected character '" + (char) c
+          + "'", line, column);
+    }
+    if (bigD == null ? d == 0 : bigD.signum() == 0) {
+      throw new MatrixFormatException("Denominator musn't be zero",
+          tokenLine, tokenColumn);
+    }
+    setToken(n, bigN, d, bigD);
+    return true;
+  }
+
+  private void setToken(long n, BigInteger bigN, long d, BigInteger bigD) {
+    //Brings the token to canonical form: reduced, with a positive
+    //denominator, and in a Fraction only if it doesn't fit in longs
+    wide = null;
+    if (bigN == null && bigD == null && n != Long.MIN_VALUE
+        && d != Long.MIN_VALUE) {
+      if (d == 1) {
+        num = n;
+        denom = 1;
+        return;
+      }
+      if (d < 0) {
+        n = -n;
+        d = -d;
+      }
+      long gcd = Fraction.gcd(Math.abs(n), d);
+      num = n / gcd;
+      denom = d / gcd;
+      return;
+    }
+    Fraction f = Fraction.valueOf(bigN == null ? BigInteger.valueOf(n) : bigN,
+        bigD == null ? BigInteger.valueOf(d) : bigD);
+    if (f.isLong()) {
+      num = f.getNum();
+      denom = f.getDenom();
+    } else {
+      wide = f;
+    }
+  }
+
+  private void parseInteger() throws IOException {
+    //Parses an optionally signed integer into parsed, or into parsedBig if
+    //it doesn't fit in a long. The value is accumulated as a negative
+    //number, so that Long.MIN_VALUE can be read too
+    boolean negative = false;
+    int c = peek();
+    if (c == '-' || c == '+') {
+      negative = c == '-';
+      consume();
+      c = peek();
+    }
+    if (c < '0' || c > '9') {
+      throw new MatrixFormatException(c == -1 ? "Unexpected end of input"
+          : "Expected a digit but found '" + (char) c + "'", line, column);
+    }
+    long value = 0;
+    BigInteger big = null;
+    int digit;
+    while (c >= '0' && c <= '9') {
+      digit = c - '0';
+      if (big != null) {
+        big = big.multiply(BigInteger.TEN).subtract(BigInteger.valueOf(digit));
+      } else if (value < (Long.MIN_VALUE + digit) / 10) {
+        big = BigInteger.valueOf(value).multiply(BigInteger.TEN)
+            .subtract(BigInteger.valueOf(digit));
+      } else {
+        value = value * 10 - digit;
+      }
+      consume();
+      c = peek();
+    }
+    parsedBig = null;
+    if (negative) {
+      parsed = value;
+      parsedBig = big;
+    } else if (big != null) {
+      parsedBig = big.negate();
+    } else if (value == Long.MIN_VALUE) {
+      parsedBig = BigInteger.valueOf(value).negate();
+    } else {
+      parsed = -value;
+    }
+  }
+
+  private int peek() throws IOException {
+    //Returns the next byte without consuming it, or -1 at the end of the
+    //input
+    if (pos < limit) {
+      return bytes[pos] & 0xff;
+    }
+    if (eof) {
+      return -1;
+    }
+    buffer.clear();
+    int read;
+    do {
+      read = channel.read(buffer);
+    } while (read == 0);
+    pos = 0;
+    limit = Math.max(read, 0);
+    if (read < 0) {
+      eof = true;
+      return -1;
+    }
+    return bytes[0] & 0xff;
+  }
+
+  private void consume() {
+    //Pre: peek() didn't return -1
+    if (bytes[pos++] == '\n') {
+      line++;
+      column = 1;
+    } else {
+      column++;
+    }
+  }
+
+  public int line() {
+    //Line of the current token, starting at 1, or of the end of the input
+    //once next() returns false
+    return tokenLine;
+  }
+
+  public int column() {
+    //Column of the first character of the current token, starting at 1
+    return tokenColumn;
+  }
+
+  public boolean isLong() {
+    return wide == null;
+  }
+
+  public long num() {
+    //Pre: isLong()
+    return num;
+  }
+
+  public long denom() {
+    //Pre: isLong()
+    return denom;
+  }
+
+  public Fraction toFraction() {
+    return wide == null ? Fraction.valueOf(num, denom) : wide;
+  }
+}
@@ -2,14 +2,37 @@ package matrix;
 
 import fraction.Fraction;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 public class LEQSSolution {
+  //Shared by all the systems without a solution
+  private static final LEQSSolution incompatible = new LEQSSolution();
   private final Fraction[] particularSol;
   private final Fraction[][] generalSol;
+  private final boolean compatible;
 
 
   public LEQSSolution(Fraction[] particularSol, Fraction[][] generalSol) {
     this.particularSol = particularSol;
     this.generalSol = generalSol;
+    this.compatible = true;
+  }
+
+  private LEQSSolution() {
+    this.particularSol = null;
+    this.generalSol = null;
+    this.compatible = false;
+  }
+
+  public static LEQSSolution incompatible() {
+    //Result of a system which has no solution. It has no particular nor
+    //general solutions
+    return incompatible;
+  }
+
+  public boolean isCompatible() {
+    return compatible;
   }
 
   public Fraction[] getParticularSol() {
@@ -23,18 +46,11 @@ public class LEQSSolution {
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    sb.append("Particular: ");
-    sb.append('[');
-    for (int c = 0; c < particularSol.length; c++) {
-      sb.append(particularSol[c]);
-      if (c < particularSol.length - 1) {
-        sb.append(", ");
-      }
-    }
-    sb.append(']');
-    if (generalSol.length > 0) {
-      sb.append("\nGeneral :");
-      sb.append(new Matrix(generalSol));
+    try {
+      new MatrixWriter().write(this, sb);
+    } catch (IOException e) {
+      //A StringBuilder never throws
+      throw new UncheckedIOException(e);
     }
     return sb.toString();
   }
@@ -0,0 +1,193 @@
+package matrix;
+
+import fraction.Fraction;
+import fraction.FractionAccumulator;
+
+import javax.naming.OperationNotSupportedException;
+
+public final class LUDecomposition {
+  //Exact factorization PA = LU of a square matrix, where P is a row
+  //permutation, L is unit lower triangular and U is upper triangular. It is
+  //computed once, in O(n^3), and then every solve only costs O(n^2) per right
+  //hand side. The object is immutable, so it can be shared between threads
+  private static final Fraction zero = Fraction.valueOf(0);
+  private static final Fraction one = Fraction.valueOf(1);
+
+  //L (without its unit diagonal) below the diagonal and U on and above it
+  private final Fraction[][] lu;
+  //Row i of PA is row perm[i] of A
+  private final int[] perm;
+  //True if P is an odd permutation
+  private final boolean negate;
+  private final boolean singular;
+
+  LUDecomposition(Matrix m) {
+    //Pre: m is square
+    int n = m.nRows();
+    Fraction[][] a = m.arrayCopy();
+    int[] rowPerm = new int[n];
+    for (int i = 0; i < n; i++) {
+      rowPerm[i] = i;
+    }
+    boolean odd = false;
+    boolean isSingular = false;
+    FractionAccumulator acc = new FractionAccumulator();
+    Fraction[] tempRow;
+    int tempIdx;
+    Fraction factor;
+    for (int k = 0; k < n; k++) {
+      //If pivot is 0, look for a row which doesn't have a zero in that column
+      int p = k;
+      while (p < n && a[p][k].isZero()) {
+        p++;
+      }
+      //If there isn't one the matrix is singular, and there is nothing to
+      //eliminate in this column
+      if (p == n) {
+        isSingular = true;
+        continue;
+      }
+      if (p != k) {
+        tempRow = a[p];
+        a[p] = a[k];
+        a[k] = tempRow;
+        tempIdx = rowPerm[p];
+        rowPerm[p] = rowPerm[k];
+        rowPerm[k] = tempIdx;
+        odd = !odd;
+      }
+      Fraction pivotInv = a[k][k].reciprocal();
+      for (int i = k + 1; i < n; i++) {
+        if (a[i][k].isZero()) {
+          continue;
+        }
+        //Store the multiplier in L and subtract the pivot row
+        a[i][k] = a[i][k].multiply(pivotInv);
+        factor = a[i][k].negate();
+        for (int j = k + 1; j < n; j++) {
+          a[i][j] = acc.reset().add(a[i][j]).addProduct(a[k][j], factor)
+              .toFraction();
+        }
+      }
+    }
+    this.lu = a;
+    this.perm = rowPerm;
+    this.negate = odd;
+    this.singular = isSingular;
+  }
+
+  public int order() {
+    return lu.length;
+  }
+
+  public boolean isSingular() {
+    return singular;
+  }
+
+  public Fraction determinant() {
+    //det(A) = det(P) * product of the diagonal of U
+    if (singular) {
+      return zero;
+    }
+    Fraction det = one;
+    for (int i = 0; i < lu.length; i++) {
+      det = det.multiply(lu[i][i]);
+    }
+    return negate ? det.negate() : det;
+  }
+
+  public Matrix getL() {
+    int n = lu.length;
+    Fraction[][] res = new Fraction[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        res[i][j] = (j < i) ? lu[i][j] : (i == j) ? one : zero;
+      }
+    }
+    return new Matrix(res);
+  }
+
+  public Matrix getU() {
+    int n = lu.length;
+    Fraction[][] res = new Fraction[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        res[i][j] = (j >= i) ? lu[i][j] : zero;
+      }
+    }
+    return new Matrix(res);
+  }
+
+  public int[] getPermutation() {
+    //Row i of PA is row getPermutation()[i] of A
+    return perm.clone();
+  }
+
+  public Fraction[] solve(Fraction[] b) throws OperationNotSupportedException {
+    //Returns the solution of Ax = b, by forward substitution with L and back
+    //substitution with U
+    if (b == null) {
+      return null;
+    }
+    if (b.length != lu.length) {
+      throw new OperationNotSupportedException("Vector length doesn't " +
+          "match the matrix");
+    }
+    if (singular) {
+      throw new OperationNotSupportedException("Matrix is singular");
+    }
+    int n = lu.length;
+    Fraction[] x = new Fraction[n];
+    FractionAccumulator sum = new FractionAccumulator();
+    //Ly = Pb
+    for (int i = 0; i < n; i++) {
+      sum.reset();
+      for (int j = 0; j < i; j++) {
+        sum.addProduct(lu[i][j], x[j]);
+      }
+      x[i] = b[perm[i]].subtract(sum.toFraction());
+    }
+    //Ux = y
+    for (int i = n - 1; i >= 0; i--) {
+      sum.reset();
+      for (int j = i + 1; j < n; j++) {
+        sum.addProduct(lu[i][j], x[j]);
+      }
+      x[i] = x[i].subtract(sum.toFraction()).divide(lu[i][i]);
+    }
+    return x;
+  }
+
+  public Matrix solve(Matrix b) throws OperationNotSupportedException {
+    //Solves AX = B, one column of B at a time
+    if (b == null) {
+      return null;
+    }
+    if (b.nRows() != lu.length) {
+      throw new OperationNotSupportedException("Matrix dimensions don't " +
+          "match");
+    }
+    Fraction[][] res = new Fraction[b.nRows()][b.nCols()];
+    Fraction[] col = new Fraction[b.nRows()];
+    Fraction[] x;
+    for (int j = 0; j < b.nCols(); j++) {
+      for (int i = 0; i < b.nRows(); i++) {
+        col[i] = b.get(i, j);
+      }
+      x = solve(col);
+      for (int i = 0; i < b.nRows(); i++) {
+        res[i][j] = x[i];
+      }
+    }
+    return new Matrix(res);
+  }
+
+  public Matrix inverse() throws OperationNotSupportedException {
+    //Returns the inverse, or null if it doesn't exist, like
+    //Matrix.getInverse()
+    if (singular) {
+      return null;
+    }
+    return solve(Matrix.identity(lu.length));
+  }
+}
@@ -0,0 +1,372 @@
+package matrix;
+
+import fraction.Fraction;
+import fraction.FractionAccumulator;
+
+import javax.naming.OperationNotSupportedException;
+import java.security.InvalidParameterException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public abstract class LazyMatrix {
+  //Matrix expression which is only computed when evaluate() is called.
+  //Operations build a DAG instead of new matrices, so that on evaluation:
+  //  - add, subtract, scalarMult and transpose, which are all linear, are
+  //    fused into a single pass over the result, with no temporaries
+  //  - chains of products are multiplied in the cheapest order, found with
+  //    the classic matrix-chain dynamic programming algorithm
+  //  - subexpressions shared within the DAG are only computed once
+  //Expressions are immutable, so they can be shared and reused
+  private static final Fraction zero = Fraction.valueOf(0);
+  private static final Fraction one = Fraction.valueOf(1);
+  private static final Fraction negOne = Fraction.valueOf(-1);
+
+  private final int nRows;
+  private final int nCols;
+
+  private LazyMatrix(int nRows, int nCols) {
+    this.nRows = nRows;
+    this.nCols = nCols;
+  }
+
+  public static LazyMatrix of(Matrix m) {
+    if (m == null) {
+      throw new InvalidParameterException("Matrix can't be null");
+    }
+    return new Leaf(m);
+  }
+
+  public int nRows() {
+    return nRows;
+  }
+
+  public int nCols() {
+    return nCols;
+  }
+
+  public LazyMatrix add(LazyMatrix other)
+      throws OperationNotSupportedException {
+    checkSameDimensions(other);
+    return new Sum(this, other, one);
+  }
+
+  public LazyMatrix subtract(LazyMatrix other)
+      throws OperationNotSupportedException {
+    checkSameDimensions(other);
+    return new Sum(this, other, negOne);
+  }
+
+  public LazyMatrix scalarMult(Fraction k) {
+    return new Scale(this, k);
+  }
+
+  public LazyMatrix transpose() {
+    return new Transpose(this);
+  }
+
+  public LazyMatrix multiply(LazyMatrix other)
+      throws OperationNotSupportedException {
+    if (nCols != other.nRows) {
+      throw new OperationNotSupportedException("Matrix dimensions don't " +
+          "match");
+    }
+    return new Product(this, other);
+  }
+
+  private void checkSameDimensions(LazyMatrix other)
+      throws OperationNotSupportedException {
+    if (other.nRows != nRows || other.nCols != nCols) {
+      throw new OperationNotSupportedException("Matrix dimensions don't match");
+    }
+  }
+
+  public Matrix evaluate() throws OperationNotSupportedException {
+    return evaluate(new IdentityHashMap<>());
+  }
+
+  abstract Matrix evaluate(Map<LazyMatrix, Matrix> evaluated)
+      throws OperationNotSupportedException;
+
+  //Nodes
+
+  private static class Leaf extends LazyMatrix {
+    private final Matrix matrix;
+
+    Leaf(Matrix matrix) {
+      super(matrix.nRows(), matrix.nCols());
+      this.matrix = matrix;
+    }
+
+    @Override
+    Matrix evaluate(Map<LazyMatrix, Matrix> evaluated) {
+      return matrix;
+    }
+  }
+
+  private abstract static class Linear extends LazyMatrix {
+    //Elementwise operations. A DAG of them is a linear combination of its
+    //operands (leaves, products, or their transposes), which is computed
+    //entry by entry in a single pass
+
+    Linear(int nRows, int nCols) {
+      super(nRows, nCols);
+    }
+
+    //Passes every direct operand to out, with its coefficient and
+    //orientation in this node's combination when this node has coefficient
+    //coef and orientation transposed
+    abstract void operands(Fraction coef, boolean transposed, Operands out);
+
+    @Override
+    Matrix evaluate(Map<LazyMatrix, Matrix> evaluated)
+        throws OperationNotSupportedException {
+      Matrix res = evaluated.get(this);
+      if (res != null) {
+        return res;
+      }
+      List<Term> terms = collect();
+      terms.removeIf(t -> t.coef.isZero());
+      Matrix[] operands = new Matrix[terms.size()];
+      for (int t = 0; t < operands.length; t++) {
+        operands[t] = terms.get(t).node.evaluate(evaluated);
+      }
+      if (terms.size() == 1 && terms.get(0).coef.equals(one)) {
+        //Nothing to combine
+        res = terms.get(0).transposed ? operands[0].transpose() : operands[0];
+      } else {
+        Fraction[][] entries = new Fraction[nRows()][nCols()];
+        FractionAccumulator acc = new FractionAccumulator();
+        Term term;
+        for (int i = 0; i < nRows(); i++) {
+          for (int j = 0; j < nCols(); j++) {
+            acc.reset();
+            for (int t = 0; t < operands.length; t++) {
+              term = terms.get(t);
+              acc.addProduct(term.coef, term.transposed
+                  ? operands[t].get(j, i) : operands[t].get(i, j));
+            }
+            entries[i][j] = acc.toFraction();
+          }
+        }
+        res = new Matrix(entries);
+      }
+      evaluated.put(this, res);
+      return res;
+    }
+
+    private List<Term> collect() {
+      //Expands this node into a combination of non-linear operands. A node
+      //(in each orientation) gets a single Term however many parents reach
+      //it: nodes are sorted so that each comes before its operands, then
+      //every node pushes its coefficient down to its operands, which add up
+      //the contributions of all their parents. Repeated operands are merged
+      //this way too, so that A + A is read once as 2A. Linear in the size
+      //of the DAG
+      Map<LazyMatrix, Term[]> seen = new IdentityHashMap<>();
+      List<Term> order = new ArrayList<>();
+      visit(this, false, seen, order);
+      Collections.reverse(order);
+      order.get(0).coef = one;
+      List<Term> terms = new ArrayList<>();
+      for (Term t : order) {
+        if (!(t.node instanceof Linear)) {
+          terms.add(t);
+        } else if (!t.coef.isZero()) {
+          ((Linear) t.node).operands(t.coef, t.transposed,
+              (node, coef, transposed) -> {
+                Term operand = seen.get(node)[transposed ? 1 : 0];
+                operand.coef = operand.coef.add(coef);
+              });
+        }
+      }
+      return terms;
+    }
+
+    private static void visit(LazyMatrix root, boolean transposed,
+                              Map<LazyMatrix, Term[]> seen,
+                              List<Term> order) {
+      //Depth first, adding each node after its operands. The walk uses an
+      //explicit stack, as chains of operations can be far deeper than the
+      //call stack: a node is pushed as a Term with a zero coefficient, and
+      //pushed again, marked as expanded, under its operands
+      Deque<Term> stack = new ArrayDeque<>();
+      Set<Term> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+      stack.push(new Term(root, zero, transposed));
+      while (!stack.isEmpty()) {
+        Term term = stack.pop();
+        if (expanded.contains(term)) {
+          order.add(term);
+          continue;
+        }
+        Term[] terms = seen.computeIfAbsent(term.node, n -> new Term[2]);
+        if (terms[term.transposed ? 1 : 0] != null) {
+          continue;
+        }
+        terms[term.transposed ? 1 : 0] = term;
+        expanded.add(term);
+        stack.push(term);
+        if (term.node instanceof Linear) {
+          ((Linear) term.node).operands(one, term.transposed,
+              (operand, coef, t) -> stack.push(new Term(operand, zero, t)));
+        }
+      }
+    }
+  }
+
+  private interface Operands {
+    void add(LazyMatrix node, Fraction coef, boolean transposed);
+  }
+
+  private static class Term {
+    private final LazyMatrix node;
+    private Fraction coef;
+    private final boolean transposed;
+
+    Term(LazyMatrix node, Fraction coef, boolean transposed) {
+      this.node = node;
+      this.coef = coef;
+      this.transposed = transposed;
+    }
+  }
+
+  private static class Sum extends Linear {
+    //left + sign * right
+    private final LazyMatrix left;
+    private final LazyMatrix right;
+    private final Fraction sign;
+
+    Sum(LazyMatrix left, LazyMatrix right, Fraction sign) {
+      super(left.nRows(), left.nCols());
+      this.left = left;
+      this.right = right;
+      this.sign = sign;
+    }
+
+    @Override
+    void operands(Fraction coef, boolean transposed, Operands out) {
+      out.add(left, coef, transposed);
+      out.add(right, coef.multiply(sign), transposed);
+    }
+  }
+
+  private static class Scale extends Linear {
+    private final LazyMatrix operand;
+    private final Fraction k;
+
+    Scale(LazyMatrix operand, Fraction k) {
+      super(operand.nRows(), operand.nCols());
+      this.operand = operand;
+      this.k = k;
+    }
+
+    @Override
+    void operands(Fraction coef, boolean transposed, Operands out) {
+      out.add(operand, coef.multiply(k), transposed);
+    }
+  }
+
+  private static class Transpose extends Linear {
+    private final LazyMatrix operand;
+
+    Transpose(LazyMatrix operand) {
+      super(operand.nCols(), operand.nRows());
+      this.operand = operand;
+    }
+
+    @Override
+    void operands(Fraction coef, boolean transposed, Operands out) {
+      out.add(operand, coef, !transposed);
+    }
+  }
+
+  private static class Product extends LazyMatrix {
+    private final LazyMatrix left;
+    private final LazyMatrix right;
+
+    Product(LazyMatrix left, LazyMatrix right) {
+      super(left.nRows(), right.nCols());
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Matrix evaluate(Map<LazyMatrix, Matrix> evaluated)
+        throws OperationNotSupportedException {
+      Matrix res = evaluated.get(this);
+      if (res != null) {
+        return res;
+      }
+      //A chain of nested products is multiplied as a whole
+      List<LazyMatrix> chain = new ArrayList<>();
+      flatten(this, chain);
+      Matrix[] factors = new Matrix[chain.size()];
+      int[] dims = new int[chain.size() + 1];
+      for (int i = 0; i < factors.length; i++) {
+        factors[i] = chain.get(i).evaluate(evaluated);
+        dims[i] = factors[i].nRows();
+      }
+      dims[factors.length] = factors[factors.length - 1].nCols();
+      res = multiply(factors, chainSplits(dims), 0, factors.length - 1);
+      evaluated.put(this, res);
+      return res;
+    }
+
+    private static void flatten(LazyMatrix node, List<LazyMatrix> chain) {
+      //Factors of the nested products from left to right, with an explicit
+      //stack so that long chains don't overflow the call stack
+      Deque<LazyMatrix> stack = new ArrayDeque<>();
+      stack.push(node);
+      while (!stack.isEmpty()) {
+        LazyMatrix n = stack.pop();
+        if (n instanceof Product) {
+          stack.push(((Product) n).right);
+          stack.push(((Product) n).left);
+        } else {
+          chain.add(n);
+        }
+      }
+    }
+
+    private static Matrix multiply(Matrix[] factors, int[][] splits, int from,
+                                   int to)
+        throws OperationNotSupportedException {
+      if (from == to) {
+        return factors[from];
+      }
+      int k = splits[from][to];
+      return multiply(factors, splits, from, k)
+          .multiply(multiply(factors, splits, k + 1, to));
+    }
+  }
+
+  static int[][] chainSplits(int[] dims) {
+    //Matrix-chain ordering. Factor i is dims[i] x dims[i + 1]. Returns the
+    //table where splits[i][j] is the k such that factors i..j are best
+    //computed as (i..k) * (k+1..j), minimising the number of scalar
+    //multiplications. O(n^3) in the number of factors
+    int n = dims.length - 1;
+    long[][] cost = new long[n][n];
+    int[][] splits = new int[n][n];
+    for (int length = 2; length <= n; length++) {
+      for (int i = 0; i + length - 1 < n; i++) {
+        int j = i + length - 1;
+        cost[i][j] = Long.MAX_VALUE;
+        for (int k = i; k < j; k++) {
+          long c = cost[i][k] + cost[k + 1][j]
+              + (long) dims[i] * dims[k + 1] * dims[j + 1];
+          if (c < cost[i][j]) {
+            cost[i][j] = c;
+            splits[i][j] = k;
+          }
+        }
+      }
+    }
+    return splits;
+  }
+}
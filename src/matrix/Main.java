@@ -1,11 +1,35 @@
 package matrix;
 
 import javax.naming.OperationNotSupportedException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static matrix.MatrixCreate.createMatrix;
 
 public class Main {
+  //With no arguments, reads two matrices interactively and prints their
+  //product. Otherwise runs a batch of jobs (see BatchRunner):
+  //  Main [-t threads] <jobs file | ->
+  //where - reads the jobs from stdin. Exits with status 1 if any job failed
+  private static final String USAGE = "Usage: Main [-t threads] " +
+      "<jobs file | ->";
+
   public static void main(String[] args) {
+    if (args.length == 0) {
+      interactive();
+      return;
+    }
+    System.exit(batch(args));
+  }
+
+  private static void interactive() {
     Matrix m = createMatrix();
     Matrix m2 = createMatrix();
     try {
@@ -14,4 +38,51 @@ public class Main {
       System.out.println(e.getMessage());
     }
   }
+
+  private static int batch(String[] args) {
+    //Returns the exit status
+    int nThreads = Runtime.getRuntime().availableProcessors();
+    String jobs = null;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-t") && i + 1 < args.length) {
+        try {
+          nThreads = Integer.parseInt(args[++i]);
+        } catch (NumberFormatException e) {
+          nThreads = 0;
+        }
+      } else if (jobs == null) {
+        jobs = args[i];
+      } else {
+        jobs = null;
+        break;
+      }
+    }
+    if (jobs == null || nThreads < 1) {
+      System.err.println(USAGE);
+      return 2;
+    }
+    long start = System.nanoTime();
+    //A few jobs per thread keep the workers busy while results are written
+    Path jobsPath = jobs.equals("-") ? null : Path.of(jobs);
+    BatchRunner runner = new BatchRunner(nThreads, 4 * nThreads,
+        jobsPath == null ? null : jobsPath.toAbsolutePath().getParent());
+    Writer out = new BufferedWriter(
+        new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    int failed;
+    try (BufferedReader in = jobsPath == null
+        ? new BufferedReader(new InputStreamReader(System.in,
+        StandardCharsets.UTF_8))
+        : Files.newBufferedReader(jobsPath)) {
+      failed = runner.run(in, out);
+    } catch (IOException e) {
+      System.err.println(e.getMessage());
+      return 2;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 2;
+    }
+    System.err.printf("%d failed, total %.3f ms%n", failed,
+        (System.nanoTime() - start) / 1e6);
+    return failed > 0 ? 1 : 0;
+  }
 }
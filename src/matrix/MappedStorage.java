@@ -0,0 +1,73 @@
+package matrix;
+
+import fraction.Fraction;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+class MappedStorage extends MatrixStorage {
+  //Entries read straight from a memory-mapped file in BinaryMatrixFormat.
+  //Nothing is copied onto the heap, except the rare entries which don't fit
+  //in a long, which are kept in wide. Like in FlatStorage, those are marked
+  //with a 0 denominator
+  private final int nRows;
+  private final int nCols;
+  //Bytes per value, 4 or 8
+  private final int width;
+  private final ByteBuffer nums;
+  private final ByteBuffer denoms;
+  private final Map<Integer, Fraction> wide;
+
+  MappedStorage(int nRows, int nCols, int width, ByteBuffer nums,
+                ByteBuffer denoms, Map<Integer, Fraction> wide) {
+    //Pre: the buffers are read-only and hold nRows * nCols values each, in
+    //canonical form
+    this.nRows = nRows;
+    this.nCols = nCols;
+    this.width = width;
+    this.nums = nums;
+    this.denoms = denoms;
+    this.wide = wide;
+  }
+
+  private long value(ByteBuffer buffer, int idx) {
+    return width == Long.BYTES ? buffer.getLong(idx * Long.BYTES)
+        : buffer.getInt(idx * Integer.BYTES);
+  }
+
+  @Override
+  int nRows() {
+    return nRows;
+  }
+
+  @Override
+  int nCols() {
+    return nCols;
+  }
+
+  @Override
+  Fraction get(int r, int c) {
+    int idx = r * nCols + c;
+    long denom = value(denoms, idx);
+    if (denom == 0) {
+      return wide.get(idx);
+    }
+    return Fraction.valueOf(value(nums, idx), denom);
+  }
+
+  @Override
+  boolean isPrimitive() {
+    return true;
+  }
+
+  @Override
+  boolean getRaw(int r, int c, long[] res) {
+    int idx = r * nCols + c;
+    res[1] = value(denoms, idx);
+    if (res[1] == 0) {
+      return false;
+    }
+    res[0] = value(nums, idx);
+    return true;
+  }
+}
@@ -1,37 +1,95 @@
 package matrix;
 
+import field.Field;
+import field.FieldMatrix;
 import fraction.Fraction;
+import fraction.FractionAccumulator;
 
 import javax.naming.OperationNotSupportedException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
 import java.security.InvalidParameterException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 public class Matrix {
-  private static final Fraction one = new Fraction(1);
-  private static final Fraction zero = new Fraction(0);
-  private final Fraction[][] matrix;
+  private static final Fraction one = Fraction.valueOf(1);
+  private static final Fraction zero = Fraction.valueOf(0);
+  private final MatrixStorage storage;
+  //Content hash, computed the first time it is needed, 0 until then.
+  //Entries never change, so it stays valid
+  private int hash;
 
   public Matrix(Fraction[][] matrix) {
     if (matrix == null) {
       throw new InvalidParameterException("Matrix can't be null");
     }
-    this.matrix = matrix;
+    //The array is kept, so it mustn't be modified afterwards, or the cached
+    //hash code (and any MatrixCache entry) would go stale
+    this.storage = new ArrayStorage(matrix);
+  }
+
+  Matrix(MatrixStorage storage) {
+    this.storage = storage;
+  }
+
+  public static Matrix flat(Fraction[][] matrix) {
+    //Returns a matrix with the given entries, stored in flat primitive arrays
+    //instead of as Fraction objects. The array isn't kept, so later changes
+    //to it aren't reflected on the matrix
+    if (matrix == null) {
+      throw new InvalidParameterException("Matrix can't be null");
+    }
+    return new Matrix(new FlatStorage(matrix));
+  }
+
+  public Matrix toFlat() {
+    //Returns this matrix with flat primitive storage
+    if (storage instanceof FlatStorage) {
+      return this;
+    }
+    if (storage.isPrimitive()) {
+      long[] nums = new long[nRows() * nCols()];
+      long[] denoms = new long[nRows() * nCols()];
+      if (storage.copyTo(nums, denoms, 0, nCols())) {
+        return new Matrix(new FlatStorage(nRows(), nCols(), nums, denoms));
+      }
+    }
+    return new Matrix(new FlatStorage(storage.asArray()));
+  }
+
+  public boolean isFlat() {
+    return storage instanceof FlatStorage;
+  }
+
+  MatrixStorage storage() {
+    return storage;
   }
 
   public int nRows() {
-    return matrix.length;
+    return storage.nRows();
   }
 
   public int nCols() {
-    return matrix[0].length;
+    return storage.nCols();
   }
 
   public Fraction get(int r, int c) {
-    if (r < 0 || r >= matrix.length || c < 0 && c >= matrix[r].length) {
+    if (r < 0 || r >= nRows() || c < 0 || c >= nCols()) {
       throw new ArrayIndexOutOfBoundsException();
     }
-    return matrix[r][c];
+    return storage.get(r, c);
+  }
+
+  private FlatStorage flatStorage(Matrix other) {
+    //Returns the flat storage of this matrix if both this and other are flat,
+    //so that the primitive kernels can be used
+    if (storage instanceof FlatStorage
+        && other.storage instanceof FlatStorage) {
+      return (FlatStorage) storage;
+    }
+    return null;
   }
 
   //Arithmetic Operations
@@ -44,6 +102,10 @@ public class Matrix {
     if (other.nRows() != nRows() || other.nCols() != nCols()) {
       throw new OperationNotSupportedException("Matrix dimensions don't match");
     }
+    FlatStorage flat = flatStorage(other);
+    if (flat != null) {
+      return new Matrix(flat.add((FlatStorage) other.storage, false));
+    }
     Fraction[][] res = new Fraction[nRows()][nCols()];
     for (int i = 0; i < nRows(); i++) {
       for (int j = 0; j < nCols(); j++) {
@@ -61,6 +123,10 @@ public class Matrix {
     if (other.nRows() != nRows() || other.nCols() != nCols()) {
       throw new OperationNotSupportedException("Matrix dimensions don't match");
     }
+    FlatStorage flat = flatStorage(other);
+    if (flat != null) {
+      return new Matrix(flat.add((FlatStorage) other.storage, true));
+    }
     Fraction[][] res = new Fraction[nRows()][nCols()];
     for (int i = 0; i < nRows(); i++) {
       for (int j = 0; j < nCols(); j++) {
@@ -72,6 +138,9 @@ public class Matrix {
 
   public Matrix scalarMult(Fraction k) {
     //Multiplies matrix by a scalar
+    if (storage instanceof FlatStorage) {
+      return new Matrix(((FlatStorage) storage).scale(k));
+    }
     Fraction[][] res = new Fraction[nRows()][nCols()];
     for (int i = 0; i < nRows(); i++) {
       for (int j = 0; j < nCols(); j++) {
@@ -91,22 +160,151 @@ public class Matrix {
       throw new OperationNotSupportedException("Adjacent matrix" +
           " dimensions don't match");
     }
+    FlatStorage flat = flatStorage(other);
+    if (flat != null) {
+      return new Matrix(flat.multiply((FlatStorage) other.storage));
+    }
     Fraction[][] res = new Fraction[nRows()][other.nCols()];
-    Fraction sum;
+    //Each entry is reduced once, after the whole dot product has been added up
+    FractionAccumulator sum = new FractionAccumulator();
     for (int i = 0; i < nRows(); i++) {
       for (int j = 0; j < other.nCols(); j++) {
-        sum = zero;
+        sum.reset();
         for (int k = 0; k < nCols(); k++) {
-          sum = sum.add(get(i, k).multiply(other.get(k, j)));
+          sum.addProduct(get(i, k), other.get(k, j));
         }
-        res[i][j] = sum;
+        res[i][j] = sum.toFraction();
       }
     }
     return new Matrix(res);
   }
 
+  public Matrix multiply(Matrix other, ForkJoinPool pool)
+      throws OperationNotSupportedException {
+    //Same as multiply(other), but the result is split into tiles which are
+    //computed in parallel on the given pool. Small products are done serially
+    if (other == null) {
+      return null;
+    }
+    if (other.nRows() != nCols()) {
+      throw new OperationNotSupportedException("Adjacent matrix" +
+          " dimensions don't match");
+    }
+    if ((long) nRows() * nCols() * other.nCols()
+        < ParallelMultiply.SERIAL_THRESHOLD) {
+      return multiply(other);
+    }
+    FlatStorage flat = flatStorage(other);
+    if (flat != null) {
+      //Flat operands give a flat result, as in multiply(other)
+      FlatStorage res = new FlatStorage(nRows(), other.nCols());
+      pool.invoke(new ParallelMultiply(flat,
+          ((FlatStorage) other.storage).transpose(), res, 0, nRows(), 0,
+          other.nCols()));
+      return new Matrix(res);
+    }
+    Fraction[][] res = new Fraction[nRows()][other.nCols()];
+    pool.invoke(new ParallelMultiply(storage.asArray(),
+        other.transpose().storage.asArray(), res, 0, nRows(), 0,
+        other.nCols()));
+    return new Matrix(res);
+  }
+
+  public Matrix strassenMultiply(Matrix other)
+      throws OperationNotSupportedException {
+    return strassenMultiply(other, StrassenMultiply.DEFAULT_CROSSOVER, null);
+  }
+
+  public Matrix strassenMultiply(Matrix other, int crossover,
+                                 ForkJoinPool pool)
+      throws OperationNotSupportedException {
+    //Strassen-Winograd multiplication. Blocks of size crossover or smaller
+    //are multiplied classically. If pool is not null, the sub-products are
+    //computed in parallel on it
+    if (other == null) {
+      return null;
+    }
+    if (other.nRows() != nCols()) {
+      throw new OperationNotSupportedException("Adjacent matrix" +
+          " dimensions don't match");
+    }
+    if (crossover < 1) {
+      throw new InvalidParameterException("Crossover must be positive");
+    }
+    FlatStorage flat = flatStorage(other);
+    if (flat != null && Math.min(nRows(), Math.min(nCols(), other.nCols()))
+        <= crossover) {
+      //Strassen would use the classical kernel anyway, use the flat one
+      return multiply(other);
+    }
+    Fraction[][] res = StrassenMultiply.multiply(storage.asArray(),
+        other.storage.asArray(), crossover, pool);
+    //The recursion works on Fractions, but flat operands give a flat result
+    return new Matrix(flat != null ? new FlatStorage(res)
+        : new ArrayStorage(res));
+  }
+
+  //Views: matrices sharing the entries of this one instead of copying them.
+  //As matrices are immutable, a view always sees the same entries, and it
+  //keeps this matrix's storage alive until it is materialized
+
+  public Matrix transposeView() {
+    return new Matrix(ViewStorage.of(storage).transpose());
+  }
+
+  public Matrix subMatrix(int rowFrom, int rowTo, int colFrom, int colTo) {
+    //Rows [rowFrom, rowTo) and columns [colFrom, colTo)
+    if (rowFrom < 0 || rowTo > nRows() || rowFrom >= rowTo
+        || colFrom < 0 || colTo > nCols() || colFrom >= colTo) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+    return new Matrix(ViewStorage.of(storage).sub(rowFrom, colFrom,
+        rowTo - rowFrom, colTo - colFrom));
+  }
+
+  public Matrix row(int r) {
+    //Row r, as a 1 x nCols() matrix
+    return subMatrix(r, r + 1, 0, nCols());
+  }
+
+  public Matrix column(int c) {
+    //Column c, as an nRows() x 1 matrix
+    return subMatrix(0, nRows(), c, c + 1);
+  }
+
+  public boolean isView() {
+    return storage instanceof ViewStorage;
+  }
+
+  public Matrix materialize() {
+    //Returns a matrix with its own copy of the entries if this is a view,
+    //in flat storage if the viewed one was primitive. Other matrices
+    //already own their entries, so they are returned as they are
+    if (!isView()) {
+      return this;
+    }
+    if (storage.isPrimitive()) {
+      return toFlat();
+    }
+    return new Matrix(storage.toArray());
+  }
+
+  public LazyMatrix lazy() {
+    //Starts a lazy expression on this matrix, see LazyMatrix
+    return LazyMatrix.of(this);
+  }
+
+  public <T> FieldMatrix<T> over(Field<T> field) {
+    //Copy of this matrix with its entries converted to field, e.g. to
+    //compute the rank modulo a prime or to work with doubles, see Field
+    return field.matrix(this);
+  }
+
   public Matrix transpose() {
     //Transposes the matrix, it writes its rows as columns;
+    if (storage instanceof FlatStorage) {
+      return new Matrix(((FlatStorage) storage).transpose());
+    }
     Fraction[][] res = new Fraction[nCols()][nRows()];
     for (int i = 0; i < nRows(); i++) {
       for (int j = 0; j < nCols(); j++) {
@@ -133,12 +331,103 @@ public class Matrix {
 
   //Determinant
   public Fraction determinant() throws OperationNotSupportedException {
-    if (matrix.length != matrix[0].length) {
+    return determinant(DeterminantStrategy.BAREISS);
+  }
+
+  public Fraction determinant(DeterminantStrategy strategy)
+      throws OperationNotSupportedException {
+    if (nRows() != nCols()) {
+      throw new
+          OperationNotSupportedException("Determinant is " +
+          "only defined on square matrices");
+    }
+    switch (strategy) {
+      case GAUSS:
+        return GaussDeterminant();
+      case LAPLACE:
+        return determinantHelper(storage.asArray());
+      case MODULAR:
+        return new ModularEngine(this).determinant(ForkJoinPool.commonPool());
+      default:
+        return bareissDeterminant();
+    }
+  }
+
+  public Fraction modularDeterminant(ForkJoinPool pool)
+      throws OperationNotSupportedException {
+    //Multi-modular determinant, with the primes spread over the given pool
+    if (nRows() != nCols()) {
       throw new
           OperationNotSupportedException("Determinant is " +
           "only defined on square matrices");
     }
-    return determinantHelper(matrix);
+    return new ModularEngine(this).determinant(pool);
+  }
+
+  public int rank() {
+    return rank(ForkJoinPool.commonPool());
+  }
+
+  public int rank(ForkJoinPool pool) {
+    //Exact rank, computed from the images of the matrix modulo several primes
+    return new ModularEngine(this).rank(pool);
+  }
+
+  private Fraction bareissDeterminant() {
+    //Bareiss fraction-free elimination. Each row is first multiplied by the
+    //lcm of its denominators, so that all entries are integers, and
+    //det(A) = det(scaled A) / product of the scales.
+    //Every division in the elimination is exact, and every intermediate
+    //entry is a minor of the scaled matrix, so entries stay bounded by the
+    //Hadamard bound instead of growing like in rational elimination
+    Fraction[][] matrix = storage.asArray();
+    int n = matrix.length;
+    BigInteger[][] m = new BigInteger[n][n];
+    BigInteger scale = BigInteger.ONE;
+    BigInteger rowLcm;
+    for (int i = 0; i < n; i++) {
+      rowLcm = BigInteger.ONE;
+      for (int j = 0; j < n; j++) {
+        BigInteger denom = matrix[i][j].getBigDenom();
+        rowLcm = rowLcm.multiply(denom.divide(rowLcm.gcd(denom)));
+      }
+      for (int j = 0; j < n; j++) {
+        m[i][j] = matrix[i][j].getBigNum()
+            .multiply(rowLcm.divide(matrix[i][j].getBigDenom()));
+      }
+      scale = scale.multiply(rowLcm);
+    }
+
+    BigInteger prevPivot = BigInteger.ONE;
+    boolean negate = false;
+    BigInteger[] temp;
+    for (int k = 0; k < n - 1; k++) {
+      //If pivot is 0, swap with a row below which isn't zero in that column
+      if (m[k][k].signum() == 0) {
+        int r = k + 1;
+        while (r < n && m[r][k].signum() == 0) {
+          r++;
+        }
+        //If there isn't one, then the determinant is 0
+        if (r == n) {
+          return zero;
+        }
+        temp = m[k];
+        m[k] = m[r];
+        m[r] = temp;
+        negate = !negate;
+      }
+      for (int i = k + 1; i < n; i++) {
+        for (int j = k + 1; j < n; j++) {
+          m[i][j] = m[i][j].multiply(m[k][k])
+              .subtract(m[i][k].multiply(m[k][j])).divide(prevPivot);
+        }
+      }
+      prevPivot = m[k][k];
+    }
+    //The last pivot is the determinant of the scaled matrix
+    BigInteger det = negate ? m[n - 1][n - 1].negate() : m[n - 1][n - 1];
+    return Fraction.valueOf(det, scale);
   }
 
   private Fraction determinantHelper(Fraction[][] m) {
@@ -176,21 +465,39 @@ public class Matrix {
   public Fraction GaussDeterminant() throws OperationNotSupportedException {
     //Triangulate matrix by Gaussian elimination so that the determinant can be
     //easily calculated as the product of the diagonal
-    if (matrix.length != matrix[0].length) {
+    if (nRows() != nCols()) {
       throw new
           OperationNotSupportedException("Determinant is " +
           "only defined on square matrices");
     }
+    //Flat matrices are triangulated on primitives, unless that overflows
+    FlatElimination flat = flatElimination(nCols());
+    if (flat != null && flat.eliminate(nCols(), false)) {
+      if (flat.rank() < nRows()) {
+        return zero;
+      }
+      Fraction det = one;
+      for (int i = 0; i < nRows(); i++) {
+        det = det.multiply(flat.get(i, i));
+      }
+      return flat.isNegated() ? det.negate() : det;
+    }
+
     Fraction[][] matrixCopy = arrayCopy();
-    boolean pivotFound = false;
+    boolean pivotFound;
+    //Every row swap flips the sign of the determinant
+    boolean negate = false;
     //Fraction to multiply by pivot to cancel elements
     Fraction scalar;
-    for (int i = 0; i < matrix.length; i++) {
+    FractionAccumulator acc = new FractionAccumulator();
+    for (int i = 0; i < matrixCopy.length; i++) {
       //If pivot is 0, look for a row which doesn't have a zero in that column
-      if (matrixCopy[i][i].getNum() == 0) {
-        for (int j = i; j < matrixCopy.length; j++) {
-          if (matrixCopy[j][i].getNum() == 0) {
+      if (matrixCopy[i][i].isZero()) {
+        pivotFound = false;
+        for (int j = i + 1; j < matrixCopy.length; j++) {
+          if (!matrixCopy[j][i].isZero()) {
             swapRows(matrixCopy, i, j);
+            negate = !negate;
             pivotFound = true;
             break;
           }
@@ -203,11 +510,11 @@ public class Matrix {
 
       //Apply Gaussian elimination to make all elements under the pivot zero
       for (int r = i + 1; r < matrixCopy.length; r++) {
-        if (matrixCopy[r][i].getNum() != 0) {
+        if (!matrixCopy[r][i].isZero()) {
           scalar = matrixCopy[r][i].negate().divide(matrixCopy[i][i]);
           for (int c = i; c < matrixCopy[0].length; c++) {
-            matrixCopy[r][c] = matrixCopy[r][c].add(matrixCopy[i][c]
-                .multiply(scalar));
+            matrixCopy[r][c] = acc.reset().add(matrixCopy[r][c])
+                .addProduct(matrixCopy[i][c], scalar).toFraction();
           }
         }
       }
@@ -218,7 +525,7 @@ public class Matrix {
     for (int i = 0; i < matrixCopy.length; i++) {
       det = det.multiply(matrixCopy[i][i]);
     }
-    return det;
+    return negate ? det.negate() : det;
   }
 
   public Matrix getInverse() throws OperationNotSupportedException {
@@ -226,21 +533,39 @@ public class Matrix {
       throw new OperationNotSupportedException("Non-square matrices don't " +
           "have an inverse");
     }
-    Matrix identity = identity(nRows());
+    //Flat matrices are inverted on primitives, unless that overflows. The
+    //result is flat as well
+    FlatElimination flat = flatElimination(2 * nCols());
+    if (flat != null) {
+      for (int i = 0; i < nRows(); i++) {
+        flat.setOne(i, nCols() + i);
+      }
+      if (flat.eliminate(nCols(), true)) {
+        if (flat.rank() < nRows()) {
+          return null;
+        }
+        return new Matrix(flat.toStorage(nCols(), 2 * nCols()));
+      }
+    }
+
+    Fraction[][] source = storage.asArray();
+    Fraction[][] identity = identity(nRows()).storage.asArray();
     Fraction[][] gaussMatrix = new Fraction[nRows()][2 * nCols()];
     for (int i = 0; i < nRows(); i++) {
-      System.arraycopy(matrix[i], 0, gaussMatrix[i], 0, nCols());
-      System.arraycopy(identity.matrix[i], 0, gaussMatrix[i], nCols(), nCols());
+      System.arraycopy(source[i], 0, gaussMatrix[i], 0, nCols());
+      System.arraycopy(identity[i], 0, gaussMatrix[i], nCols(), nCols());
     }
 
-    boolean pivotFound = false;
+    boolean pivotFound;
     //Fraction to multiply by pivot to cancel elements
     Fraction scalar;
+    FractionAccumulator acc = new FractionAccumulator();
     for (int i = 0; i < nRows(); i++) {
       //If pivot is 0, look for a row which doesn't have a zero in that column
-      if (gaussMatrix[i][i].getNum() == 0) {
+      if (gaussMatrix[i][i].isZero()) {
+        pivotFound = false;
         for (int j = i + 1; j < nRows(); j++) {
-          if (gaussMatrix[j][i].getNum() == 0) {
+          if (!gaussMatrix[j][i].isZero()) {
             swapRows(gaussMatrix, i, j);
             pivotFound = true;
             break;
@@ -266,11 +591,11 @@ public class Matrix {
         if (r == i) {
           continue;
         }
-        if (gaussMatrix[r][i].getNum() != 0) {
+        if (!gaussMatrix[r][i].isZero()) {
           scalar = gaussMatrix[r][i].negate();
           for (int c = i; c < gaussMatrix[r].length; c++) {
-            gaussMatrix[r][c] = gaussMatrix[r][c].add(gaussMatrix[i][c]
-                .multiply(scalar));
+            gaussMatrix[r][c] = acc.reset().add(gaussMatrix[r][c])
+                .addProduct(gaussMatrix[i][c], scalar).toFraction();
           }
         }
       }
@@ -282,27 +607,105 @@ public class Matrix {
     return new Matrix(res);
   }
 
+  public LUDecomposition luDecompose() throws OperationNotSupportedException {
+    //Factorizes the matrix once, so that systems with the same coefficients
+    //can then be solved in O(n^2) each
+    if (nRows() != nCols()) {
+      throw new OperationNotSupportedException("LU decomposition is only " +
+          "defined on square matrices");
+    }
+    return new LUDecomposition(this);
+  }
+
   public LEQSSolution solveSystem() {
     //Pre: matrix is a valid LEQS (all elements are no null,
     // and the matrix itself is not null)
 
     //Solves LEQS, returning all its solutions, if any, or null otherwise.
     //Aplies Gaussian elimination
+    int nVars = nCols() - 1;
+    Fraction[][] echelon = null;
+    int[] pivotCols = null;
+    //Flat matrices are reduced on primitives, unless that overflows
+    FlatElimination flat = flatElimination(nCols());
+    if (flat != null && flat.eliminate(nVars, false)) {
+      echelon = flat.toArray();
+      pivotCols = flat.pivotCols();
+    }
+    if (echelon == null) {
+      echelon = arrayCopy();
+      pivotCols = rowEchelon(echelon, nVars);
+    }
+    LEQSSolution solution =
+        EchelonSolver.solve(echelon, pivotCols, nVars, null)[0];
+    //Incompatible systems are reported by returning null, without printing
+    if (!solution.isCompatible()) {
+      return null;
+    }
+    return solution;
+  }
+
+  public LEQSSolution[] solveSystems(Matrix rhs)
+      throws OperationNotSupportedException {
+    return solveSystems(rhs, ForkJoinPool.commonPool());
+  }
+
+  public LEQSSolution[] solveSystems(Matrix rhs, ForkJoinPool pool)
+      throws OperationNotSupportedException {
+    //Solves Ax = b for every column b of rhs, where A is this matrix, with a
+    //single elimination of [A|rhs]. Returns one solution per column, which
+    //is marked as incompatible if that system has none. The columns are
+    //back-substituted in parallel on pool
+    if (rhs == null) {
+      return null;
+    }
+    if (rhs.nRows() != nRows()) {
+      throw new OperationNotSupportedException("Right hand sides must have " +
+          "as many rows as the matrix");
+    }
+    int nVars = nCols();
+    Fraction[][] echelon = null;
+    int[] pivotCols = null;
+    if (storage.isPrimitive() && rhs.storage.isPrimitive()) {
+      FlatElimination flat = FlatElimination.of(storage, rhs.storage);
+      if (flat != null && flat.eliminate(nVars, false)) {
+        echelon = flat.toArray();
+        pivotCols = flat.pivotCols();
+      }
+    }
+    if (echelon == null) {
+      echelon = new Fraction[nRows()][nVars + rhs.nCols()];
+      for (int i = 0; i < nRows(); i++) {
+        for (int j = 0; j < nVars; j++) {
+          echelon[i][j] = get(i, j);
+        }
+        for (int j = 0; j < rhs.nCols(); j++) {
+          echelon[i][nVars + j] = rhs.get(i, j);
+        }
+      }
+      pivotCols = rowEchelon(echelon, nVars);
+    }
+    return EchelonSolver.solve(echelon, pivotCols, nVars, pool);
+  }
+
+  private static int[] rowEchelon(Fraction[][] matrixCopy, int nVars) {
+    //Brings the augmented system to row echelon form over its first nVars
+    //columns, returning the pivot column of each non-zero row
+    int[] pivotCols = new int[Math.min(matrixCopy.length, nVars)];
     int pivotCol = 0;
     int pivotRow = 0;
-    Fraction[][] matrixCopy = arrayCopy();
-    Set<Integer> nonPivots = new HashSet<>();
-    boolean pivotFound = false;
+    boolean pivotFound;
 
     //Fraction to multiply by pivot to cancel elements
-    int nPivots = Math.min(matrixCopy.length, matrixCopy[0].length - 1);
     Fraction scalar;
+    FractionAccumulator acc = new FractionAccumulator();
 
-    while ((pivotCol < matrixCopy[0].length - 1) && pivotRow < matrixCopy.length) {
+    while (pivotCol < nVars && pivotRow < matrixCopy.length) {
       //If pivot is 0, look for a row which doesn't have a zero in that column
-      if (matrixCopy[pivotRow][pivotCol].getNum() == 0) {
+      if (matrixCopy[pivotRow][pivotCol].isZero()) {
+        pivotFound = false;
         for (int j = pivotRow + 1; j < matrixCopy.length; j++) {
-          if (matrixCopy[j][pivotCol].getNum() == 0) {
+          if (!matrixCopy[j][pivotCol].isZero()) {
             swapRows(matrixCopy, pivotRow, j);
             pivotFound = true;
             break;
@@ -311,112 +714,37 @@ public class Matrix {
         //If there isn't one, then there is no pivot in this column, and the
         //loop must continue with the next iteration
         if (!pivotFound) {
-          nonPivots.add(pivotCol);
           pivotCol++;
           continue;
         }
       }
 
-      //Make pivot 1 and update row accordingly if necessary
-      if (!matrixCopy[pivotRow][pivotCol].equals(one)) {
-        scalar = matrixCopy[pivotRow][pivotCol].reciprocal();
-        for (int j = pivotCol; j < matrixCopy[pivotRow].length; j++) {
-          matrixCopy[pivotRow][j] = matrixCopy[pivotRow][j].multiply(scalar);
-        }
-      }
-
-      //Use row operations to make everything under and above the pivot 0
-      for (int r = 0; r < matrixCopy.length; r++) {
-        if (r == pivotRow) {
-          continue;
-        }
-        if (matrixCopy[r][pivotCol].getNum() != 0) {
-          scalar = matrixCopy[r][pivotCol].negate();
+      //Use row operations to make everything under the pivot 0
+      Fraction pivotInv = matrixCopy[pivotRow][pivotCol].reciprocal();
+      for (int r = pivotRow + 1; r < matrixCopy.length; r++) {
+        if (!matrixCopy[r][pivotCol].isZero()) {
+          scalar = matrixCopy[r][pivotCol].multiply(pivotInv).negate();
           for (int c = pivotCol; c < matrixCopy[0].length; c++) {
-            matrixCopy[r][c] = matrixCopy[r][c].add(matrixCopy[pivotRow][c]
-                .multiply(scalar));
+            matrixCopy[r][c] = acc.reset().add(matrixCopy[r][c])
+                .addProduct(matrixCopy[pivotRow][c], scalar).toFraction();
           }
         }
       }
+      pivotCols[pivotRow] = pivotCol;
       pivotCol++;
       pivotRow++;
     }
-
-    //Check to see if the system is incompatible
-    if (incompatibleCheck(matrixCopy)) {
-      System.out.println("Incompatible System, no solution");
-      return null;
-    }
-
-    //Add any possible columns which haven't been covered during the #
-    //Gaussian elimination. Only required when you have less equations than
-    //variables
-    for (int i = pivotCol; i < matrixCopy[0].length - 1; i++) {
-      nonPivots.add(i);
-    }
-
-    //The LEQS is now in RREF
-
-    Fraction[] particular =
-        new Fraction[matrixCopy[0].length - 1];
-    Fraction[][] general =
-        new Fraction[nonPivots.size()][matrixCopy[0].length - 1];
-    int offset = 0;
-    Fraction negOne = new Fraction(-1);
-
-    //Read off the particular solution for Ax = b
-    for (int i = 0; i < matrixCopy[0].length - 1; i++) {
-      if (nonPivots.contains(i)) {
-        particular[i] = zero;
-        offset--;
-      } else if (i > matrixCopy.length) {
-        particular[i] = zero;
-      } else {
-        particular[i] = matrixCopy[i + offset][matrixCopy[0].length - 1];
-      }
-    }
-
-    //Apply -1 trick and get non trivial solutions for Ax = 0
-    int solIdx = 0;
-    for (Integer c : nonPivots) {
-      offset = 0;
-      for (int i = 0; i < matrixCopy[0].length - 1; i++) {
-        if (nonPivots.contains(i)) {
-          if (i == c) {
-            general[solIdx][i] = negOne;
-          } else {
-            general[solIdx][i] = zero;
-          }
-          offset--;
-        } else if (i > matrixCopy.length) {
-          general[solIdx][i] = zero;
-        } else {
-          general[solIdx][i + offset] = matrixCopy[i][c];
-        }
-      }
-      solIdx++;
-    }
-    return new LEQSSolution(particular, general);
+    return Arrays.copyOf(pivotCols, pivotRow);
   }
 
-  private static boolean incompatibleCheck(Fraction[][] augmentedSys) {
-    //incompatible system when 0 times all variables gives something other than
-    //zero. (Inconsistent system)
-    boolean allZeros;
-    for (int i = augmentedSys.length - 1; i >= 0; i--) {
-      allZeros = true;
-      for (int j = augmentedSys[0].length - 2; j >= 0; j--) {
-        if (augmentedSys[i][j].getNum() != 0) {
-          allZeros = false;
-          break;
-        }
-      }
-      if (allZeros &&
-          augmentedSys[i][augmentedSys[0].length - 1].getNum() != 0) {
-        return true;
-      }
+  private FlatElimination flatElimination(int nCols) {
+    //Returns a primitive copy of this matrix padded with zero columns up to
+    //nCols if it is stored as primitives and all of its entries fit in a
+    //long, null otherwise
+    if (storage.isPrimitive()) {
+      return FlatElimination.of(storage, nCols);
     }
-    return false;
+    return null;
   }
 
   private static void swapRows(Fraction[][] arr, int r1, int r2) {
@@ -435,31 +763,77 @@ public class Matrix {
   public Fraction[][] arrayCopy() {
     //Copy the matrix into a new array to prevent changes in the matrix to be
     //reflected on the stored matrix
-    Fraction[][] matrixCopy = new Fraction[matrix.length][matrix[0].length];
-    for (int i = 0; i < matrix.length; i++) {
-      System.arraycopy(matrix[i], 0, matrixCopy[i], 0, matrix[0].length);
-    }
-    return matrixCopy;
+    return storage.toArray();
   }
 
   @Override
-  public String toString() {
-    StringBuilder sb = new StringBuilder();
-    sb.append('[');
-    for (int r = 0; r < matrix.length; r++) {
-      sb.append('[');
-      for (int c = 0; c < matrix[r].length; c++) {
-        sb.append(matrix[r][c]);
-        if (c < matrix[r].length - 1) {
-          sb.append(", ");
+  public boolean equals(Object o) {
+    //Matrices are equal if they have the same dimensions and entries,
+    //whatever their storage
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Matrix)) {
+      return false;
+    }
+    Matrix other = (Matrix) o;
+    if (nRows() != other.nRows() || nCols() != other.nCols()
+        || hashCode() != other.hashCode()) {
+      return false;
+    }
+    long[] raw = new long[2];
+    long[] otherRaw = new long[2];
+    for (int i = 0; i < nRows(); i++) {
+      for (int j = 0; j < nCols(); j++) {
+        if (storage.isPrimitive() && other.storage.isPrimitive()
+            && storage.getRaw(i, j, raw) && other.storage.getRaw(i, j,
+            otherRaw)) {
+          if (raw[0] != otherRaw[0] || raw[1] != otherRaw[1]) {
+            return false;
+          }
+        } else if (!storage.get(i, j).equals(other.storage.get(i, j))) {
+          return false;
         }
       }
-      sb.append(']');
-      if (r < matrix.length - 1) {
-        sb.append('\n');
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    //Computed once, from the dimensions and the hash codes of the entries.
+    //As in String, hash is a single int read once, so a racing thread sees
+    //either 0 and computes the same value again, or the final value. A real
+    //hash of 0 is stored as 1 so it isn't recomputed every time
+    int h = hash;
+    if (h != 0) {
+      return h;
+    }
+    int result = 31 * nRows() + nCols();
+    long[] raw = new long[2];
+    for (int i = 0; i < nRows(); i++) {
+      for (int j = 0; j < nCols(); j++) {
+        result = 31 * result + (storage.getRaw(i, j, raw)
+            ? Fraction.hashCode(raw[0], raw[1])
+            : storage.get(i, j).hashCode());
       }
     }
-    sb.append(']');
+    if (result == 0) {
+      result = 1;
+    }
+    hash = result;
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    try {
+      new MatrixWriter().write(this, sb);
+    } catch (IOException e) {
+      //A StringBuilder never throws
+      throw new UncheckedIOException(e);
+    }
     return sb.toString();
   }
 }
@@ -0,0 +1,189 @@
+package matrix;
+
+import fraction.Fraction;
+
+import javax.naming.OperationNotSupportedException;
+import java.security.InvalidParameterException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MatrixCache {
+  //Bounded, thread-safe cache of determinants, inverses and solutions,
+  //keyed by matrix contents, so that equal matrices built separately share
+  //their results. Callers opt in by going through a cache instead of calling
+  //the Matrix methods directly.
+  //Every entry weighs the number of elements of its matrix and its result.
+  //When the total goes over the limit, the least recently used entries are
+  //evicted. Results are shared between callers, so they mustn't be modified.
+  //Results are computed outside the lock, so two threads missing on the same
+  //matrix at once may both compute it
+
+  private enum Operation {
+    DETERMINANT, INVERSE, SOLVE
+  }
+
+  //Stands for a null result (singular matrix or incompatible system), which
+  //is worth caching too
+  private static final Object NULL = new Object();
+
+  private final long maxWeight;
+  private final LinkedHashMap<Key, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private long weight;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public MatrixCache(long maxWeight) {
+    if (maxWeight < 0) {
+      throw new IllegalArgumentException("Weight limit can't be negative");
+    }
+    this.maxWeight = maxWeight;
+  }
+
+  public Fraction determinant(Matrix m) throws OperationNotSupportedException {
+    Key key = key(m, Operation.DETERMINANT);
+    Object res = lookup(key);
+    if (res == null) {
+      Fraction det = m.determinant();
+      res = store(key, det, 1);
+    }
+    return (Fraction) res;
+  }
+
+  public Matrix inverse(Matrix m) throws OperationNotSupportedException {
+    //Returns null for singular matrices, like Matrix.getInverse()
+    Key key = key(m, Operation.INVERSE);
+    Object res = lookup(key);
+    if (res == null) {
+      Matrix inverse = m.getInverse();
+      res = store(key, inverse, inverse == null ? 1
+          : (long) inverse.nRows() * inverse.nCols());
+    }
+    return res == NULL ? null : (Matrix) res;
+  }
+
+  public LEQSSolution solveSystem(Matrix m) {
+    //Returns null for incompatible systems, like Matrix.solveSystem()
+    Key key = key(m, Operation.SOLVE);
+    Object res = lookup(key);
+    if (res == null) {
+      LEQSSolution solution = m.solveSystem();
+      res = store(key, solution, solution == null ? 1
+          : solution.getParticularSol().length * (1L
+          + solution.getGeneralSol().length));
+    }
+    return res == NULL ? null : (LEQSSolution) res;
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  public long evictions() {
+    return evictions.get();
+  }
+
+  public synchronized long weight() {
+    return weight;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  private static Key key(Matrix m, Operation op) {
+    //Called outside the synchronized methods, see Key
+    if (m == null) {
+      throw new InvalidParameterException("Matrix can't be null");
+    }
+    return new Key(m, op);
+  }
+
+  private synchronized Object lookup(Key key) {
+    //Returns the cached result, NULL for a cached null, or null on a miss
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.result;
+  }
+
+  private synchronized Object store(Key key, Object result,
+                                    long resultWeight) {
+    //Returns the stored result, which is NULL if result is null
+    Object value = result == null ? NULL : result;
+    long entryWeight = (long) key.matrix.nRows() * key.matrix.nCols()
+        + resultWeight;
+    if (entryWeight > maxWeight) {
+      //Would evict everything else and still not fit
+      return value;
+    }
+    Entry previous = entries.put(key, new Entry(value, entryWeight));
+    if (previous != null) {
+      weight -= previous.weight;
+    }
+    weight += entryWeight;
+    //Iteration order is least recently used first
+    Iterator<Entry> lru = entries.values().iterator();
+    while (weight > maxWeight) {
+      Entry evicted = lru.next();
+      weight -= evicted.weight;
+      lru.remove();
+      evictions.incrementAndGet();
+    }
+    return value;
+  }
+
+  private static class Key {
+    private final Matrix matrix;
+    private final Operation op;
+    private final int hash;
+
+    Key(Matrix matrix, Operation op) {
+      //The content hash takes O(rows * cols) the first time, so it is
+      //computed here, before any lock is taken, rather than in the map
+      this.matrix = matrix;
+      this.op = op;
+      this.hash = 31 * matrix.hashCode() + op.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return op == other.op && matrix.equals(other.matrix);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static class Entry {
+    private final Object result;
+    private final long weight;
+
+    Entry(Object result, long weight) {
+      this.result = result;
+      this.weight = weight;
+    }
+  }
+}
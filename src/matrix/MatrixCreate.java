@@ -120,11 +120,11 @@ public class MatrixCreate {
       throw new NumberFormatException("Empty fraction given.");
     } else if (numDenom.length == 1) {
       //Only numerator, no denominator
-      return new Fraction(Integer.parseInt(numDenom[0]));
+      return Fraction.valueOf(Long.parseLong(numDenom[0]));
     } else if (numDenom.length == 2) {
       //Numerator and denominator
-      return new Fraction(Integer.parseInt(numDenom[0]),
-          Integer.parseInt(numDenom[1]));
+      return Fraction.valueOf(Long.parseLong(numDenom[0]),
+          Long.parseLong(numDenom[1]));
     } else {
       //Multiple '/', invalid input
       throw new NumberFormatException("Fractions can only have two terms: " +
@@ -0,0 +1,22 @@
+package matrix;
+
+public class MatrixFormatException extends NumberFormatException {
+  //Malformed matrix input. Keeps the position of the offending token, so
+  //that it can be fixed in the file instead of re-entered
+  private final int line;
+  private final int column;
+
+  public MatrixFormatException(String message, int line, int column) {
+    super("Line " + line + ", column " + column + ": " + message);
+    this.line = line;
+    this.column = column;
+  }
+
+  public int getLine() {
+    return line;
+  }
+
+  public int getColumn() {
+    return column;
+  }
+}
@@ -0,0 +1,306 @@
+package matrix;
+
+import fraction.Fraction;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class MatrixIOTest {
+  private final MatrixReader reader = new MatrixReader();
+  private final CoordinateReader coordinateReader = new CoordinateReader();
+
+  private Matrix read(String s) throws IOException {
+    return reader.read(
+        new ByteArrayInputStream(s.getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  private static ReadableByteChannel channel(String s) {
+    return Channels.newChannel(
+        new ByteArrayInputStream(s.getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  private void assertMalformed(String s, int line, int column)
+      throws IOException {
+    try {
+      read(s);
+      fail("Expected a MatrixFormatException");
+    } catch (MatrixFormatException e) {
+      assertEquals(e.getLine(), line);
+      assertEquals(e.getColumn(), column);
+    }
+  }
+
+  @Test
+  public void readTest() throws Exception {
+    Matrix m = read("1,2/4, -3\n\n  4 5/-10\t+6\r\n-7/1,8,9/3");
+    assertEquals(m.nRows(), 3);
+    assertEquals(m.nCols(), 3);
+    assertTrue(m.isFlat());
+    assertEquals(m.get(0, 1), new Fraction(1, 2));
+    assertEquals(m.get(1, 1), new Fraction(-1, 2));
+    assertEquals(m.get(1, 2), new Fraction(6));
+    assertEquals(m.get(2, 2), new Fraction(3));
+    assertNull(read(" \n\n"));
+    //Values which don't fit in a long
+    String big = "123456789012345678901234567890";
+    m = read(big + "/2 -9223372036854775808\n" +
+        "9223372036854775807 1/-9223372036854775808");
+    assertEquals(m.get(0, 0), new Fraction(new BigInteger(big),
+        BigInteger.valueOf(2)));
+    assertEquals(m.get(0, 1), new Fraction(Long.MIN_VALUE));
+    assertEquals(m.get(1, 0), new Fraction(Long.MAX_VALUE));
+    assertEquals(m.get(1, 1), new Fraction(BigInteger.valueOf(-1),
+        BigInteger.valueOf(Long.MIN_VALUE).negate()));
+    //Entries spanning buffer refills
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      for (int j = 0; j < 300; j++) {
+        sb.append(i - j).append('/').append(j + 1).append(j < 299 ? "," : "\n");
+      }
+    }
+    m = read(sb.toString());
+    assertEquals(m.nRows(), 300);
+    assertEquals(m.get(299, 150), new Fraction(149, 151));
+  }
+
+  @Test
+  public void malformedTest() throws Exception {
+    assertMalformed("1,2\n3,x", 2, 3);
+    assertMalformed("1,2\n3,4,5", 2, 5);
+    assertMalformed("1,2,3\n4,5\n6,7,8", 2, 3);
+    assertMalformed("1,,2", 1, 3);
+    assertMalformed("1,2,\n3,4,5", 1, 5);
+    assertMalformed("1/0 2", 1, 1);
+    assertMalformed("1/ 2", 1, 3);
+    assertMalformed("1/2/3", 1, 4);
+    assertMalformed("--1", 1, 2);
+  }
+
+  @Test
+  public void binaryFormatTest() throws Exception {
+    Path file = Files.createTempFile("matrix", ".bin");
+    try {
+      //Narrow and wide encodings, with and without BigInteger entries
+      Fraction huge = new Fraction(new BigInteger("123456789012345678901"),
+          BigInteger.valueOf(7));
+      Matrix[] matrices = {
+          read("1,2/3\n-4,5"),
+          read("1,2/3\n-4," + Long.MAX_VALUE),
+          new Matrix(new Fraction[][]{{huge, new Fraction(1, 2)},
+              {new Fraction(Long.MIN_VALUE), huge.negate()}})
+      };
+      for (Matrix m : matrices) {
+        BinaryMatrixFormat.write(m, file);
+        Matrix mapped = BinaryMatrixFormat.map(file);
+        Matrix loaded = BinaryMatrixFormat.load(file);
+        for (int i = 0; i < m.nRows(); i++) {
+          for (int j = 0; j < m.nCols(); j++) {
+            assertEquals(mapped.get(i, j), m.get(i, j));
+            assertEquals(loaded.get(i, j), m.get(i, j));
+          }
+        }
+        assertTrue(loaded.isFlat());
+        assertEquals(mapped.determinant(), m.determinant());
+        assertEquals(mapped.GaussDeterminant(), m.GaussDeterminant());
+      }
+      //Entries which aren't in canonical form are rejected: make the
+      //denominator of 2/3 negative, then 2/6
+      for (long denom : new long[]{-3, 6}) {
+        BinaryMatrixFormat.write(matrices[0], file);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        int width = bytes.getInt(16);
+        int at = 24 + 4 * width + width;
+        if (width == Long.BYTES) {
+          bytes.putLong(at, denom);
+        } else {
+          bytes.putInt(at, (int) denom);
+        }
+        Files.write(file, bytes.array());
+        try {
+          BinaryMatrixFormat.map(file);
+          fail("Expected an IOException");
+        } catch (IOException e) {
+          //Corrupt entry
+        }
+      }
+      Files.write(file, new byte[]{'M', 'T', 'R', 'Y'});
+      try {
+        BinaryMatrixFormat.map(file);
+        fail("Expected an IOException");
+      } catch (IOException e) {
+        //Not a matrix file
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void matrixMarketTest() throws Exception {
+    String file = "%%MatrixMarket matrix coordinate rational symmetric\n" +
+        "% A comment\n" +
+        "3 3 4\n" +
+        "1 1 2\n" +
+        "2 1 -1/2 % Another one\n" +
+        "3 2 5\n" +
+        "3 3 1/3\n";
+    SparseMatrix sparse = coordinateReader.readSparse(channel(file),
+        CoordinateFormat.MATRIX_MARKET);
+    Matrix dense = coordinateReader.readDense(channel(file),
+        CoordinateFormat.MATRIX_MARKET);
+    assertEquals(sparse.nonZeros(), 6);
+    assertEquals(sparse.get(0, 1), new Fraction(-1, 2));
+    assertEquals(sparse.get(1, 0), new Fraction(-1, 2));
+    assertEquals(sparse.get(1, 2), new Fraction(5));
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(dense.get(i, j), sparse.get(i, j));
+      }
+    }
+    //Writing and reading back gives the same matrix, in both formats
+    for (CoordinateFormat format : CoordinateFormat.values()) {
+      StringWriter out = new StringWriter();
+      CoordinateWriter.write(sparse, format, out);
+      StringWriter denseOut = new StringWriter();
+      CoordinateWriter.write(dense, format, denseOut);
+      assertEquals(out.toString(), denseOut.toString());
+      SparseMatrix back = coordinateReader.readSparse(
+          channel(out.toString()), format);
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          assertEquals(back.get(i, j), sparse.get(i, j));
+        }
+      }
+    }
+    //Skew-symmetric entries are mirrored negated
+    sparse = coordinateReader.readSparse(channel("%%MatrixMarket matrix " +
+            "coordinate integer skew-symmetric\n2 2 1\n2 1 " +
+            Long.MIN_VALUE + "\n"), CoordinateFormat.MATRIX_MARKET);
+    assertEquals(sparse.get(0, 1), new Fraction(Long.MIN_VALUE).negate());
+    //Triplets take their dimensions from the indices, unless given
+    sparse = coordinateReader.readSparse(channel("# Comment\n0 2 1/2\n" +
+        "1,0,3\n0 2 1/2"), CoordinateFormat.TRIPLETS);
+    assertEquals(sparse.nRows(), 2);
+    assertEquals(sparse.nCols(), 3);
+    assertEquals(sparse.get(0, 2), new Fraction(1));
+    assertEquals(coordinateReader.readSparse(channel("0 0 1"), 4, 5).nCols(),
+        5);
+  }
+
+  @Test
+  public void matrixMarketMalformedTest() throws Exception {
+    String banner = "%%MatrixMarket matrix coordinate integer general\n";
+    String[] files = {
+        "%%MatrixMarket matrix array integer general\n2 2\n",
+        banner + "2 2 1\n3 1 1\n",
+        banner + "2 2 1\n1 1 1/2\n",
+        banner + "2 2 2\n1 1 1\n",
+        banner + "2 2 1\n1 1\n1\n"
+    };
+    int[][] positions = {{1, 1}, {3, 1}, {3, 5}, {4, 1}, {3, 1}};
+    for (int k = 0; k < files.length; k++) {
+      try {
+        coordinateReader.readSparse(channel(files[k]),
+            CoordinateFormat.MATRIX_MARKET);
+        fail("Expected a MatrixFormatException");
+      } catch (MatrixFormatException e) {
+        assertEquals(e.getLine(), positions[k][0]);
+        assertEquals(e.getColumn(), positions[k][1]);
+      }
+    }
+  }
+
+  @Test
+  public void writerTest() throws Exception {
+    Fraction big = new Fraction(new BigInteger("123456789012345678901"),
+        BigInteger.valueOf(2));
+    Fraction[][] entries = {{new Fraction(1), new Fraction(-1, 2), big},
+        {new Fraction(Long.MIN_VALUE), new Fraction(0),
+            new Fraction(Long.MAX_VALUE, 3)}};
+    String brackets = "[[1, -1/2, 123456789012345678901/2]\n" +
+        "[-9223372036854775808, 0, 9223372036854775807/3]]";
+    String csv = "1,-1/2,123456789012345678901/2\n" +
+        "-9223372036854775808,0,9223372036854775807/3\n";
+    MatrixWriter writer = new MatrixWriter();
+    for (Matrix m : new Matrix[]{new Matrix(entries), Matrix.flat(entries)}) {
+      assertEquals(m.toString(), brackets);
+      //An Appendable which is neither a Writer nor a StringBuilder
+      CharBuffer chars = CharBuffer.allocate(200);
+      writer.writeCsv(m, chars);
+      assertEquals(chars.flip().toString(), csv);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      writer.writeTo(m, bytes);
+      assertEquals(bytes.toString("UTF-8"), brackets);
+      //A PrintStream, like System.out, is written to as an Appendable
+      bytes.reset();
+      PrintStream print = new PrintStream(bytes, true, "UTF-8");
+      writer.write(m, print);
+      writer.writeCsvTo(m, print);
+      assertEquals(bytes.toString("UTF-8"), brackets + csv);
+    }
+    LEQSSolution sol = new LEQSSolution(new Fraction[]{new Fraction(2, 3),
+        new Fraction(0)}, new Fraction[][]{{new Fraction(-1),
+        new Fraction(1, 4)}});
+    assertEquals(sol.toString(),
+        "Particular: [2/3, 0]\nGeneral :[[-1, 1/4]]");
+    assertEquals(LEQSSolution.incompatible().toString(),
+        "Incompatible System, no solution");
+  }
+
+  @Test
+  public void batchTest() throws Exception {
+    Path dir = Files.createTempDirectory("batch");
+    Files.write(dir.resolve("a.txt"), "1 2\n3 4\n".getBytes(
+        StandardCharsets.US_ASCII));
+    StringBuilder jobs = new StringBuilder("# comment\n\n");
+    for (int i = 0; i < 50; i++) {
+      jobs.append("det @a.txt\n");
+    }
+    jobs.append("mul @a.txt | 1; 1\n")
+        .append("inv 1 2; 2 4\n")
+        .append("rank 1 2 3; 2 4 6\n")
+        .append("solve 1 1 2; 1 -1 0\n")
+        .append("solve 1 1; 1 1 | 2 3; 2 4\n")
+        .append("mul 1 2 | 1 2\n")
+        .append("frobnicate 1\n");
+    StringWriter out = new StringWriter();
+    //Fewer pending jobs than jobs, so reading has to wait for the workers
+    int failed = new BatchRunner(3, 4, dir).run(
+        new BufferedReader(new StringReader(jobs.toString())), out);
+    assertEquals(failed, 2);
+    String[] results = out.toString().split(System.lineSeparator()
+        + System.lineSeparator());
+    assertEquals(results.length, 57);
+    for (int i = 0; i < 50; i++) {
+      assertTrue(results[i].matches("line " + (i + 3) + ": det \\(.* ms\\)"
+          + System.lineSeparator() + "-2"));
+    }
+    String nl = System.lineSeparator();
+    assertTrue(results[50].endsWith("ms)" + nl + "[[3]\n[7]]"));
+    assertTrue(results[51].endsWith("Singular matrix, no inverse"));
+    assertTrue(results[52].endsWith(nl + "1"));
+    assertTrue(results[53].endsWith("Particular: [1, 1]"));
+    assertTrue(results[54].contains("Incompatible System, no solution"));
+    assertTrue(results[55].startsWith("line 58: mul"));
+    assertTrue(results[55].contains("error: "));
+    assertTrue(results[56].endsWith("error: Unknown operation frobnicate"));
+  }
+}
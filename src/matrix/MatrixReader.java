@@ -0,0 +1,109 @@
+package matrix;
+
+import fraction.Fraction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MatrixReader {
+  //Non-interactive counterpart of MatrixCreate, for files and pipes. Every
+  //non-empty line is a row, whose elements are integers or a/b fractions
+  //separated by commas and/or whitespace. All rows must have the same number
+  //of elements. Entries go straight into flat primitive storage.
+  //Malformed input throws a MatrixFormatException with its line and column.
+  //A reader reuses its buffers between reads, so it isn't thread-safe
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private final FractionTokenizer tokenizer = new FractionTokenizer(null);
+
+  public Matrix read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.READ)) {
+      return read(channel);
+    }
+  }
+
+  public Matrix read(InputStream in) throws IOException {
+    //Doesn't close the stream, so it can be used on System.in
+    return read(Channels.newChannel(in));
+  }
+
+  public Matrix read(ReadableByteChannel channel) throws IOException {
+    //Returns the matrix read from channel, or null if it has no elements
+    tokenizer.reset(channel);
+    long[] nums = new long[INITIAL_CAPACITY];
+    long[] denoms = new long[INITIAL_CAPACITY];
+    Map<Integer, Fraction> wide = null;
+    int size = 0;
+    int nRows = 0;
+    int nCols = 0;
+    int rowLength = 0;
+    int rowLine = 0;
+    int lastColumn = 0;
+    while (tokenizer.next()) {
+      if (tokenizer.line() != rowLine) {
+        //First element of a new row
+        if (nRows == 1) {
+          nCols = rowLength;
+        }
+        checkRowLength(nRows, nCols, rowLength, rowLine, lastColumn);
+        nRows++;
+        rowLength = 0;
+        rowLine = tokenizer.line();
+      }
+      if (nRows > 1 && rowLength == nCols) {
+        throw new MatrixFormatException("Row has more than " + nCols +
+            " elements", tokenizer.line(), tokenizer.column());
+      }
+      if (size == nums.length) {
+        nums = Arrays.copyOf(nums, 2 * size);
+        denoms = Arrays.copyOf(denoms, 2 * size);
+      }
+      if (tokenizer.isLong()) {
+        nums[size] = tokenizer.num();
+        denoms[size] = tokenizer.denom();
+      } else {
+        if (wide == null) {
+          wide = new HashMap<>();
+        }
+        wide.put(size, tokenizer.toFraction());
+      }
+      size++;
+      rowLength++;
+      lastColumn = tokenizer.column();
+    }
+    if (nRows == 0) {
+      return null;
+    }
+    if (nRows == 1) {
+      nCols = rowLength;
+    }
+    checkRowLength(nRows, nCols, rowLength, rowLine, lastColumn);
+    FlatStorage storage = new FlatStorage(nRows, nCols,
+        Arrays.copyOf(nums, size), Arrays.copyOf(denoms, size));
+    if (wide != null) {
+      for (Map.Entry<Integer, Fraction> e : wide.entrySet()) {
+        storage.set(e.getKey(), e.getValue());
+      }
+    }
+    return new Matrix(storage);
+  }
+
+  private static void checkRowLength(int nRows, int nCols, int rowLength,
+                                     int rowLine, int lastColumn) {
+    //Rows can't be longer than the first one, as that is checked as they
+    //are read, but they can be shorter
+    if (nRows > 0 && rowLength < nCols) {
+      throw new MatrixFormatException("Row has " + rowLength +
+          " elements, expected " + nCols, rowLine, lastColumn);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package matrix;
+
+import fraction.Fraction;
+
+abstract class MatrixStorage {
+  //Backend holding the entries of a Matrix. Storages are never modified once
+  //the matrix which owns them has been built
+
+  abstract int nRows();
+
+  abstract int nCols();
+
+  abstract Fraction get(int r, int c);
+
+  boolean isPrimitive() {
+    //True if entries are kept as primitives, so that copyTo() is cheap and
+    //the primitive kernels are worth using
+    return false;
+  }
+
+  boolean getRaw(int r, int c, long[] res) {
+    //Stores the numerator and denominator of an entry in res, in canonical
+    //form. Returns false if they don't fit in a long
+    Fraction f = get(r, c);
+    if (!f.isLong()) {
+      return false;
+    }
+    res[0] = f.getNum();
+    res[1] = f.getDenom();
+    return true;
+  }
+
+  boolean copyTo(long[] num, long[] denom, int offset, int stride) {
+    //Copies the entries into the given row-major arrays, whose rows are
+    //stride long, starting at column offset. Returns false if some entry
+    //doesn't fit in a long, in which case the arrays may be partly written
+    long[] raw = new long[2];
+    for (int i = 0; i < nRows(); i++) {
+      for (int j = 0; j < nCols(); j++) {
+        if (!getRaw(i, j, raw)) {
+          return false;
+        }
+        num[i * stride + offset + j] = raw[0];
+        denom[i * stride + offset + j] = raw[1];
+      }
+    }
+    return true;
+  }
+
+  Fraction[][] toArray() {
+    //Returns a new array with the entries, which the caller may modify
+    Fraction[][] res = new Fraction[nRows()][nCols()];
+    for (int i = 0; i < res.length; i++) {
+      for (int j = 0; j < res[i].length; j++) {
+        res[i][j] = get(i, j);
+      }
+    }
+    return res;
+  }
+
+  Fraction[][] asArray() {
+    //Returns the entries as an array, without copying them if the storage
+    //already is one. The result must not be modified
+    return toArray();
+  }
+}
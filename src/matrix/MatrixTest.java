@@ -1,8 +1,19 @@
 package matrix;
 
+import expr.CompiledExpr;
+import expr.ConstExpr;
+import expr.Expr;
+import expr.Polynomial;
+import expr.PowExpr;
+import expr.VariableExpr;
 import fraction.Fraction;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import static matrix.MatrixCreate.createMatrix;
 import static org.junit.Assert.*;
 
@@ -25,12 +36,185 @@ public class MatrixTest {
   public void determinantTests() throws Exception {
     assertTrue(m1.determinant().equals(new Fraction(900)));
     assertTrue(m1.GaussDeterminant().equals(new Fraction(900)));
+    assertTrue(m1.determinant(DeterminantStrategy.LAPLACE)
+        .equals(new Fraction(900)));
+  }
+
+  @Test
+  public void determinantStrategiesTest() throws Exception {
+    //Zero pivot in the first column and fractional entries
+    Fraction[][] arr = {{new Fraction(0), new Fraction(1, 2), f3},
+        {new Fraction(2, 3), f1, new Fraction(-1, 4)},
+        {f4, new Fraction(5, 7), f2}};
+    Matrix m = new Matrix(arr);
+    Fraction expected = m.determinant(DeterminantStrategy.LAPLACE);
+    assertEquals(expected, new Fraction(-493, 42));
+    assertEquals(m.determinant(), expected);
+    assertEquals(m.determinant(DeterminantStrategy.GAUSS), expected);
+    assertEquals(m.determinant(DeterminantStrategy.MODULAR), expected);
+    Matrix singular = new Matrix(new Fraction[][]{{f1, f2}, {f2, f4}});
+    assertEquals(singular.determinant(), new Fraction(0));
+    assertEquals(singular.determinant(DeterminantStrategy.MODULAR),
+        new Fraction(0));
+  }
+
+  @Test
+  public void modularTest() throws Exception {
+    //Entries big enough to need several primes
+    Fraction big = new Fraction(Long.MAX_VALUE);
+    Matrix m = new Matrix(new Fraction[][]{{big, f2, f3},
+        {f1, big.negate(), new Fraction(1, 3)}, {f4, f1, big}});
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      assertEquals(m.modularDeterminant(pool), m.determinant());
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(m1.rank(), 4);
+    assertEquals(m2.rank(), 2);
+    assertEquals(new Matrix(new Fraction[][]{{f1, f2}, {f2, f4}}).rank(), 1);
+    assertEquals(new Matrix(new Fraction[][]{{zero(), zero()}}).rank(), 0);
+  }
+
+  private static Fraction zero() {
+    return new Fraction(0);
   }
 
   @Test
   public void solveSystem() throws Exception {
     LEQSSolution sol = m2.solveSystem();
     System.out.println(sol);
+    //x + y = 1, x + y = 2 is incompatible, which is reported as null only
+    Matrix incompatible = new Matrix(new Fraction[][]{{f1, f1, f1},
+        {f1, f1, f2}});
+    PrintStream stdout = System.out;
+    ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(printed));
+    try {
+      assertNull(incompatible.solveSystem());
+      assertNull(incompatible.toFlat().solveSystem());
+    } finally {
+      System.setOut(stdout);
+    }
+    assertEquals(printed.size(), 0);
+  }
+
+  @Test
+  public void solveSystemsTest() throws Exception {
+    //Rank 2 coefficients, so b must lie in their column space
+    Fraction[][] a = {{f1, f2, f3}, {f2, f4, f3.add(f3)}, {f1, zero(), f1}};
+    Fraction[][] b = {{f1, zero(), f1}, {f2, zero(), f1}, {f3, zero(), f1}};
+    Matrix coeffs = new Matrix(a);
+    for (Matrix m : new Matrix[]{coeffs, coeffs.toFlat()}) {
+      LEQSSolution[] sols = m.solveSystems(Matrix.flat(b));
+      assertEquals(sols.length, 3);
+      assertFalse(sols[2].isCompatible());
+      for (int k = 0; k < 2; k++) {
+        assertTrue(sols[k].isCompatible());
+        Fraction[] x = sols[k].getParticularSol();
+        for (int i = 0; i < 3; i++) {
+          Fraction row = zero();
+          Fraction general = zero();
+          for (int j = 0; j < 3; j++) {
+            row = row.add(a[i][j].multiply(x[j]));
+            general = general.add(a[i][j]
+                .multiply(sols[k].getGeneralSol()[0][j]));
+          }
+          assertEquals(row, b[i][k]);
+          assertEquals(general, zero());
+        }
+      }
+    }
+    //The single system solver agrees with the batch one
+    Fraction[][] augmented = new Fraction[3][4];
+    for (int i = 0; i < 3; i++) {
+      System.arraycopy(a[i], 0, augmented[i], 0, 3);
+      augmented[i][3] = b[i][0];
+    }
+    assertEquals(new Matrix(augmented).solveSystem().toString(),
+        coeffs.solveSystems(new Matrix(b))[0].toString());
+  }
+
+  @Test
+  public void lazyMatrixTest() throws Exception {
+    Random random = new Random(16);
+    Matrix a = randomMatrix(random, 3, 4);
+    Matrix b = randomMatrix(random, 4, 5);
+    Matrix c = randomMatrix(random, 3, 5);
+    Matrix d = randomMatrix(random, 5, 2);
+    Fraction k = new Fraction(-2, 3);
+    LazyMatrix ab = a.lazy().multiply(b.lazy());
+    //(AB + C)k - C^T^T + AB, sharing AB
+    LazyMatrix expr = ab.add(c.lazy()).scalarMult(k)
+        .subtract(c.lazy().transpose().transpose()).add(ab);
+    Matrix eager = a.multiply(b).add(c).scalarMult(k).subtract(c)
+        .add(a.multiply(b));
+    assertMatrixEquals(eager, expr.evaluate());
+    //Chains give the same product whatever the order chosen
+    LazyMatrix chain = a.lazy().multiply(b.lazy()).multiply(d.lazy())
+        .multiply(d.lazy().transpose());
+    assertMatrixEquals(a.multiply(b).multiply(d).multiply(d.transpose()),
+        chain.evaluate());
+    //10x100 * 100x5 * 5x50 is cheapest as (AB)C
+    assertEquals(LazyMatrix.chainSplits(new int[]{10, 100, 5, 50})[0][2], 1);
+    assertEquals(LazyMatrix.chainSplits(new int[]{50, 5, 100, 10})[0][2], 0);
+  }
+
+  @Test(timeout = 10000)
+  public void lazyMatrixDagTest() throws Exception {
+    //x = x + x, 60 times, is a DAG of 61 nodes but has 2^60 paths from the
+    //root to a. Fusing it must visit every node once
+    Matrix a = randomMatrix(new Random(17), 3, 3);
+    LazyMatrix x = a.lazy();
+    LazyMatrix y = a.lazy().transpose();
+    for (int i = 0; i < 60; i++) {
+      x = x.add(x);
+      y = y.transpose().transpose().add(y);
+    }
+    Fraction k = new Fraction(1L << 60);
+    assertMatrixEquals(a.scalarMult(k), x.evaluate());
+    assertMatrixEquals(a.transpose().scalarMult(k), y.evaluate());
+    assertMatrixEquals(a.scalarMult(new Fraction(0)), x.subtract(x)
+        .evaluate());
+  }
+
+  @Test(timeout = 10000)
+  public void lazyMatrixChainTest() throws Exception {
+    //A chain of 20000 additions, deeper than the call stack allows
+    //recursing once per node
+    Matrix a = randomMatrix(new Random(18), 2, 3);
+    LazyMatrix x = a.lazy();
+    for (int i = 0; i < 20000; i++) {
+      x = x.add(a.lazy());
+    }
+    assertMatrixEquals(a.scalarMult(new Fraction(20001)), x.evaluate());
+  }
+
+  @Test
+  public void viewTest() throws Exception {
+    Random random = new Random(17);
+    Fraction[][] entries = randomMatrix(random, 5, 6).arrayCopy();
+    for (Matrix m : new Matrix[]{new Matrix(entries), Matrix.flat(entries)}) {
+      Matrix sub = m.subMatrix(1, 4, 2, 5);
+      assertTrue(sub.isView());
+      assertEquals(sub.get(0, 0), m.get(1, 2));
+      assertMatrixEquals(m.transpose(), m.transposeView());
+      //Views of views
+      Matrix nested = m.transposeView().subMatrix(2, 5, 1, 4).transposeView();
+      assertMatrixEquals(sub, nested);
+      assertMatrixEquals(m.row(3), m.transposeView().column(3).transpose());
+      //Views work like any other matrix
+      assertEquals(sub.determinant(), sub.materialize().determinant());
+      assertEquals(sub.GaussDeterminant(), sub.determinant());
+      assertMatrixEquals(m.multiply(m.transpose()),
+          m.multiply(m.transposeView()));
+      assertMatrixEquals(sub.add(sub).materialize(), sub.scalarMult(
+          new Fraction(2)));
+      Matrix copy = sub.materialize();
+      assertFalse(copy.isView());
+      assertEquals(copy.isFlat(), m.isFlat());
+      assertMatrixEquals(sub, copy);
+    }
   }
 
   @Test
@@ -49,4 +233,221 @@ public class MatrixTest {
     System.out.println(m4.getInverse());
   }
 
-}
\ No newline at end of file
+  @Test
+  public void multiplyOverflowTest() throws Exception {
+    Fraction big = new Fraction(Long.MAX_VALUE / 2);
+    Matrix m = new Matrix(new Fraction[][]{{big, big}, {f1, f2}});
+    Matrix square = m.multiply(m);
+    Fraction expected = big.multiply(big).add(big);
+    assertEquals(square.get(0, 0), expected);
+    assertEquals(square.get(1, 1), big.add(f4));
+  }
+
+  @Test
+  public void parallelMultiplyTest() throws Exception {
+    Random random = new Random(5);
+    Matrix a = randomMatrix(random, 45, 40);
+    Matrix b = randomMatrix(random, 40, 37);
+    Matrix serial = a.multiply(b);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertMatrixEquals(serial, a.multiply(b, pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void strassenMultiplyTest() throws Exception {
+    Random random = new Random(6);
+    //Odd and non-square sizes, with a small crossover to force recursion
+    Matrix a = randomMatrix(random, 23, 19);
+    Matrix b = randomMatrix(random, 19, 21);
+    Matrix expected = a.multiply(b);
+    assertMatrixEquals(expected, a.strassenMultiply(b, 4, null));
+    ForkJoinPool pool = new ForkJoinPool();
+    try {
+      assertMatrixEquals(expected, a.strassenMultiply(b, 3, pool));
+    } finally {
+      pool.shutdown();
+    }
+    assertMatrixEquals(m1.multiply(m1), m1.strassenMultiply(m1, 1, null));
+  }
+
+  @Test
+  public void flatStorageTest() throws Exception {
+    Random random = new Random(7);
+    Matrix a = randomMatrix(random, 6, 6);
+    Matrix b = randomMatrix(random, 6, 6);
+    Matrix flatA = a.toFlat();
+    Matrix flatB = Matrix.flat(b.arrayCopy());
+    assertTrue(flatA.isFlat() && !a.isFlat());
+    assertMatrixEquals(a, flatA);
+    assertMatrixEquals(a.add(b), flatA.add(flatB));
+    assertMatrixEquals(a.subtract(b), flatA.subtract(flatB));
+    assertMatrixEquals(a.multiply(b), flatA.multiply(flatB));
+    //The parallel and Strassen products keep flat operands flat
+    Matrix bigA = randomMatrix(random, 40, 40).toFlat();
+    Matrix bigB = randomMatrix(random, 40, 40).toFlat();
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      Matrix parallel = bigA.multiply(bigB, pool);
+      assertTrue(parallel.isFlat());
+      assertMatrixEquals(bigA.multiply(bigB), parallel);
+      assertTrue(bigA.strassenMultiply(bigB, 8, pool).isFlat());
+      assertTrue(flatA.strassenMultiply(flatB, 8, null).isFlat());
+    } finally {
+      pool.shutdown();
+    }
+    assertMatrixEquals(a.scalarMult(f3), flatA.scalarMult(f3));
+    assertMatrixEquals(a.transpose(), flatA.transpose());
+    assertMatrixEquals(a.getInverse(), flatA.getInverse());
+    assertEquals(a.GaussDeterminant(), flatA.GaussDeterminant());
+    assertEquals(m1.GaussDeterminant(), m1.toFlat().GaussDeterminant());
+    assertEquals(m2.solveSystem().toString(),
+        m2.toFlat().solveSystem().toString());
+    //Entries which don't fit in a long are kept exactly
+    Fraction big = new Fraction(Long.MAX_VALUE).multiply(f4);
+    Matrix wide = Matrix.flat(new Fraction[][]{{big, f1}, {f2, big}});
+    assertEquals(wide.get(0, 0), big);
+    assertEquals(wide.GaussDeterminant(), big.multiply(big).subtract(f2));
+    assertMatrixEquals(wide.multiply(wide),
+        new Matrix(wide.arrayCopy()).multiply(wide));
+  }
+
+  @Test
+  public void luDecomposeTest() throws Exception {
+    LUDecomposition lu = m1.luDecompose();
+    assertEquals(lu.determinant(), m1.determinant());
+    assertMatrixEquals(lu.inverse(), m1.getInverse());
+    //PA = LU
+    Fraction[][] pa = new Fraction[4][];
+    for (int i = 0; i < 4; i++) {
+      pa[i] = m1.arrayCopy()[lu.getPermutation()[i]];
+    }
+    assertMatrixEquals(new Matrix(pa), lu.getL().multiply(lu.getU()));
+    Fraction[] b = {f1, f2, f3, f4};
+    Fraction[] x = lu.solve(b);
+    Matrix product = m1.multiply(new Matrix(new Fraction[][]{{x[0]}, {x[1]},
+        {x[2]}, {x[3]}}));
+    for (int i = 0; i < 4; i++) {
+      assertEquals(product.get(i, 0), b[i]);
+    }
+    //Zero pivot and a singular matrix
+    Matrix swapped = new Matrix(new Fraction[][]{{zero(), f1}, {f2, f3}});
+    assertEquals(swapped.luDecompose().determinant(), new Fraction(-2));
+    LUDecomposition singular =
+        new Matrix(new Fraction[][]{{f1, f2}, {f2, f4}}).luDecompose();
+    assertTrue(singular.isSingular());
+    assertNull(singular.inverse());
+    assertEquals(singular.determinant(), zero());
+  }
+
+  @Test
+  public void cacheTest() throws Exception {
+    //Equal contents give equal matrices, whatever the storage
+    Matrix flat = m1.toFlat();
+    Matrix view = new Matrix(new Fraction[][]{{f3, f3, f3, f3, f3}}).row(0)
+        .subMatrix(0, 1, 0, 4);
+    assertEquals(m1, flat);
+    assertEquals(m1.hashCode(), flat.hashCode());
+    assertEquals(m1, new Matrix(m1.arrayCopy()));
+    assertEquals(new Matrix(new Fraction[][]{{f3, f3, f3, f3}}), view);
+    assertNotEquals(m1, m1.transpose());
+    assertNotEquals(m1, m2);
+
+    MatrixCache cache = new MatrixCache(100);
+    assertEquals(cache.determinant(m1), new Fraction(900));
+    assertEquals(cache.determinant(flat), new Fraction(900));
+    assertEquals(cache.misses(), 1);
+    assertEquals(cache.hits(), 1);
+    assertMatrixEquals(m1.getInverse(), cache.inverse(flat));
+    assertSame(cache.inverse(m1), cache.inverse(flat));
+    Matrix singular = new Matrix(new Fraction[][]{{f1, f2}, {f2, f4}});
+    assertNull(cache.inverse(singular));
+    assertNull(cache.inverse(singular));
+    assertEquals(cache.misses(), 3);
+    assertEquals(cache.hits(), 4);
+    //16 + 1, 16 + 16 and 4 + 1
+    assertEquals(cache.weight(), 54);
+
+    //Least recently used entries make room for new ones
+    Matrix big = Matrix.identity(7);
+    cache.determinant(big);
+    assertEquals(cache.evictions(), 1);
+    assertTrue(cache.weight() <= 100);
+    cache.determinant(singular);
+    cache.determinant(m1);
+    assertEquals(cache.misses(), 6);
+    //The inverse of m1 was the least recently used
+    assertEquals(cache.evictions(), 2);
+    assertEquals(cache.size(), 4);
+  }
+
+  @Test
+  public void exprMatrixTest() throws Exception {
+    //[[x, 1, 0], [1, x, 1], [0, 1, x]] has determinant x^3 - 2x
+    Expr x = VariableExpr.valueOf("x");
+    Expr one = ConstExpr.ONE;
+    Expr zero = ConstExpr.ZERO;
+    ExprMatrix tridiagonal = new ExprMatrix(new Expr[][]{{x, one, zero},
+        {one, x, one}, {zero, one, x}});
+    assertEquals(Polynomial.of(tridiagonal.determinant()),
+        Polynomial.of(new PowExpr(x, ConstExpr.valueOf(3))
+            .subtract(ConstExpr.valueOf(2).multiply(x))));
+    //Numeric matrices give numbers
+    assertEquals(ExprMatrix.of(m1).determinant().eval(),
+        ConstExpr.valueOf(900));
+    Expr[] p = ExprMatrix.of(new Matrix(new Fraction[][]{{f2, f1},
+        {f1, f2}})).characteristicPolynomial();
+    assertArrayEquals(p, new Expr[]{one, ConstExpr.valueOf(-4),
+        ConstExpr.valueOf(3)});
+
+    //Generic 6x6 matrix of variables, checked at a random point
+    int n = 6;
+    Random random = new Random(24);
+    Expr[][] entries = new Expr[n][n];
+    VariableExpr[] vars = new VariableExpr[n * n];
+    Fraction[][] values = new Fraction[n][n];
+    long[][] nums = new long[n * n][1];
+    long[][] denoms = new long[n * n][1];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        vars[i * n + j] = VariableExpr.valueOf("a" + i + j);
+        entries[i][j] = vars[i * n + j];
+        values[i][j] = new Fraction(random.nextInt(21) - 10);
+        nums[i * n + j][0] = values[i][j].getNum();
+        denoms[i * n + j][0] = 1;
+      }
+    }
+    Expr det = new ExprMatrix(entries).determinant();
+    long[] outNums = new long[1];
+    long[] outDenoms = new long[1];
+    CompiledExpr.compile(det, vars).evaluate(nums, denoms, 1, outNums,
+        outDenoms, new Fraction[1]);
+    assertEquals(new Fraction(outNums[0], outDenoms[0]),
+        new Matrix(values).determinant());
+  }
+
+  private static void assertMatrixEquals(Matrix expected, Matrix actual) {
+    assertEquals(expected.nRows(), actual.nRows());
+    assertEquals(expected.nCols(), actual.nCols());
+    for (int i = 0; i < expected.nRows(); i++) {
+      for (int j = 0; j < expected.nCols(); j++) {
+        assertEquals(expected.get(i, j), actual.get(i, j));
+      }
+    }
+  }
+
+  private static Matrix randomMatrix(Random random, int nRows, int nCols) {
+    Fraction[][] arr = new Fraction[nRows][nCols];
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < nCols; j++) {
+        arr[i][j] = new Fraction(random.nextInt(201) - 100,
+            random.nextInt(12) + 1);
+      }
+    }
+    return new Matrix(arr);
+  }
+
+}
@@ -0,0 +1,177 @@
+package matrix;
+
+import fraction.Fraction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class MatrixWriter {
+  //Streams matrices and solutions as text to any Appendable (a Writer, a
+  //StringBuilder, a PrintStream...) or, through the writeTo methods, to any
+  //OutputStream, in the bracket format of toString() or as CSV. Numbers are
+  //formatted into a reusable char buffer, so no Strings are created per
+  //entry. A writer isn't thread-safe
+
+  //Room for two longs and the '/' between them
+  private final char[] buffer = new char[48];
+  private final CharBuffer view = CharBuffer.wrap(buffer);
+  private final long[] raw = new long[2];
+
+  public void write(Matrix m, Appendable out) throws IOException {
+    //[[a, b]
+    //[c, d]]
+    MatrixStorage storage = m.storage();
+    out.append('[');
+    for (int r = 0; r < storage.nRows(); r++) {
+      out.append('[');
+      for (int c = 0; c < storage.nCols(); c++) {
+        appendEntry(storage, r, c, out);
+        if (c < storage.nCols() - 1) {
+          out.append(", ");
+        }
+      }
+      out.append(']');
+      if (r < storage.nRows() - 1) {
+        out.append('\n');
+      }
+    }
+    out.append(']');
+  }
+
+  public void writeCsv(Matrix m, Appendable out) throws IOException {
+    //One line per row, with its entries separated by commas. Fractions are
+    //written as a/b
+    MatrixStorage storage = m.storage();
+    for (int r = 0; r < storage.nRows(); r++) {
+      for (int c = 0; c < storage.nCols(); c++) {
+        if (c > 0) {
+          out.append(',');
+        }
+        appendEntry(storage, r, c, out);
+      }
+      out.append('\n');
+    }
+  }
+
+  public void write(LEQSSolution solution, Appendable out)
+      throws IOException {
+    //Particular: [x, y]
+    //General :[[u, v]]
+    if (!solution.isCompatible()) {
+      out.append("Incompatible System, no solution");
+      return;
+    }
+    Fraction[] particular = solution.getParticularSol();
+    out.append("Particular: ");
+    out.append('[');
+    for (int c = 0; c < particular.length; c++) {
+      appendFraction(particular[c], out);
+      if (c < particular.length - 1) {
+        out.append(", ");
+      }
+    }
+    out.append(']');
+    if (solution.getGeneralSol().length > 0) {
+      out.append("\nGeneral :");
+      write(new Matrix(solution.getGeneralSol()), out);
+    }
+  }
+
+  //The stream versions have their own names, as a PrintStream is both an
+  //OutputStream and an Appendable
+
+  public void writeTo(Matrix m, OutputStream out) throws IOException {
+    //Writes UTF-8 text. The stream is flushed but not closed
+    Writer writer = writer(out);
+    write(m, writer);
+    writer.flush();
+  }
+
+  public void writeCsvTo(Matrix m, OutputStream out) throws IOException {
+    Writer writer = writer(out);
+    writeCsv(m, writer);
+    writer.flush();
+  }
+
+  public void writeTo(LEQSSolution solution, OutputStream out)
+      throws IOException {
+    Writer writer = writer(out);
+    write(solution, writer);
+    writer.flush();
+  }
+
+  private static Writer writer(OutputStream out) {
+    return new BufferedWriter(
+        new OutputStreamWriter(out, StandardCharsets.UTF_8));
+  }
+
+  private void appendEntry(MatrixStorage storage, int r, int c,
+                           Appendable out) throws IOException {
+    //Flat and mapped entries are formatted straight from their primitives
+    if (storage.getRaw(r, c, raw)) {
+      appendRaw(raw[0], raw[1], out);
+    } else {
+      out.append(storage.get(r, c).toString());
+    }
+  }
+
+  void appendFraction(Fraction f, Appendable out) throws IOException {
+    //Same text as f.toString()
+    if (f.isLong()) {
+      appendRaw(f.getNum(), f.getDenom(), out);
+    } else {
+      out.append(f.toString());
+    }
+  }
+
+  void appendLong(long n, Appendable out) throws IOException {
+    emit(format(n, buffer.length), out);
+  }
+
+  private void appendRaw(long num, long denom, Appendable out)
+      throws IOException {
+    //If denominator is one, simply output numerator
+    int start = buffer.length;
+    if (denom != 1) {
+      start = format(denom, start);
+      buffer[--start] = '/';
+    }
+    emit(format(num, start), out);
+  }
+
+  private int format(long n, int end) {
+    //Writes the digits of n right-aligned to end, returning where they
+    //start. Digits are taken from the negative value, which also works for
+    //Long.MIN_VALUE
+    int pos = end;
+    boolean negative = n < 0;
+    if (!negative) {
+      n = -n;
+    }
+    do {
+      buffer[--pos] = (char) ('0' - n % 10);
+      n /= 10;
+    } while (n != 0);
+    if (negative) {
+      buffer[--pos] = '-';
+    }
+    return pos;
+  }
+
+  private void emit(int start, Appendable out) throws IOException {
+    //Appends buffer[start..], using the bulk char[] methods when available
+    //so that nothing is allocated
+    if (out instanceof Writer) {
+      ((Writer) out).write(buffer, start, buffer.length - start);
+    } else if (out instanceof StringBuilder) {
+      ((StringBuilder) out).append(buffer, start, buffer.length - start);
+    } else {
+      out.append(view, start, buffer.length);
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package matrix;
+
+import fraction.Fraction;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class ModularEngine {
+  //Determinant and rank through Gaussian elimination modulo many word-sized
+  //primes. Every prime is independent of the others, so they run in parallel
+  //on a ForkJoinPool, and the exact determinant is rebuilt from its images
+  //with the Chinese Remainder Theorem
+
+  //Primes are below 2^31, so the product of two residues fits in a long
+  private static final long FIRST_CANDIDATE = Integer.MAX_VALUE;
+  private static final int BITS_PER_PRIME = 30;
+  //Primes are handed out in descending order and shared between calls
+  private static final List<Long> primes = new ArrayList<>();
+
+  private final BigInteger[][] intMatrix;
+  private final BigInteger scale;
+  private final int nRows;
+  private final int nCols;
+
+  ModularEngine(Matrix m) {
+    //Multiply each row by the lcm of its denominators, so that all entries
+    //are integers. The determinant of the result is the original one times
+    //the product of the scales. The rank doesn't change
+    nRows = m.nRows();
+    nCols = m.nCols();
+    intMatrix = new BigInteger[nRows][nCols];
+    BigInteger totalScale = BigInteger.ONE;
+    BigInteger rowLcm;
+    BigInteger denom;
+    for (int i = 0; i < nRows; i++) {
+      rowLcm = BigInteger.ONE;
+      for (int j = 0; j < nCols; j++) {
+        denom = m.get(i, j).getBigDenom();
+        rowLcm = rowLcm.multiply(denom.divide(rowLcm.gcd(denom)));
+      }
+      for (int j = 0; j < nCols; j++) {
+        Fraction f = m.get(i, j);
+        intMatrix[i][j] = f.getBigNum()
+            .multiply(rowLcm.divide(f.getBigDenom()));
+      }
+      totalScale = totalScale.multiply(rowLcm);
+    }
+    scale = totalScale;
+  }
+
+  Fraction determinant(ForkJoinPool pool) {
+    //Pre: the matrix is square
+    long[] usedPrimes = primesFor(hadamardBits() + 1);
+    long[] dets = new long[usedPrimes.length];
+    int[] ranks = new int[usedPrimes.length];
+    pool.invoke(new PrimeTask(usedPrimes, dets, ranks, 0, usedPrimes.length));
+    //Rebuild the determinant with Garner's form of the CRT. The product of
+    //the primes exceeds twice the Hadamard bound, so the symmetric residue
+    //is the exact value
+    BigInteger det = BigInteger.valueOf(dets[0]);
+    BigInteger modulus = BigInteger.valueOf(usedPrimes[0]);
+    long p;
+    long residue;
+    long correction;
+    for (int i = 1; i < usedPrimes.length; i++) {
+      p = usedPrimes[i];
+      residue = det.mod(BigInteger.valueOf(p)).longValue();
+      correction = Math.floorMod(dets[i] - residue, p)
+          * modInverse(modulus.mod(BigInteger.valueOf(p)).longValue(), p) % p;
+      det = det.add(modulus.multiply(BigInteger.valueOf(correction)));
+      modulus = modulus.multiply(BigInteger.valueOf(p));
+    }
+    if (det.shiftLeft(1).compareTo(modulus) > 0) {
+      det = det.subtract(modulus);
+    }
+    return Fraction.valueOf(det, scale);
+  }
+
+  int rank(ForkJoinPool pool) {
+    //The rank modulo a prime is never bigger than the rank over the
+    //rationals, and it is smaller only if the prime divides every maximal
+    //non-zero minor. Those are bounded by the Hadamard bound, so once the
+    //product of the primes exceeds it one of them must give the exact rank
+    long[] usedPrimes = primesFor(hadamardBits());
+    long[] dets = new long[usedPrimes.length];
+    int[] ranks = new int[usedPrimes.length];
+    pool.invoke(new PrimeTask(usedPrimes, dets, ranks, 0, usedPrimes.length));
+    int rank = 0;
+    for (int r : ranks) {
+      rank = Math.max(rank, r);
+    }
+    return rank;
+  }
+
+  private int hadamardBits() {
+    //Bits of the Hadamard bound: the product of the euclidean norms of the
+    //non-zero rows. Each norm is rounded up to a power of two
+    int bits = 0;
+    BigInteger normSquared;
+    for (BigInteger[] row : intMatrix) {
+      normSquared = BigInteger.ZERO;
+      for (BigInteger entry : row) {
+        normSquared = normSquared.add(entry.multiply(entry));
+      }
+      bits += (normSquared.bitLength() + 1) / 2;
+    }
+    return bits;
+  }
+
+  private class PrimeTask extends RecursiveAction {
+    //Runs the elimination for primes [from, to), splitting the range in
+    //halves until a single prime is left
+    private final long[] usedPrimes;
+    private final long[] dets;
+    private final int[] ranks;
+    private final int from;
+    private final int to;
+
+    PrimeTask(long[] usedPrimes, long[] dets, int[] ranks, int from, int to) {
+      this.usedPrimes = usedPrimes;
+      this.dets = dets;
+      this.ranks = ranks;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        eliminate(usedPrimes[from], dets, ranks, from);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new PrimeTask(usedPrimes, dets, ranks, from, mid),
+          new PrimeTask(usedPrimes, dets, ranks, mid, to));
+    }
+  }
+
+  private void eliminate(long p, long[] dets, int[] ranks, int idx) {
+    //Gaussian elimination modulo p. Stores the determinant modulo p (only
+    //meaningful for square matrices) and the rank modulo p
+    long[][] m = new long[nRows][nCols];
+    BigInteger bigP = BigInteger.valueOf(p);
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < nCols; j++) {
+        if (intMatrix[i][j].bitLength() < Long.SIZE) {
+          m[i][j] = Math.floorMod(intMatrix[i][j].longValue(), p);
+        } else {
+          m[i][j] = intMatrix[i][j].mod(bigP).longValue();
+        }
+      }
+    }
+    long det = 1;
+    int rank = 0;
+    long[] temp;
+    long inverse;
+    long factor;
+    for (int c = 0; c < nCols && rank < nRows; c++) {
+      //Look for a row which doesn't have a zero in this column
+      int pivot = rank;
+      while (pivot < nRows && m[pivot][c] == 0) {
+        pivot++;
+      }
+      if (pivot == nRows) {
+        det = 0;
+        continue;
+      }
+      if (pivot != rank) {
+        temp = m[pivot];
+        m[pivot] = m[rank];
+        m[rank] = temp;
+        det = p - det;
+      }
+      det = det * m[rank][c] % p;
+      inverse = modInverse(m[rank][c], p);
+      //Make everything under the pivot 0
+      for (int r = rank + 1; r < nRows; r++) {
+        if (m[r][c] != 0) {
+          factor = m[r][c] * inverse % p;
+          for (int j = c; j < nCols; j++) {
+            m[r][j] = Math.floorMod(m[r][j] - factor * m[rank][j] % p, p);
+          }
+        }
+      }
+      rank++;
+    }
+    dets[idx] = rank < nRows ? 0 : det % p;
+    ranks[idx] = rank;
+  }
+
+  private static long[] primesFor(int bits) {
+    //Returns as many primes as needed for their product to exceed 2^bits
+    int n = Math.max(1, bits / BITS_PER_PRIME + 1);
+    long[] res = new long[n];
+    synchronized (primes) {
+      long candidate = primes.isEmpty() ? FIRST_CANDIDATE
+          : primes.get(primes.size() - 1) - 2;
+      while (primes.size() < n) {
+        if (isPrime(candidate)) {
+          primes.add(candidate);
+        }
+        candidate -= 2;
+      }
+      for (int i = 0; i < n; i++) {
+        res[i] = primes.get(i);
+      }
+    }
+    return res;
+  }
+
+  private static boolean isPrime(long n) {
+    //Deterministic Miller-Rabin, bases 2, 7 and 61 are enough for n < 2^32
+    long d = n - 1;
+    int s = Long.numberOfTrailingZeros(d);
+    d >>= s;
+    for (long base : new long[]{2, 7, 61}) {
+      if (base % n == 0) {
+        continue;
+      }
+      long x = modPow(base, d, n);
+      if (x == 1 || x == n - 1) {
+        continue;
+      }
+      boolean composite = true;
+      for (int i = 1; i < s && composite; i++) {
+        x = x * x % n;
+        composite = x != n - 1;
+      }
+      if (composite) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long modPow(long base, long exp, long p) {
+    long res = 1;
+    base %= p;
+    while (exp > 0) {
+      if ((exp & 1) == 1) {
+        res = res * base % p;
+      }
+      base = base * base % p;
+      exp >>= 1;
+    }
+    return res;
+  }
+
+  private static long modInverse(long a, long p) {
+    //Pre: p is prime and a isn't a multiple of p
+    return modPow(a, p - 2, p);
+  }
+}
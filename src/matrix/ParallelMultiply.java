@@ -0,0 +1,102 @@
+package matrix;
+
+import fraction.Fraction;
+import fraction.FractionAccumulator;
+
+import java.util.concurrent.RecursiveAction;
+
+class ParallelMultiply extends RecursiveAction {
+  //Computes a tile of the product left * right, splitting it in halves along
+  //its longest side until it is small enough to be done sequentially.
+  //The right operand is given transposed, so that both factors of every dot
+  //product are read along rows. Operands are either Fraction arrays or,
+  //if both are flat, flat storages, whose tiles run on the raw kernels
+
+  //Below this many multiplications (rows * cols * inner) the serial kernel
+  //is used, as splitting would cost more than it saves
+  static final long SERIAL_THRESHOLD = 32 * 32 * 32;
+  //Maximum number of entries of a tile computed by a single task
+  private static final int TILE_SIZE = 16 * 16;
+
+  private final Fraction[][] left;
+  private final Fraction[][] rightT;
+  private final Fraction[][] res;
+  private final FlatStorage flatLeft;
+  private final FlatStorage flatRightT;
+  private final FlatStorage flatRes;
+  private final int rowFrom;
+  private final int rowTo;
+  private final int colFrom;
+  private final int colTo;
+
+  ParallelMultiply(Fraction[][] left, Fraction[][] rightT, Fraction[][] res,
+                   int rowFrom, int rowTo, int colFrom, int colTo) {
+    this(left, rightT, res, null, null, null, rowFrom, rowTo, colFrom, colTo);
+  }
+
+  ParallelMultiply(FlatStorage left, FlatStorage rightT, FlatStorage res,
+                   int rowFrom, int rowTo, int colFrom, int colTo) {
+    this(null, null, null, left, rightT, res, rowFrom, rowTo, colFrom, colTo);
+  }
+
+  private ParallelMultiply(Fraction[][] left, Fraction[][] rightT,
+                           Fraction[][] res, FlatStorage flatLeft,
+                           FlatStorage flatRightT, FlatStorage flatRes,
+                           int rowFrom, int rowTo, int colFrom, int colTo) {
+    this.left = left;
+    this.rightT = rightT;
+    this.res = res;
+    this.flatLeft = flatLeft;
+    this.flatRightT = flatRightT;
+    this.flatRes = flatRes;
+    this.rowFrom = rowFrom;
+    this.rowTo = rowTo;
+    this.colFrom = colFrom;
+    this.colTo = colTo;
+  }
+
+  @Override
+  protected void compute() {
+    int nRows = rowTo - rowFrom;
+    int nCols = colTo - colFrom;
+    if (nRows * nCols <= TILE_SIZE || (nRows == 1 && nCols == 1)) {
+      multiplyTile();
+    } else if (nRows >= nCols) {
+      int mid = (rowFrom + rowTo) >>> 1;
+      invokeAll(tile(rowFrom, mid, colFrom, colTo),
+          tile(mid, rowTo, colFrom, colTo));
+    } else {
+      int mid = (colFrom + colTo) >>> 1;
+      invokeAll(tile(rowFrom, rowTo, colFrom, mid),
+          tile(rowFrom, rowTo, mid, colTo));
+    }
+  }
+
+  private ParallelMultiply tile(int rowFrom, int rowTo, int colFrom,
+                                int colTo) {
+    return new ParallelMultiply(left, rightT, res, flatLeft, flatRightT,
+        flatRes, rowFrom, rowTo, colFrom, colTo);
+  }
+
+  private void multiplyTile() {
+    if (flatLeft != null) {
+      flatLeft.multiplyTile(flatRightT, flatRes, rowFrom, rowTo, colFrom,
+          colTo);
+      return;
+    }
+    FractionAccumulator sum = new FractionAccumulator();
+    Fraction[] row;
+    Fraction[] col;
+    for (int i = rowFrom; i < rowTo; i++) {
+      row = left[i];
+      for (int j = colFrom; j < colTo; j++) {
+        col = rightT[j];
+        sum.reset();
+        for (int k = 0; k < row.length; k++) {
+          sum.addProduct(row[k], col[k]);
+        }
+        res[i][j] = sum.toFraction();
+      }
+    }
+  }
+}
@@ -0,0 +1,568 @@
+package matrix;
+
+import fraction.Fraction;
+import fraction.FractionAccumulator;
+
+import javax.naming.OperationNotSupportedException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class SparseMatrix {
+  //Matrix which only stores its non-zero entries, in compressed sparse row
+  //(CSR) form. The compressed column (CSC) form is built the first time it
+  //is needed. Time and memory of every operation depend on the number of
+  //non-zeros rather than on nRows * nCols
+  private static final Fraction zero = Fraction.valueOf(0);
+  private static final Fraction negOne = Fraction.valueOf(-1);
+  //How many of the sparsest columns are searched for a Markowitz pivot
+  private static final int PIVOT_SEARCH_COLS = 4;
+
+  private final int nRows;
+  private final int nCols;
+  //Entries of row r are at positions rowPtr[r] to rowPtr[r + 1] - 1, sorted
+  //by column
+  private final int[] rowPtr;
+  private final int[] colIdx;
+  private final Fraction[] values;
+  //CSC form, as the CSR form of the transpose
+  private volatile SparseMatrix transposed;
+
+  private SparseMatrix(int nRows, int nCols, int[] rowPtr, int[] colIdx,
+                       Fraction[] values) {
+    this.nRows = nRows;
+    this.nCols = nCols;
+    this.rowPtr = rowPtr;
+    this.colIdx = colIdx;
+    this.values = values;
+  }
+
+  public static SparseMatrix fromTriplets(int nRows, int nCols, int[] rows,
+                                          int[] cols, Fraction[] values) {
+    //Builds the matrix whose entry (rows[i], cols[i]) is values[i].
+    //Repeated positions are added up and zeros are dropped
+    if (nRows < 1 || nCols < 1) {
+      throw new NegativeArraySizeException();
+    }
+    if (rows.length != cols.length || rows.length != values.length) {
+      throw new InvalidParameterException("Triplet arrays must have the " +
+          "same length");
+    }
+    for (int i = 0; i < rows.length; i++) {
+      if (rows[i] < 0 || rows[i] >= nRows || cols[i] < 0
+          || cols[i] >= nCols) {
+        throw new ArrayIndexOutOfBoundsException();
+      }
+    }
+    //Stable counting sorts, first by column and then by row, leave the
+    //entries sorted by (row, column)
+    int[] byCol = countingSort(identityOrder(rows.length), cols, nCols);
+    int[] order = countingSort(byCol, rows, nRows);
+
+    int[] rowPtr = new int[nRows + 1];
+    int[] colIdx = new int[rows.length];
+    Fraction[] vals = new Fraction[rows.length];
+    int n = 0;
+    int idx;
+    for (int i = 0; i < order.length; i++) {
+      idx = order[i];
+      if (i > 0 && rows[order[i - 1]] == rows[idx]
+          && cols[order[i - 1]] == cols[idx]) {
+        vals[n - 1] = vals[n - 1].add(values[idx]);
+      } else {
+        colIdx[n] = cols[idx];
+        vals[n] = values[idx];
+        rowPtr[rows[idx] + 1]++;
+        n++;
+      }
+    }
+    //Turn the counts into offsets
+    for (int r = 0; r < nRows; r++) {
+      rowPtr[r + 1] += rowPtr[r];
+    }
+    return new SparseMatrix(nRows, nCols, rowPtr, colIdx, vals)
+        .withoutZeros();
+  }
+
+  public static SparseMatrix fromMatrix(Matrix m) {
+    int[] rowPtr = new int[m.nRows() + 1];
+    List<Integer> cols = new ArrayList<>();
+    List<Fraction> vals = new ArrayList<>();
+    for (int i = 0; i < m.nRows(); i++) {
+      for (int j = 0; j < m.nCols(); j++) {
+        if (!m.get(i, j).isZero()) {
+          cols.add(j);
+          vals.add(m.get(i, j));
+        }
+      }
+      rowPtr[i + 1] = cols.size();
+    }
+    int[] colIdx = new int[cols.size()];
+    for (int i = 0; i < colIdx.length; i++) {
+      colIdx[i] = cols.get(i);
+    }
+    return new SparseMatrix(m.nRows(), m.nCols(), rowPtr, colIdx,
+        vals.toArray(new Fraction[0]));
+  }
+
+  private static int[] identityOrder(int n) {
+    int[] res = new int[n];
+    for (int i = 0; i < n; i++) {
+      res[i] = i;
+    }
+    return res;
+  }
+
+  private static int[] countingSort(int[] order, int[] keys, int nKeys) {
+    //Returns order stably sorted by keys[order[i]]
+    int[] start = new int[nKeys + 1];
+    for (int idx : order) {
+      start[keys[idx] + 1]++;
+    }
+    for (int k = 0; k < nKeys; k++) {
+      start[k + 1] += start[k];
+    }
+    int[] res = new int[order.length];
+    for (int idx : order) {
+      res[start[keys[idx]]++] = idx;
+    }
+    return res;
+  }
+
+  private SparseMatrix withoutZeros() {
+    //Drops the explicit zeros, reusing the arrays
+    int[] newRowPtr = new int[nRows + 1];
+    int n = 0;
+    for (int r = 0; r < nRows; r++) {
+      for (int i = rowPtr[r]; i < rowPtr[r + 1]; i++) {
+        if (!values[i].isZero()) {
+          colIdx[n] = colIdx[i];
+          values[n] = values[i];
+          n++;
+        }
+      }
+      newRowPtr[r + 1] = n;
+    }
+    return new SparseMatrix(nRows, nCols, newRowPtr,
+        Arrays.copyOf(colIdx, n), Arrays.copyOf(values, n));
+  }
+
+  public int nRows() {
+    return nRows;
+  }
+
+  public int nCols() {
+    return nCols;
+  }
+
+  public int nonZeros() {
+    return values.length;
+  }
+
+  public Fraction get(int r, int c) {
+    if (r < 0 || r >= nRows || c < 0 || c >= nCols) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+    int idx = Arrays.binarySearch(colIdx, rowPtr[r], rowPtr[r + 1], c);
+    return idx >= 0 ? values[idx] : zero;
+  }
+
+  int rowStart(int r) {
+    //Position of the first stored entry of row r. rowStart(nRows()) is
+    //nonZeros()
+    return rowPtr[r];
+  }
+
+  int entryCol(int i) {
+    return colIdx[i];
+  }
+
+  Fraction entryValue(int i) {
+    return values[i];
+  }
+
+  public int rowNonZeros(int r) {
+    return rowPtr[r + 1] - rowPtr[r];
+  }
+
+  public int colNonZeros(int c) {
+    return transpose().rowNonZeros(c);
+  }
+
+  public Matrix toMatrix() {
+    Fraction[][] res = new Fraction[nRows][nCols];
+    for (int r = 0; r < nRows; r++) {
+      Arrays.fill(res[r], zero);
+      for (int i = rowPtr[r]; i < rowPtr[r + 1]; i++) {
+        res[r][colIdx[i]] = values[i];
+      }
+    }
+    return new Matrix(res);
+  }
+
+  public SparseMatrix transpose() {
+    //The CSR form of the transpose is the CSC form of this matrix, so it is
+    //only built once
+    SparseMatrix res = transposed;
+    if (res == null) {
+      int[] rows = new int[values.length];
+      for (int r = 0; r < nRows; r++) {
+        Arrays.fill(rows, rowPtr[r], rowPtr[r + 1], r);
+      }
+      res = fromTriplets(nCols, nRows, colIdx, rows, values);
+      res.transposed = this;
+      transposed = res;
+    }
+    return res;
+  }
+
+  //Arithmetic Operations
+
+  public SparseMatrix multiply(SparseMatrix other)
+      throws OperationNotSupportedException {
+    //Row by row (Gustavson's algorithm): row i of the result is the
+    //combination of the rows of other selected by the non-zeros of row i.
+    //Only the products of non-zero entries are computed
+    if (other == null) {
+      return null;
+    }
+    if (other.nRows != nCols) {
+      throw new OperationNotSupportedException("Adjacent matrix" +
+          " dimensions don't match");
+    }
+    FractionAccumulator[] sums = new FractionAccumulator[other.nCols];
+    //Row in which each column was last touched, and the columns touched in
+    //the current row
+    int[] touchedIn = new int[other.nCols];
+    Arrays.fill(touchedIn, -1);
+    int[] touched = new int[other.nCols];
+    int nTouched;
+    int[] resRowPtr = new int[nRows + 1];
+    List<Integer> resCols = new ArrayList<>();
+    List<Fraction> resVals = new ArrayList<>();
+    int k;
+    int j;
+    Fraction f;
+    for (int i = 0; i < nRows; i++) {
+      nTouched = 0;
+      for (int a = rowPtr[i]; a < rowPtr[i + 1]; a++) {
+        k = colIdx[a];
+        for (int b = other.rowPtr[k]; b < other.rowPtr[k + 1]; b++) {
+          j = other.colIdx[b];
+          if (touchedIn[j] != i) {
+            touchedIn[j] = i;
+            touched[nTouched++] = j;
+            if (sums[j] == null) {
+              sums[j] = new FractionAccumulator();
+            }
+            sums[j].reset();
+          }
+          sums[j].addProduct(values[a], other.values[b]);
+        }
+      }
+      Arrays.sort(touched, 0, nTouched);
+      for (int t = 0; t < nTouched; t++) {
+        f = sums[touched[t]].toFraction();
+        if (!f.isZero()) {
+          resCols.add(touched[t]);
+          resVals.add(f);
+        }
+      }
+      resRowPtr[i + 1] = resCols.size();
+    }
+    int[] resColIdx = new int[resCols.size()];
+    for (int i = 0; i < resColIdx.length; i++) {
+      resColIdx[i] = resCols.get(i);
+    }
+    return new SparseMatrix(nRows, other.nCols, resRowPtr, resColIdx,
+        resVals.toArray(new Fraction[0]));
+  }
+
+  public Fraction[] multiply(Fraction[] vector)
+      throws OperationNotSupportedException {
+    //Returns the product of this matrix by a column vector
+    if (vector.length != nCols) {
+      throw new OperationNotSupportedException("Adjacent matrix" +
+          " dimensions don't match");
+    }
+    Fraction[] res = new Fraction[nRows];
+    FractionAccumulator sum = new FractionAccumulator();
+    for (int r = 0; r < nRows; r++) {
+      sum.reset();
+      for (int i = rowPtr[r]; i < rowPtr[r + 1]; i++) {
+        sum.addProduct(values[i], vector[colIdx[i]]);
+      }
+      res[r] = sum.toFraction();
+    }
+    return res;
+  }
+
+  //Linear systems
+
+  public LEQSSolution solveSystem() {
+    //Solves the LEQS whose augmented matrix is this one (the last column is
+    //the right hand side), in the same form as Matrix.solveSystem: returns
+    //null if it is incompatible.
+    //Sparse Gaussian elimination: each pivot is chosen with the Markowitz
+    //criterion, minimising (row count - 1) * (column count - 1) over the
+    //sparsest columns, which limits the fill-in. Columns are kept bucketed
+    //by count, so finding the sparsest ones doesn't scan every column. Only
+    //active rows are updated, and the solution is found by back substitution
+    int nVars = nCols - 1;
+    List<Map<Integer, Fraction>> rows = new ArrayList<>(nRows);
+    ActiveColumns colRows = new ActiveColumns(nVars, nRows);
+    for (int r = 0; r < nRows; r++) {
+      Map<Integer, Fraction> row = new HashMap<>();
+      for (int i = rowPtr[r]; i < rowPtr[r + 1]; i++) {
+        row.put(colIdx[i], values[i]);
+        if (colIdx[i] < nVars) {
+          colRows.add(colIdx[i], r);
+        }
+      }
+      rows.add(row);
+    }
+    boolean[] pivotCol = new boolean[nVars];
+    boolean[] pivotRow = new boolean[nRows];
+    int[] pivotRows = new int[Math.min(nRows, nVars)];
+    int[] pivotCols = new int[pivotRows.length];
+    int nPivots = 0;
+    FractionAccumulator acc = new FractionAccumulator();
+
+    while (nPivots < pivotRows.length) {
+      long pivot = findPivot(rows, colRows);
+      if (pivot < 0) {
+        break;
+      }
+      int p = (int) (pivot >>> 32);
+      int c = (int) pivot;
+      Map<Integer, Fraction> row = rows.get(p);
+      Fraction pivotInv = row.get(c).reciprocal();
+      pivotRow[p] = true;
+      pivotCol[c] = true;
+      pivotRows[nPivots] = p;
+      pivotCols[nPivots] = c;
+      nPivots++;
+      //The pivot row leaves the active submatrix
+      for (int j : row.keySet()) {
+        if (j < nVars) {
+          colRows.remove(j, p);
+        }
+      }
+      //Make everything under the pivot 0
+      for (int r : colRows.rows(c)) {
+        Map<Integer, Fraction> target = rows.get(r);
+        Fraction scalar = target.get(c).negate().multiply(pivotInv);
+        for (Map.Entry<Integer, Fraction> e : row.entrySet()) {
+          int j = e.getKey();
+          if (j == c) {
+            continue;
+          }
+          Fraction old = target.get(j);
+          Fraction updated = acc.reset().add(old == null ? zero : old)
+              .addProduct(e.getValue(), scalar).toFraction();
+          if (updated.isZero()) {
+            target.remove(j);
+            if (j < nVars) {
+              colRows.remove(j, r);
+            }
+          } else {
+            target.put(j, updated);
+            if (old == null && j < nVars) {
+              colRows.add(j, r);
+            }
+          }
+        }
+        target.remove(c);
+      }
+      colRows.retire(c);
+    }
+
+    //Every active row is now zero on the variables, so the system is
+    //incompatible if one of them isn't zero on the right hand side
+    for (int r = 0; r < nRows; r++) {
+      if (!pivotRow[r] && rows.get(r).containsKey(nVars)) {
+        return null;
+      }
+    }
+
+    List<Integer> free = new ArrayList<>();
+    for (int c = 0; c < nVars; c++) {
+      if (!pivotCol[c]) {
+        free.add(c);
+      }
+    }
+    Fraction[] particular = backSubstitute(rows, pivotRows, pivotCols,
+        nPivots, -1, true);
+    Fraction[][] general = new Fraction[free.size()][];
+    for (int i = 0; i < free.size(); i++) {
+      //Apply -1 trick to get the non trivial solutions of Ax = 0
+      general[i] = backSubstitute(rows, pivotRows, pivotCols, nPivots,
+          free.get(i), false);
+    }
+    return new LEQSSolution(particular, general);
+  }
+
+  private long findPivot(List<Map<Integer, Fraction>> rows,
+                         ActiveColumns colRows) {
+    //Returns the Markowitz pivot among the entries of the sparsest active
+    //columns, as row << 32 | col, or -1 if the active submatrix is zero
+    int nVars = nCols - 1;
+    int[] candidates = new int[PIVOT_SEARCH_COLS];
+    int nCandidates = colRows.sparsest(candidates);
+    long best = -1;
+    long bestCost = Long.MAX_VALUE;
+    long cost;
+    for (int i = 0; i < nCandidates; i++) {
+      int c = candidates[i];
+      long colCost = colRows.rows(c).size() - 1;
+      for (int r : colRows.rows(c)) {
+        //The right hand side entry doesn't create fill-in in the variables
+        int rowCount = rows.get(r).size()
+            - (rows.get(r).containsKey(nVars) ? 1 : 0);
+        cost = (rowCount - 1) * colCost;
+        if (cost < bestCost
+            || (cost == bestCost && ((long) r << 32 | c) < best)) {
+          bestCost = cost;
+          best = (long) r << 32 | c;
+        }
+      }
+    }
+    return best;
+  }
+
+  private static class ActiveColumns {
+    //Rows of the active submatrix with an entry in each column. Columns
+    //with entries which haven't been pivots are also kept in buckets by
+    //their number of entries, as doubly linked lists threaded through next
+    //and prev, so updating a count is O(1) and the sparsest columns are
+    //found by walking the buckets up from 1
+    private final List<Set<Integer>> colRows;
+    private final int[] head;
+    private final int[] next;
+    private final int[] prev;
+    //Bucket each column is linked in, -1 if none
+    private final int[] bucket;
+    private final boolean[] retired;
+    private int nLinked;
+
+    ActiveColumns(int nCols, int nRows) {
+      colRows = new ArrayList<>(nCols);
+      for (int c = 0; c < nCols; c++) {
+        colRows.add(new HashSet<>());
+      }
+      head = new int[nRows + 1];
+      next = new int[nCols];
+      prev = new int[nCols];
+      bucket = new int[nCols];
+      retired = new boolean[nCols];
+      Arrays.fill(head, -1);
+      Arrays.fill(bucket, -1);
+    }
+
+    Set<Integer> rows(int c) {
+      return colRows.get(c);
+    }
+
+    void add(int c, int r) {
+      unlink(c);
+      colRows.get(c).add(r);
+      link(c);
+    }
+
+    void remove(int c, int r) {
+      unlink(c);
+      colRows.get(c).remove(r);
+      link(c);
+    }
+
+    void retire(int c) {
+      //c has been a pivot, so it leaves the active submatrix
+      unlink(c);
+      colRows.get(c).clear();
+      retired[c] = true;
+    }
+
+    int sparsest(int[] res) {
+      //Fills res with the active columns with fewest entries, sparsest
+      //first, and returns how many there are. The empty buckets skipped are
+      //fewer than the entries of the last column returned, so this costs no
+      //more than searching those columns for the pivot
+      int n = 0;
+      int max = Math.min(res.length, nLinked);
+      for (int k = 1; n < max; k++) {
+        for (int c = head[k]; c >= 0 && n < max; c = next[c]) {
+          res[n++] = c;
+        }
+      }
+      return n;
+    }
+
+    private void link(int c) {
+      int k = colRows.get(c).size();
+      if (retired[c] || k == 0) {
+        return;
+      }
+      prev[c] = -1;
+      next[c] = head[k];
+      if (head[k] >= 0) {
+        prev[head[k]] = c;
+      }
+      head[k] = c;
+      bucket[c] = k;
+      nLinked++;
+    }
+
+    private void unlink(int c) {
+      int k = bucket[c];
+      if (k < 0) {
+        return;
+      }
+      if (prev[c] >= 0) {
+        next[prev[c]] = next[c];
+      } else {
+        head[k] = next[c];
+      }
+      if (next[c] >= 0) {
+        prev[next[c]] = prev[c];
+      }
+      bucket[c] = -1;
+      nLinked--;
+    }
+  }
+
+  private Fraction[] backSubstitute(List<Map<Integer, Fraction>> rows,
+                                    int[] pivotRows, int[] pivotCols,
+                                    int nPivots, int freeVar,
+                                    boolean withRhs) {
+    //Solves the eliminated system, from the last pivot to the first, with
+    //every free variable 0 except freeVar, which is -1. The right hand side
+    //is only used if withRhs is true
+    int nVars = nCols - 1;
+    Fraction[] x = new Fraction[nVars];
+    Arrays.fill(x, zero);
+    if (freeVar >= 0) {
+      x[freeVar] = negOne;
+    }
+    FractionAccumulator sum = new FractionAccumulator();
+    for (int k = nPivots - 1; k >= 0; k--) {
+      Map<Integer, Fraction> row = rows.get(pivotRows[k]);
+      int c = pivotCols[k];
+      //x[c] = (rhs - sum of the other terms of the row) / pivot
+      sum.reset();
+      for (Map.Entry<Integer, Fraction> e : row.entrySet()) {
+        int j = e.getKey();
+        if (j != nVars && j != c) {
+          sum.addProduct(e.getValue(), x[j]);
+        }
+      }
+      Fraction rhs = withRhs && row.containsKey(nVars) ? row.get(nVars) : zero;
+      x[c] = rhs.subtract(sum.toFraction()).divide(row.get(c));
+    }
+    return x;
+  }
+}
@@ -0,0 +1,126 @@
+package matrix;
+
+import fraction.Fraction;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SparseMatrixTest {
+  private final Fraction f0 = new Fraction(0);
+  private final Fraction f1 = new Fraction(1);
+  private final Fraction f2 = new Fraction(2);
+  private final Fraction f3 = new Fraction(3);
+
+  @Test
+  public void tripletsTest() throws Exception {
+    SparseMatrix m = SparseMatrix.fromTriplets(3, 4,
+        new int[]{2, 0, 2, 1, 0}, new int[]{1, 3, 1, 0, 3},
+        new Fraction[]{f1, f2, f2, f3, f2.negate()});
+    //(0, 3) cancels out, (2, 1) is added up
+    assertEquals(m.nonZeros(), 2);
+    assertEquals(m.get(0, 3), f0);
+    assertEquals(m.get(2, 1), f3);
+    assertEquals(m.get(1, 0), f3);
+    assertEquals(m.transpose().get(1, 2), f3);
+    assertEquals(m.colNonZeros(1), 1);
+    assertEquals(m.toMatrix().toString(),
+        "[[0, 0, 0, 0]\n[3, 0, 0, 0]\n[0, 3, 0, 0]]");
+  }
+
+  @Test
+  public void multiplyTest() throws Exception {
+    Random random = new Random(8);
+    Matrix a = randomSparse(random, 12, 9);
+    Matrix b = randomSparse(random, 9, 14);
+    SparseMatrix product = SparseMatrix.fromMatrix(a)
+        .multiply(SparseMatrix.fromMatrix(b));
+    assertEquals(product.toMatrix().toString(), a.multiply(b).toString());
+  }
+
+  @Test
+  public void solveSystemTest() throws Exception {
+    Random random = new Random(9);
+    for (int test = 0; test < 50; test++) {
+      Matrix a = randomSparse(random, 2 + random.nextInt(6),
+          2 + random.nextInt(6));
+      SparseMatrix sparse = SparseMatrix.fromMatrix(a);
+      LEQSSolution sol = sparse.solveSystem();
+      int rank = new Matrix(coefficients(a)).rank();
+      if (rank < a.rank()) {
+        //Incompatible, the right hand side adds to the rank
+        assertNull(sol);
+        continue;
+      }
+      assertEquals(sol.getGeneralSol().length, a.nCols() - 1 - rank);
+      Fraction[] rhs = new Fraction[a.nRows()];
+      for (int i = 0; i < a.nRows(); i++) {
+        rhs[i] = a.get(i, a.nCols() - 1);
+      }
+      SparseMatrix coef = SparseMatrix.fromMatrix(new Matrix(coefficients(a)));
+      assertArrayEquals(coef.multiply(sol.getParticularSol()), rhs);
+      for (Fraction[] general : sol.getGeneralSol()) {
+        for (Fraction f : coef.multiply(general)) {
+          assertEquals(f, f0);
+        }
+      }
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void largeSystemTest() throws Exception {
+    //x_i - x_(i+1) = 1 and x_(n-1) = 0, with 20000 unknowns: picking each
+    //pivot must not scan every column, or this takes O(n^2)
+    int n = 20000;
+    int[] rows = new int[3 * n];
+    int[] cols = new int[3 * n];
+    Fraction[] values = new Fraction[3 * n];
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      rows[k] = i;
+      cols[k] = i;
+      values[k++] = new Fraction(1);
+      if (i < n - 1) {
+        rows[k] = i;
+        cols[k] = i + 1;
+        values[k++] = new Fraction(-1);
+        rows[k] = i;
+        cols[k] = n;
+        values[k++] = new Fraction(1);
+      }
+    }
+    SparseMatrix a = SparseMatrix.fromTriplets(n, n + 1,
+        Arrays.copyOf(rows, k), Arrays.copyOf(cols, k),
+        Arrays.copyOf(values, k));
+    LEQSSolution sol = a.solveSystem();
+    assertEquals(sol.getGeneralSol().length, 0);
+    Fraction[] x = sol.getParticularSol();
+    for (int i = 0; i < n; i++) {
+      assertEquals(x[i], new Fraction(n - 1 - i));
+    }
+  }
+
+  private static Fraction[][] coefficients(Matrix augmented) {
+    Fraction[][] res = new Fraction[augmented.nRows()][augmented.nCols() - 1];
+    for (int i = 0; i < res.length; i++) {
+      for (int j = 0; j < res[i].length; j++) {
+        res[i][j] = augmented.get(i, j);
+      }
+    }
+    return res;
+  }
+
+  private Matrix randomSparse(Random random, int nRows, int nCols) {
+    Fraction[][] arr = new Fraction[nRows][nCols];
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < nCols; j++) {
+        arr[i][j] = random.nextInt(3) == 0
+            ? new Fraction(random.nextInt(19) - 9, random.nextInt(4) + 1)
+            : f0;
+      }
+    }
+    return new Matrix(arr);
+  }
+}
@@ -0,0 +1,191 @@
+package matrix;
+
+import fraction.Fraction;
+import fraction.FractionAccumulator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+class StrassenMultiply extends RecursiveTask<Fraction[][]> {
+  //Strassen-Winograd multiplication: 7 half-size products and 15 additions
+  //per level instead of 8 products. Fraction products are much dearer than
+  //additions, so trading one for the other pays off on large matrices.
+  //Operands are padded with zeros to a square size which can be halved
+  //until it reaches the crossover, at which point the classical kernel is
+  //used
+
+  static final int DEFAULT_CROSSOVER = 64;
+  private static final Fraction zero = Fraction.valueOf(0);
+
+  private final Fraction[][] a;
+  private final Fraction[][] b;
+  private final int crossover;
+  private final boolean parallel;
+
+  private StrassenMultiply(Fraction[][] a, Fraction[][] b, int crossover,
+                           boolean parallel) {
+    //Pre: a and b are square of the same size, which is even or not bigger
+    //than the crossover
+    this.a = a;
+    this.b = b;
+    this.crossover = crossover;
+    this.parallel = parallel;
+  }
+
+  static Fraction[][] multiply(Fraction[][] left, Fraction[][] right,
+                               int crossover, ForkJoinPool pool) {
+    //Pre: left and right can be multiplied and crossover > 0
+    //Post: returns left * right. If pool is not null the seven sub-products
+    //of the upper levels are computed in parallel on it
+    int nRows = left.length;
+    int inner = right.length;
+    int nCols = right[0].length;
+    //Very thin operands would be mostly padding, use the classical kernel
+    if (Math.min(nRows, Math.min(inner, nCols)) <= crossover) {
+      return classical(left, right, nRows, inner, nCols);
+    }
+    //Find the padded size: halving it must give even sizes until it is not
+    //bigger than the crossover
+    int size = Math.max(nRows, Math.max(inner, nCols));
+    int levels = 0;
+    while (size > crossover) {
+      size = (size + 1) / 2;
+      levels++;
+    }
+    size <<= levels;
+    Fraction[][] res = pool == null
+        ? new StrassenMultiply(pad(left, size), pad(right, size), crossover,
+        false).compute()
+        : pool.invoke(new StrassenMultiply(pad(left, size), pad(right, size),
+        crossover, true));
+    if (res.length == nRows && res[0].length == nCols) {
+      return res;
+    }
+    Fraction[][] trimmed = new Fraction[nRows][nCols];
+    for (int i = 0; i < nRows; i++) {
+      System.arraycopy(res[i], 0, trimmed[i], 0, nCols);
+    }
+    return trimmed;
+  }
+
+  @Override
+  protected Fraction[][] compute() {
+    int n = a.length;
+    if (n <= crossover) {
+      return classical(a, b, n, n, n);
+    }
+    int h = n / 2;
+    Fraction[][] a11 = quadrant(a, 0, 0, h);
+    Fraction[][] a12 = quadrant(a, 0, h, h);
+    Fraction[][] a21 = quadrant(a, h, 0, h);
+    Fraction[][] a22 = quadrant(a, h, h, h);
+    Fraction[][] b11 = quadrant(b, 0, 0, h);
+    Fraction[][] b12 = quadrant(b, 0, h, h);
+    Fraction[][] b21 = quadrant(b, h, 0, h);
+    Fraction[][] b22 = quadrant(b, h, h, h);
+
+    Fraction[][] s1 = add(a21, a22);
+    Fraction[][] s2 = subtract(s1, a11);
+    Fraction[][] s3 = subtract(a11, a21);
+    Fraction[][] s4 = subtract(a12, s2);
+    Fraction[][] t1 = subtract(b12, b11);
+    Fraction[][] t2 = subtract(b22, t1);
+    Fraction[][] t3 = subtract(b22, b12);
+    Fraction[][] t4 = subtract(t2, b21);
+
+    StrassenMultiply[] products = {
+        new StrassenMultiply(a11, b11, crossover, parallel),
+        new StrassenMultiply(a12, b21, crossover, parallel),
+        new StrassenMultiply(s4, b22, crossover, parallel),
+        new StrassenMultiply(a22, t4, crossover, parallel),
+        new StrassenMultiply(s1, t1, crossover, parallel),
+        new StrassenMultiply(s2, t2, crossover, parallel),
+        new StrassenMultiply(s3, t3, crossover, parallel)};
+    Fraction[][][] p = new Fraction[products.length][][];
+    if (parallel) {
+      invokeAll(products);
+      for (int i = 0; i < products.length; i++) {
+        p[i] = products[i].join();
+      }
+    } else {
+      for (int i = 0; i < products.length; i++) {
+        p[i] = products[i].compute();
+      }
+    }
+
+    Fraction[][] u2 = add(p[0], p[5]);
+    Fraction[][] u3 = add(u2, p[6]);
+    Fraction[][] u4 = add(u2, p[4]);
+    Fraction[][] c11 = add(p[0], p[1]);
+    Fraction[][] c12 = add(u4, p[2]);
+    Fraction[][] c21 = subtract(u3, p[3]);
+    Fraction[][] c22 = add(u3, p[4]);
+
+    Fraction[][] res = new Fraction[n][n];
+    for (int i = 0; i < h; i++) {
+      System.arraycopy(c11[i], 0, res[i], 0, h);
+      System.arraycopy(c12[i], 0, res[i], h, h);
+      System.arraycopy(c21[i], 0, res[i + h], 0, h);
+      System.arraycopy(c22[i], 0, res[i + h], h, h);
+    }
+    return res;
+  }
+
+  private static Fraction[][] classical(Fraction[][] left, Fraction[][] right,
+                                        int nRows, int inner, int nCols) {
+    Fraction[][] res = new Fraction[nRows][nCols];
+    FractionAccumulator sum = new FractionAccumulator();
+    for (int i = 0; i < nRows; i++) {
+      for (int j = 0; j < nCols; j++) {
+        sum.reset();
+        for (int k = 0; k < inner; k++) {
+          sum.addProduct(left[i][k], right[k][j]);
+        }
+        res[i][j] = sum.toFraction();
+      }
+    }
+    return res;
+  }
+
+  private static Fraction[][] pad(Fraction[][] m, int size) {
+    if (m.length == size && m[0].length == size) {
+      return m;
+    }
+    Fraction[][] res = new Fraction[size][size];
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        res[i][j] = (i < m.length && j < m[0].length) ? m[i][j] : zero;
+      }
+    }
+    return res;
+  }
+
+  private static Fraction[][] quadrant(Fraction[][] m, int row, int col,
+                                       int size) {
+    Fraction[][] res = new Fraction[size][size];
+    for (int i = 0; i < size; i++) {
+      System.arraycopy(m[row + i], col, res[i], 0, size);
+    }
+    return res;
+  }
+
+  private static Fraction[][] add(Fraction[][] m1, Fraction[][] m2) {
+    Fraction[][] res = new Fraction[m1.length][m1.length];
+    for (int i = 0; i < m1.length; i++) {
+      for (int j = 0; j < m1.length; j++) {
+        res[i][j] = m1[i][j].add(m2[i][j]);
+      }
+    }
+    return res;
+  }
+
+  private static Fraction[][] subtract(Fraction[][] m1, Fraction[][] m2) {
+    Fraction[][] res = new Fraction[m1.length][m1.length];
+    for (int i = 0; i < m1.length; i++) {
+      for (int j = 0; j < m1.length; j++) {
+        res[i][j] = m1[i][j].subtract(m2[i][j]);
+      }
+    }
+    return res;
+  }
+}
@@ -0,0 +1,79 @@
+package matrix;
+
+import fraction.Fraction;
+
+class ViewStorage extends MatrixStorage {
+  //Window over the entries of another storage, optionally transposed,
+  //which shares them instead of copying them. Entry (r, c) of the view is
+  //entry (rowOffset + r, colOffset + c) of the base, or
+  //(rowOffset + c, colOffset + r) if it is transposed. Views of views are
+  //folded into a single view of the original storage, so lookups never go
+  //through more than one level
+  private final MatrixStorage base;
+  private final int rowOffset;
+  private final int colOffset;
+  private final int nRows;
+  private final int nCols;
+  private final boolean transposed;
+
+  private ViewStorage(MatrixStorage base, int rowOffset, int colOffset,
+                      int nRows, int nCols, boolean transposed) {
+    this.base = base;
+    this.rowOffset = rowOffset;
+    this.colOffset = colOffset;
+    this.nRows = nRows;
+    this.nCols = nCols;
+    this.transposed = transposed;
+  }
+
+  static ViewStorage of(MatrixStorage storage) {
+    //The whole of storage, as a view
+    if (storage instanceof ViewStorage) {
+      return (ViewStorage) storage;
+    }
+    return new ViewStorage(storage, 0, 0, storage.nRows(), storage.nCols(),
+        false);
+  }
+
+  ViewStorage sub(int rowFrom, int colFrom, int nRows, int nCols) {
+    //Pre: the range is within this view
+    if (transposed) {
+      return new ViewStorage(base, rowOffset + colFrom, colOffset + rowFrom,
+          nRows, nCols, true);
+    }
+    return new ViewStorage(base, rowOffset + rowFrom, colOffset + colFrom,
+        nRows, nCols, false);
+  }
+
+  ViewStorage transpose() {
+    return new ViewStorage(base, rowOffset, colOffset, nCols, nRows,
+        !transposed);
+  }
+
+  @Override
+  int nRows() {
+    return nRows;
+  }
+
+  @Override
+  int nCols() {
+    return nCols;
+  }
+
+  @Override
+  Fraction get(int r, int c) {
+    return transposed ? base.get(rowOffset + c, colOffset + r)
+        : base.get(rowOffset + r, colOffset + c);
+  }
+
+  @Override
+  boolean isPrimitive() {
+    return base.isPrimitive();
+  }
+
+  @Override
+  boolean getRaw(int r, int c, long[] res) {
+    return transposed ? base.getRaw(rowOffset + c, colOffset + r, res)
+        : base.getRaw(rowOffset + r, colOffset + c, res);
+  }
+}